@@ -0,0 +1,95 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Context;
+import cool.arch.stateroom.ContextStore;
+
+/**
+ * Benchmarks for stepping a population of contexts with
+ * {@link cool.arch.stateroom.Machine#evaluateAll(Context[], int)}, compared against a sequential
+ * loop over {@link cool.arch.stateroom.Machine#evaluate(Context)} and stepping the same population
+ * in place in a {@link ContextStore}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchBenchmark {
+
+	@State(Scope.Thread)
+	public static class Population {
+
+		@Param({ "100000" })
+		public int populationSize;
+
+		@Param({ "1024" })
+		public int grainSize;
+
+		Context<BenchmarkModel>[] contexts;
+
+		ContextStore<BenchmarkModel> store;
+
+		@SuppressWarnings("unchecked")
+		@Setup(Level.Iteration)
+		public void setUp(final MachineShape shape) {
+			contexts = new Context[populationSize];
+			store = new ContextStore<>(shape.machine, populationSize);
+
+			for (int i = 0; i < populationSize; i++) {
+				contexts[i] = shape.machine.create();
+				store.add();
+			}
+		}
+	}
+
+	@Benchmark
+	public Context<BenchmarkModel>[] sequential(final MachineShape shape, final Population population) {
+		final Context<BenchmarkModel>[] contexts = population.contexts;
+
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = shape.machine.evaluate(contexts[i]);
+		}
+
+		return contexts;
+	}
+
+	@Benchmark
+	public Context<BenchmarkModel>[] evaluateAll(final MachineShape shape, final Population population) {
+		shape.machine.evaluateAll(population.contexts, population.grainSize);
+
+		return population.contexts;
+	}
+
+	@Benchmark
+	public int contextStore(final Population population) {
+		return population.store.stepAll();
+	}
+}
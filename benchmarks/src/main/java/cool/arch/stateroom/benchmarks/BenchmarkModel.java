@@ -0,0 +1,65 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Model used by the benchmarks. By default every step produces a new instance that carries a copy
+ * of the payload, so that the model size parameter reflects the cost of carrying state through a
+ * run. Mutable runs advance the same instance in place instead, which leaves the engine as the
+ * only possible source of allocation.
+ */
+public final class BenchmarkModel {
+
+	private int step;
+
+	private final long[] payload;
+
+	BenchmarkModel(final int step, final long[] payload) {
+		this.step = step;
+		this.payload = payload;
+	}
+
+	static BenchmarkModel initial(final int modelSize) {
+		return new BenchmarkModel(0, new long[modelSize]);
+	}
+
+	BenchmarkModel next() {
+		final long[] nextPayload = Arrays.copyOf(payload, payload.length);
+		nextPayload[step % nextPayload.length]++;
+
+		return new BenchmarkModel(step + 1, nextPayload);
+	}
+
+	BenchmarkModel advance() {
+		payload[step % payload.length]++;
+		step++;
+
+		return this;
+	}
+
+	int getStep() {
+		return step;
+	}
+
+	int selector(final int fanOut) {
+		return step % fanOut;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{'step':%d, 'size':%d}", Integer.valueOf(step), Integer.valueOf(payload.length));
+	}
+}
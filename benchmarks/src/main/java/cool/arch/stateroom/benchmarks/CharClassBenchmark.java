@@ -0,0 +1,103 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.CharClassMachine;
+import cool.arch.stateroom.Context;
+
+/**
+ * Scans 16 MiB of text with a word and number tokenizer held in heap and direct buffers.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CharClassBenchmark {
+
+	private static final int SIZE = 16 << 20;
+
+	@Param({ "false", "true" })
+	public boolean direct;
+
+	private CharClassMachine machine;
+
+	private ByteBuffer buffer;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final cool.arch.stateroom.State<Void> space = cool.arch.stateroom.State.of("Space", true);
+		final cool.arch.stateroom.State<Void> word = cool.arch.stateroom.State.of("Word", true);
+		final cool.arch.stateroom.State<Void> number = cool.arch.stateroom.State.of("Number", true);
+		final cool.arch.stateroom.State<Void> error = cool.arch.stateroom.State.of("Error");
+
+		machine = CharClassMachine.builder()
+			.withStartState(space)
+			.withHaltState(error)
+			.withState(space)
+			.onAnyOf(" \t\r\n", space)
+			.on('a', 'z', word)
+			.on('A', 'Z', word)
+			.on('0', '9', number)
+			.otherwise(error)
+			.withState(word)
+			.on('a', 'z', word)
+			.on('A', 'Z', word)
+			.on('0', '9', word)
+			.onAnyOf(" \t\r\n", space)
+			.otherwise(error)
+			.withState(number)
+			.on('0', '9', number)
+			.onAnyOf(" \t\r\n", space)
+			.otherwise(error)
+			.withState(error)
+			.build();
+
+		final Random random = new Random(11);
+		final byte[] text = new byte[SIZE];
+		final String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJ ";
+
+		for (int i = 0; i < SIZE; i++) {
+			text[i] = (byte) (i % 16 == 15 ? ' ' : alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+
+		buffer = direct ? ByteBuffer.allocateDirect(SIZE) : ByteBuffer.allocate(SIZE);
+		buffer.put(text);
+	}
+
+	@Benchmark
+	public Context<Void> scan() {
+		buffer.clear();
+
+		return machine.scan(buffer);
+	}
+}
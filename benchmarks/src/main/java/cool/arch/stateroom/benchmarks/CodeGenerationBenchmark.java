@@ -0,0 +1,90 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.ExecutionCursor;
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineBuilder;
+
+/**
+ * Steps a machine whose guards and transforms are all distinct lambdas, which makes the shared
+ * call sites of the interpreter megamorphic, with and without
+ * {@link MachineBuilder#withCodeGeneration()}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CodeGenerationBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean generated;
+
+	private ExecutionCursor<Long> cursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final cool.arch.stateroom.State<Long> a = cool.arch.stateroom.State.of("A");
+		final cool.arch.stateroom.State<Long> b = cool.arch.stateroom.State.of("B");
+		final cool.arch.stateroom.State<Long> c = cool.arch.stateroom.State.of("C");
+		final MachineBuilder<Long> builder = Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.withStartState(a);
+
+		if (generated) {
+			builder.withCodeGeneration();
+		}
+
+		final Machine<Long> machine = builder.withState(a)
+			.to(c, (state, model) -> (model & 0x3F) == 0x3F, (state, model) -> model ^ 0x11)
+			.to(b, (state, model) -> (model & 0x7) == 0x7, (state, model) -> model + 3)
+			.to(a, (state, model) -> model < 0, (state, model) -> -model)
+			.withState(b)
+			.to(a, (state, model) -> (model % 5) == 0, (state, model) -> model << 1 >>> 1)
+			.to(c, (state, model) -> (model % 11) == 0, (state, model) -> model | 0x100)
+			.withState(c)
+			.to(a, (state, model) -> (model & 0x1) == 0, (state, model) -> model & 0xFFFFFF)
+			.to(b, (state, model) -> (model % 13) == 0, (state, model) -> model - 1)
+			.build();
+
+		if (machine.isCodeGenerated() != generated) {
+			throw new IllegalStateException("Unexpected evaluator");
+		}
+
+		cursor = machine.cursor();
+	}
+
+	@Benchmark
+	public boolean step() {
+		return cursor.step();
+	}
+}
@@ -0,0 +1,106 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Context;
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineBuilder;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Steps a machine whose state has eight expensive guards, depending on one of 64 tiers of the model,
+ * with and without caching the selected transition.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DecisionCacheBenchmark {
+
+	private static final int GUARDS = 8;
+
+	private static final int TIERS = 64;
+
+	private final cool.arch.stateroom.State<Integer> pricing = cool.arch.stateroom.State.of("Pricing");
+
+	private Machine<Integer> uncached;
+
+	private Machine<Integer> cached;
+
+	private Context<Integer> context;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		uncached = machine(false);
+		cached = machine(true);
+		context = uncached.create();
+	}
+
+	@Benchmark
+	public Context<Integer> uncached() {
+		return uncached.evaluate(context);
+	}
+
+	@Benchmark
+	public Context<Integer> cached() {
+		return cached.evaluate(context);
+	}
+
+	private Machine<Integer> machine(final boolean cache) {
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(pricing);
+		StateBuilderFacade<Integer> facade = builder.withState(pricing);
+
+		if (cache) {
+			facade = facade.withPureGuards(model -> Integer.valueOf(model % TIERS));
+		}
+
+		for (int i = 0; i < GUARDS; i++) {
+			facade = facade.to(pricing, guard(i), (state, model) -> model + 1);
+		}
+
+		return facade.build();
+	}
+
+	private static BiPredicate<cool.arch.stateroom.State<Integer>, Integer> guard(final int guard) {
+		return (state, model) -> {
+			// Stands for a rule lookup costing a few dozen nanoseconds
+			int hash = model % TIERS;
+
+			for (int round = 0; round < 32; round++) {
+				hash = hash * 0x9E3779B1 + round;
+			}
+
+			return (hash >>> 29) == guard % 8 || guard == GUARDS - 1;
+		};
+	}
+}
@@ -0,0 +1,134 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Context;
+import cool.arch.stateroom.ExecutionCursor;
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Benchmarks for the evaluation entry points of {@link cool.arch.stateroom.Machine}.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar EvaluationBenchmark -prof gc} to include the
+ * allocation rate per operation. The cursor benchmarks with {@code -p mutableModel=true} are
+ * expected to report no allocation per step.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EvaluationBenchmark {
+
+	/**
+	 * Per thread cursor into a never ending run, restarted whenever the machine halts.
+	 */
+	@State(Scope.Thread)
+	public static class Run {
+
+		Context<BenchmarkModel> context;
+
+		@Setup(Level.Iteration)
+		public void setUp(final MachineShape shape) {
+			context = shape.machine.create();
+		}
+
+		Context<BenchmarkModel> advance(final MachineShape shape) {
+			final Context<BenchmarkModel> next = shape.machine.evaluate(context);
+
+			context = next.getStatus() == Status.READY ? next : shape.machine.create();
+
+			return next;
+		}
+	}
+
+	/**
+	 * Per thread execution cursor, repositioned at the start state whenever the machine halts.
+	 */
+	@State(Scope.Thread)
+	public static class CursorRun {
+
+		ExecutionCursor<BenchmarkModel> cursor;
+
+		@Setup(Level.Iteration)
+		public void setUp(final MachineShape shape) {
+			cursor = shape.machine.cursor();
+		}
+
+		boolean advance(final MachineShape shape) {
+			final boolean ready = cursor.step();
+
+			if (!ready) {
+				cursor.reset(shape.machine.create());
+			}
+
+			return ready;
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Context<BenchmarkModel> evaluate(final MachineShape shape, final Run run) {
+		return run.advance(shape);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Context<BenchmarkModel> evaluateLatency(final MachineShape shape, final Run run) {
+		return run.advance(shape);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Context<BenchmarkModel> evaluateUntilHalted(final MachineShape shape) {
+		return shape.machine.evaluateUntilHalted(shape.machine.create());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean cursorStep(final MachineShape shape, final CursorRun run) {
+		return run.advance(shape);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Context<BenchmarkModel> cursorRun(final MachineShape shape, final CursorRun run) {
+		return run.cursor.reset(shape.machine.create())
+			.run();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Context<BenchmarkModel> create(final MachineShape shape) {
+		return shape.machine.create();
+	}
+}
@@ -0,0 +1,117 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.ExecutionCursor;
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Compares selecting one of {@code edges} outgoing transitions by event through
+ * {@link ExecutionCursor#fire(Object)} with scanning the equivalent predicates through
+ * {@link ExecutionCursor#step()}, with the event handed to the guards as the model.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class EventDispatchBenchmark {
+
+	@Param({ "8", "48" })
+	public int edges;
+
+	private Integer[] events;
+
+	private int next;
+
+	private Integer pending;
+
+	private ExecutionCursor<Integer> predicateCursor;
+
+	private ExecutionCursor<Integer> eventCursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final cool.arch.stateroom.State<Integer> hub = cool.arch.stateroom.State.of("Hub");
+		final cool.arch.stateroom.State<Integer> spoke = cool.arch.stateroom.State.of("Spoke");
+
+		events = new Integer[edges];
+
+		StateBuilderFacade<Integer> predicates = Machine.builder(Integer.class)
+			.withModelSupplier(() -> Integer.valueOf(0))
+			.withStartState(hub)
+			.withPreEvaluationTransform((state, model) -> pending)
+			.withState(hub);
+		StateBuilderFacade<Integer> dispatch = Machine.builder(Integer.class)
+			.withModelSupplier(() -> Integer.valueOf(0))
+			.withStartState(hub)
+			.withState(hub);
+
+		for (int i = 0; i < edges; i++) {
+			final Integer event = Integer.valueOf(i);
+
+			events[i] = event;
+			predicates = predicates.to(i == 0 ? spoke : hub, (state, model) -> event.equals(model));
+			dispatch = dispatch.on(event, i == 0 ? spoke : hub);
+		}
+
+		predicates = predicates.withState(spoke)
+			.to(hub, (state, model) -> true);
+		dispatch = dispatch.withState(spoke)
+			.on(Integer.valueOf(0), hub)
+			.to(hub, (state, model) -> true);
+
+		predicateCursor = predicates.build()
+			.cursor();
+		eventCursor = dispatch.build()
+			.cursor();
+	}
+
+	private Integer nextEvent() {
+		final Integer event = events[next];
+
+		next = next + 1 == events.length ? 0 : next + 1;
+
+		return event;
+	}
+
+	@Benchmark
+	public boolean predicateScan() {
+		pending = nextEvent();
+
+		return predicateCursor.step();
+	}
+
+	@Benchmark
+	public boolean eventDispatch() {
+		return eventCursor.fire(nextEvent());
+	}
+}
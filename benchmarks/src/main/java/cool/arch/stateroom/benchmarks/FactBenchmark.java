@@ -0,0 +1,105 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cool.arch.stateroom.ExecutionCursor;
+import cool.arch.stateroom.Fact;
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineBuilder;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Compares {@code guards} transitions that each recompute an expensive score with the same
+ * transitions reading the score as a {@link Fact}. Only the last guard accepts, so every step tests
+ * all of them.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FactBenchmark {
+
+	@Param({ "4", "16" })
+	public int guards;
+
+	private ExecutionCursor<Long> recomputing;
+
+	private ExecutionCursor<Long> memoized;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final BiFunction<cool.arch.stateroom.State<Long>, Long, Long> scoring = (state, model) -> {
+			Blackhole.consumeCPU(64);
+
+			return model;
+		};
+		final Fact<Long, Long> score = Fact.of("score", scoring);
+
+		recomputing = build(false, score, scoring);
+		memoized = build(true, score, scoring);
+	}
+
+	private ExecutionCursor<Long> build(final boolean memoize, final Fact<Long, Long> score,
+		final BiFunction<cool.arch.stateroom.State<Long>, Long, Long> scoring) {
+		final cool.arch.stateroom.State<Long> hub = cool.arch.stateroom.State.of("Hub");
+		final MachineBuilder<Long> builder = Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withStartState(hub);
+
+		if (memoize) {
+			builder.withFact(score);
+		}
+
+		StateBuilderFacade<Long> facade = builder.withState(hub);
+
+		for (int i = 0; i < guards; i++) {
+			final long threshold = i == guards - 1 ? Long.MIN_VALUE : Long.MAX_VALUE;
+
+			facade = memoize ? facade.to(hub, score, value -> value > threshold)
+				: facade.to(hub, (state, model) -> scoring.apply(state, model) > threshold);
+		}
+
+		return facade.build()
+			.cursor();
+	}
+
+	@Benchmark
+	public boolean recomputing() {
+		return recomputing.step();
+	}
+
+	@Benchmark
+	public boolean memoized() {
+		return memoized.step();
+	}
+}
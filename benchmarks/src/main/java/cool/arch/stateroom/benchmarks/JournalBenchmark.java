@@ -0,0 +1,120 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cool.arch.stateroom.Context;
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.TransitionJournal;
+
+/**
+ * Measures appending to a {@link TransitionJournal} without syncing, and replaying
+ * {@value #ENTRIES} entries through the raw visitor.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+	private static final int ENTRIES = 1_000_000;
+
+	private final cool.arch.stateroom.State<Integer> ping = cool.arch.stateroom.State.of("Ping");
+
+	private final cool.arch.stateroom.State<Integer> pong = cool.arch.stateroom.State.of("Pong");
+
+	private Path directory;
+
+	private TransitionJournal<Integer> journal;
+
+	private TransitionJournal<Integer> replayJournal;
+
+	private Context<Integer> ping2pong;
+
+	private Context<Integer> pingContext;
+
+	private long id;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final Machine<Integer> machine = Machine.builder(Integer.class)
+			.withModelSupplier(() -> Integer.valueOf(0))
+			.withStartState(ping)
+			.withState(ping)
+			.to(pong, (state, model) -> true)
+			.withState(pong)
+			.to(ping, (state, model) -> true)
+			.build();
+
+		directory = Files.createTempDirectory("stateroom-journal");
+		journal = new TransitionJournal<>(machine, Files.createDirectory(directory.resolve("append")));
+		replayJournal = new TransitionJournal<>(machine, Files.createDirectory(directory.resolve("replay")));
+		pingContext = machine.create();
+		ping2pong = machine.evaluate(pingContext);
+
+		for (long i = 0; i < ENTRIES; i++) {
+			replayJournal.record(i, pingContext, ping2pong);
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void truncate() {
+		journal.truncate(journal.position());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		journal.close();
+		replayJournal.close();
+
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted((a, b) -> b.compareTo(a))
+				.forEach(path -> path.toFile()
+					.delete());
+		}
+	}
+
+	@Benchmark
+	public long append() {
+		return journal.record(id++, pingContext, ping2pong);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public void replay(final Blackhole blackhole) {
+		replayJournal.replay(0, (position, contextId, from, to, before, after, model) -> blackhole.consume(to));
+	}
+}
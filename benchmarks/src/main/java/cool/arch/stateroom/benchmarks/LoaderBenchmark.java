@@ -0,0 +1,138 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineBuilder;
+import cool.arch.stateroom.MachineLoader;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Builds a 100,000 state machine with two guarded transitions per state through the builder, through
+ * the loader and from a memory mapped image.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null", "-Xmx2g" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+	private static final int STATES = 100_000;
+
+	private static final BiPredicate<cool.arch.stateroom.State<Integer>, Integer> EVEN = (state, model) -> model % 2 == 0;
+
+	private static final BiPredicate<cool.arch.stateroom.State<Integer>, Integer> ODD = (state, model) -> model % 2 != 0;
+
+	private static final BiFunction<cool.arch.stateroom.State<Integer>, Integer, Integer> INCREMENT =
+		(state, model) -> model + 1;
+
+	private final String[] names = new String[STATES];
+
+	private final boolean[] acceptStates = new boolean[STATES];
+
+	private final int[] sources = new int[STATES * 2];
+
+	private final int[] targets = new int[STATES * 2];
+
+	private final String[] guards = new String[STATES * 2];
+
+	private final String[] modelTransforms = new String[STATES * 2];
+
+	private MachineLoader<Integer> loader;
+
+	private Path image;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		for (int i = 0; i < STATES; i++) {
+			names[i] = "S" + i;
+			sources[i * 2] = i;
+			targets[i * 2] = (i + 1) % STATES;
+			guards[i * 2] = "even";
+			modelTransforms[i * 2] = "increment";
+			sources[i * 2 + 1] = i;
+			targets[i * 2 + 1] = i * 7 % STATES;
+			guards[i * 2 + 1] = "odd";
+		}
+
+		loader = Machine.loader(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withGuard("even", EVEN)
+			.withGuard("odd", ODD)
+			.withTransform("increment", INCREMENT);
+		image = Files.createTempFile("stateroom-", ".image");
+		loader.writeImage(loader(), image);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.delete(image);
+	}
+
+	@Benchmark
+	public Machine<Integer> builder() {
+		final List<cool.arch.stateroom.State<Integer>> states = new ArrayList<>(STATES);
+
+		for (int i = 0; i < STATES; i++) {
+			states.add(cool.arch.stateroom.State.of(names[i], acceptStates[i]));
+		}
+
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(states.get(0));
+		StateBuilderFacade<Integer> facade = null;
+
+		for (int i = 0; i < STATES; i++) {
+			facade = (facade == null ? builder.withState(states.get(i)) : facade.withState(states.get(i)))
+				.to(states.get(targets[i * 2]), EVEN, INCREMENT)
+				.to(states.get(targets[i * 2 + 1]), ODD);
+		}
+
+		return facade.build();
+	}
+
+	@Benchmark
+	public Machine<Integer> loader() {
+		return loader.load(names, acceptStates, sources, targets, guards, modelTransforms);
+	}
+
+	@Benchmark
+	public Machine<Integer> image() throws IOException {
+		return loader.loadImage(image);
+	}
+}
@@ -0,0 +1,110 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Parameterized machine shape shared by all benchmarks.
+ * <p>
+ * State {@code i} has {@code fanOut} outgoing transitions, where transition {@code j} targets
+ * state {@code (i + j + 1) % stateCount} and matches when the model step modulo {@code fanOut}
+ * equals {@code j}. Every step therefore takes exactly one transition after scanning half of the
+ * transitions of the current state on average. Each guard burns {@code predicateCost} tokens of
+ * CPU before answering. When {@code mutableModel} is set the pre-evaluation transform advances the
+ * model in place rather than copying it.
+ */
+@State(Scope.Benchmark)
+public class MachineShape {
+
+	@Param({ "16", "1024", "4096" })
+	public int stateCount;
+
+	@Param({ "1", "4", "16" })
+	public int fanOut;
+
+	@Param({ "0", "64" })
+	public int predicateCost;
+
+	@Param({ "1", "256" })
+	public int modelSize;
+
+	@Param({ "false", "true" })
+	public boolean mutableModel;
+
+	@Param({ "1000" })
+	public int runLength;
+
+	Machine<BenchmarkModel> machine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		machine = build();
+	}
+
+	Machine<BenchmarkModel> build() {
+		final List<cool.arch.stateroom.State<BenchmarkModel>> states = new ArrayList<>(stateCount);
+
+		for (int i = 0; i < stateCount; i++) {
+			states.add(cool.arch.stateroom.State.of("S" + i, i % 2 == 0));
+		}
+
+		final int size = modelSize;
+		final int length = runLength;
+		final BiFunction<cool.arch.stateroom.State<BenchmarkModel>, BenchmarkModel, BenchmarkModel> advance =
+			mutableModel ? (state, model) -> model.advance() : (state, model) -> model.next();
+		StateBuilderFacade<BenchmarkModel> facade = Machine.builder(BenchmarkModel.class)
+			.withModelSupplier(() -> BenchmarkModel.initial(size))
+			.withStartState(states.get(0))
+			.withPreEvaluationTransform(advance)
+			.haltWhen((state, model) -> model.getStep() >= length)
+			.withState(states.get(0));
+
+		for (int i = 0; i < stateCount; i++) {
+			if (i > 0) {
+				facade = facade.withState(states.get(i));
+			}
+
+			for (int j = 0; j < fanOut; j++) {
+				facade = facade.to(states.get((i + j + 1) % stateCount), guard(j));
+			}
+		}
+
+		return facade.build();
+	}
+
+	private BiPredicate<cool.arch.stateroom.State<BenchmarkModel>, BenchmarkModel> guard(final int selector) {
+		final int cost = predicateCost;
+		final int modulus = fanOut;
+
+		return (state, model) -> {
+			Blackhole.consumeCPU(cost);
+
+			return model.selector(modulus) == selector;
+		};
+	}
+}
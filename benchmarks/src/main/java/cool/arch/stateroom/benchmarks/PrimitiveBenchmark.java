@@ -0,0 +1,87 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.ExecutionCursor;
+import cool.arch.stateroom.LongCursor;
+import cool.arch.stateroom.LongMachine;
+import cool.arch.stateroom.Machine;
+
+/**
+ * Compares stepping a counter machine over a boxed {@code Long} model with the equivalent
+ * {@link LongMachine}.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PrimitiveBenchmark {
+
+	private ExecutionCursor<Long> boxedCursor;
+
+	private LongCursor primitiveCursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final cool.arch.stateroom.State<Long> low = cool.arch.stateroom.State.of("Low");
+		final cool.arch.stateroom.State<Long> high = cool.arch.stateroom.State.of("High");
+
+		boxedCursor = Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.withStartState(low)
+			.withState(low)
+			.to(high, (state, model) -> (model & 0xFF) == 0xFF, (state, model) -> model ^ 0x55)
+			.withState(high)
+			.to(low, (state, model) -> (model & 0xF) == 0, (state, model) -> model ^ 0xAA)
+			.build()
+			.cursor();
+		primitiveCursor = LongMachine.builder()
+			.withModelSupplier(() -> 0L)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.withStartState(low)
+			.withState(low)
+			.to(high, (state, model) -> (model & 0xFF) == 0xFF, (state, model) -> model ^ 0x55)
+			.withState(high)
+			.to(low, (state, model) -> (model & 0xF) == 0, (state, model) -> model ^ 0xAA)
+			.build()
+			.cursor();
+	}
+
+	@Benchmark
+	public boolean boxed() {
+		return boxedCursor.step();
+	}
+
+	@Benchmark
+	public boolean primitive() {
+		return primitiveCursor.step();
+	}
+}
@@ -0,0 +1,97 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineBuilder;
+import cool.arch.stateroom.SpeculativeRunner;
+import cool.arch.stateroom.StateBuilderFacade;
+
+/**
+ * Runs a 32 state event driven machine over four million events sequentially and speculatively in
+ * parallel.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SpeculativeBenchmark {
+
+	private static final int STATES = 32;
+
+	private static final int EVENTS = 4_000_000;
+
+	private final List<cool.arch.stateroom.State<Object>> states = new ArrayList<>();
+
+	private final List<Character> events = new ArrayList<>(EVENTS);
+
+	private SpeculativeRunner<Object> runner;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		for (int i = 0; i < STATES; i++) {
+			states.add(cool.arch.stateroom.State.of("S" + i));
+		}
+
+		final MachineBuilder<Object> builder = Machine.builder(Object.class)
+			.withModelSupplier(Object::new)
+			.withStartState(states.get(0));
+		StateBuilderFacade<Object> facade = null;
+
+		for (int i = 0; i < STATES; i++) {
+			facade = (facade == null ? builder.withState(states.get(i)) : facade.withState(states.get(i)))
+				.on('a', states.get((i + 1) % STATES))
+				.on('b', states.get(i * 3 % STATES))
+				.on('\n', states.get(0));
+		}
+
+		runner = facade.build()
+			.speculativeRunner();
+
+		final Random random = new Random(7);
+
+		for (int i = 0; i < EVENTS; i++) {
+			events.add(i % 80 == 79 ? '\n' : random.nextBoolean() ? 'a' : 'b');
+		}
+	}
+
+	@Benchmark
+	public cool.arch.stateroom.State<Object> sequential() {
+		return runner.runSequentially(states.get(0), events);
+	}
+
+	@Benchmark
+	public cool.arch.stateroom.State<Object> speculative() {
+		return runner.run(states.get(0), events);
+	}
+}
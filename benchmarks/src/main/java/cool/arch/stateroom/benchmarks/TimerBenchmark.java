@@ -0,0 +1,94 @@
+package cool.arch.stateroom.benchmarks;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cool.arch.stateroom.Machine;
+import cool.arch.stateroom.MachineRuntime;
+
+/**
+ * Advances the timers of a runtime holding one million instances, each with a pending one year
+ * timeout, and restarts the timeout of a single instance.
+ */
+@Fork(value = 2, jvmArgsAppend = { "-Djava.util.logging.config.file=/dev/null", "-Xmx2g" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TimerBenchmark {
+
+	private static final int INSTANCES = 1_000_000;
+
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private MachineRuntime<Integer, Object> runtime;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final cool.arch.stateroom.State<Object> idle = cool.arch.stateroom.State.of("Idle");
+		final cool.arch.stateroom.State<Object> expired = cool.arch.stateroom.State.of("Expired", true);
+		final Machine<Object> machine = Machine.builder(Object.class)
+			.withModelSupplier(Object::new)
+			.withStartState(idle)
+			.withState(idle)
+			.after(Duration.ofDays(365), expired)
+			.withState(expired)
+			.build();
+
+		runtime = new MachineRuntime<>(machine, Runnable::run, clock::get, Duration.ofNanos(TICK_NANOS));
+
+		for (int i = 0; i < INSTANCES; i++) {
+			runtime.start(Integer.valueOf(i));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		runtime.close();
+	}
+
+	@Benchmark
+	public int tick() {
+		clock.addAndGet(TICK_NANOS);
+
+		return runtime.advanceTimers();
+	}
+
+	@Benchmark
+	public int restart() {
+		runtime.remove(Integer.valueOf(0));
+		runtime.start(Integer.valueOf(0));
+
+		return runtime.getPendingTimers();
+	}
+}
@@ -40,9 +40,20 @@ abstract class AbstractBuilderImpl<T> implements AbstractBuilder<T> {
 			throw new IllegalStateException(joiner.toString());
 		}
 
+		complete(instance);
+
 		return instance;
 	}
 
+	/**
+	 * Invoked once the instance has passed validation and before it is handed out by
+	 * {@link #build()}. Implementations may use it to derive any immutable runtime structures.
+	 * @param instance Validated instance
+	 */
+	protected void complete(final T instance) {
+		// Nothing to complete by default
+	}
+
 	protected T getInstance() {
 		return instance;
 	}
@@ -0,0 +1,78 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task evaluating a slice of a population of contexts in place. Slices larger than the
+ * grain size are split in halves; leaves reuse a single {@link ExecutionCursor} for all of their
+ * contexts.
+ * @param <M> Type used to represent the machine model
+ */
+final class BatchEvaluation<M> extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Machine<M> machine;
+
+	private final Context<M>[] contexts;
+
+	private final int from;
+
+	private final int to;
+
+	private final int grainSize;
+
+	private final boolean untilHalted;
+
+	BatchEvaluation(final Machine<M> machine, final Context<M>[] contexts, final int from, final int to,
+		final int grainSize, final boolean untilHalted) {
+		this.machine = machine;
+		this.contexts = contexts;
+		this.from = from;
+		this.to = to;
+		this.grainSize = grainSize;
+		this.untilHalted = untilHalted;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= grainSize) {
+			evaluateSlice();
+			return;
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		invokeAll(new BatchEvaluation<>(machine, contexts, from, middle, grainSize, untilHalted),
+			new BatchEvaluation<>(machine, contexts, middle, to, grainSize, untilHalted));
+	}
+
+	private void evaluateSlice() {
+		ExecutionCursor<M> cursor = null;
+
+		for (int index = from; index < to; index++) {
+			cursor = cursor == null ? machine.cursor(contexts[index]) : cursor.reset(contexts[index]);
+
+			if (untilHalted) {
+				machine.run(cursor);
+			} else {
+				machine.step(cursor);
+			}
+
+			contexts[index] = cursor.snapshot();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Position of a run of a {@link CharClassMachine}, advanced in place by feeding it input. Input
+ * may be fed in any number of pieces, such as the successive buffers read from a channel, and is
+ * consumed up to its end or up to the character entering a halt state.
+ * <p>
+ * Cursors are not thread safe and are meant to be confined to the thread driving the run.
+ */
+public final class CharClassCursor {
+
+	private final CharClassMachine machine;
+
+	int row;
+
+	Status status = Status.READY;
+
+	long offset;
+
+	CharClassCursor(final CharClassMachine machine, final int row) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.row = row;
+	}
+
+	/**
+	 * Consumes the remaining bytes of the buffer, advancing its position past the consumed bytes.
+	 * @param buffer Input to consume
+	 * @return Whether the machine is still ready for further input
+	 */
+	public boolean feed(final ByteBuffer buffer) {
+		requireNonNull(buffer, "buffer shall not be null");
+
+		return status == Status.READY && machine.feed(this, buffer);
+	}
+
+	/**
+	 * Consumes the characters of the sequence.
+	 * @param input Input to consume
+	 * @return Whether the machine is still ready for further input
+	 */
+	public boolean feed(final CharSequence input) {
+		requireNonNull(input, "input shall not be null");
+
+		return status == Status.READY && machine.feed(this, input);
+	}
+
+	/**
+	 * Ends the input, halting a run that is still ready according to whether its current state is
+	 * an accept state.
+	 * @return Snapshot of the halted run
+	 */
+	public Context<Void> finish() {
+		machine.finish(this);
+
+		return snapshot();
+	}
+
+	/**
+	 * Repositions the cursor at the start state, allowing a single cursor to be reused across runs.
+	 * @return This cursor
+	 */
+	public CharClassCursor reset() {
+		row = machine.getStartRow();
+		status = Status.READY;
+		offset = 0;
+
+		return this;
+	}
+
+	/**
+	 * Captures the current position of the cursor as an immutable context.
+	 * @return Context reflecting the current state and status
+	 */
+	public Context<Void> snapshot() {
+		return machine.snapshot(this);
+	}
+
+	/**
+	 * Gets the current state of the run.
+	 * @return Current state
+	 */
+	public State<Void> getState() {
+		return machine.stateAt(row);
+	}
+
+	/**
+	 * Gets the current status of the run.
+	 * @return Current status
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the number of bytes or characters consumed since the start of the run.
+	 * @return Number of consumed bytes or characters
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{");
+		sb.append("'state':");
+		sb.append(getState());
+		sb.append("'status':");
+		sb.append(status);
+		sb.append("'offset':");
+		sb.append(offset);
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
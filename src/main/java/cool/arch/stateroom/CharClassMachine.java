@@ -0,0 +1,339 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.READY;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Finite state machine over characters or bytes, whose transitions are keyed by character ranges
+ * instead of guards. A byte is matched as the character of its unsigned value, {@code 0x00} to
+ * {@code 0xFF}.
+ * <p>
+ * The ranges are compiled into a dense transition table with one column per equivalence class of
+ * characters, that is per set of characters every state treats alike, so that consuming a byte or a
+ * character costs two array loads. Input is read in place from a {@link ByteBuffer}, including
+ * direct and memory mapped buffers, or from a {@link CharSequence}.
+ * <p>
+ * Per state the first declared range containing a character wins, and a character matched by no
+ * range leaves the state unchanged. Entering a halt state halts the run with
+ * {@link Status#ACCEPTED} or {@link Status#CRASHED} depending on whether it is an accept state,
+ * and so does {@link CharClassCursor#finish()} at the end of the input.
+ * <p>
+ * A machine is immutable once built and may be shared by any number of threads scanning with
+ * different cursors.
+ */
+public final class CharClassMachine {
+
+	private static final int CHARACTERS = Character.MAX_VALUE + 1;
+
+	private State<Void> startState;
+
+	private final Map<State<Void>, List<Range>> transitions = new LinkedHashMap<>();
+
+	private final Set<State<Void>> haltStates = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final Map<State<Void>, Integer> ordinals = new IdentityHashMap<>();
+
+	private State<Void>[] states;
+
+	private boolean[] acceptStates;
+
+	/**
+	 * Equivalence class of every character.
+	 */
+	private char[] classes;
+
+	private int classCount;
+
+	/**
+	 * Transition table holding, for the row of a state and the class of a character, the row of the
+	 * target state. Rows are stored premultiplied by {@link #classCount}, and rows of halt states as
+	 * {@code -row - 1}.
+	 */
+	private int[] table;
+
+	private int startRow;
+
+	CharClassMachine() {
+		// Built through CharClassMachine.builder()
+	}
+
+	public static CharClassMachineBuilder builder() {
+		return new CharClassMachineBuilderImpl();
+	}
+
+	/**
+	 * Creates a cursor positioned at the start state.
+	 * @return New cursor
+	 */
+	public CharClassCursor cursor() {
+		return new CharClassCursor(this, startRow);
+	}
+
+	/**
+	 * Scans the remaining bytes of the buffer from the start state and finishes the run. The
+	 * position of the buffer is advanced past the consumed bytes.
+	 * @param buffer Input to scan
+	 * @return Resulting context
+	 */
+	public Context<Void> scan(final ByteBuffer buffer) {
+		final CharClassCursor cursor = cursor();
+
+		cursor.feed(buffer);
+
+		return cursor.finish();
+	}
+
+	/**
+	 * Scans the characters from the start state and finishes the run.
+	 * @param input Input to scan
+	 * @return Resulting context
+	 */
+	public Context<Void> scan(final CharSequence input) {
+		final CharClassCursor cursor = cursor();
+
+		cursor.feed(input);
+
+		return cursor.finish();
+	}
+
+	/**
+	 * @return Number of equivalence classes the characters have been compressed into
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * @return Number of states of the machine
+	 */
+	public int size() {
+		return states.length;
+	}
+
+	boolean feed(final CharClassCursor cursor, final ByteBuffer buffer) {
+		final int[] table = this.table;
+		final char[] classes = this.classes;
+		final int start = buffer.position();
+		final int limit = buffer.limit();
+		int row = cursor.row;
+		int index = start;
+
+		if (buffer.hasArray()) {
+			final byte[] array = buffer.array();
+			final int offset = buffer.arrayOffset();
+
+			while (index < limit && (row = table[row + classes[array[offset + index++] & 0xFF]]) >= 0) {
+				// Advanced by the condition
+			}
+		} else {
+			while (index < limit && (row = table[row + classes[buffer.get(index++) & 0xFF]]) >= 0) {
+				// Advanced by the condition
+			}
+		}
+
+		buffer.position(index);
+		cursor.offset += index - start;
+
+		return settle(cursor, row);
+	}
+
+	boolean feed(final CharClassCursor cursor, final CharSequence input) {
+		final int[] table = this.table;
+		final char[] classes = this.classes;
+		final int length = input.length();
+		int row = cursor.row;
+		int index = 0;
+
+		while (index < length && (row = table[row + classes[input.charAt(index++)]]) >= 0) {
+			// Advanced by the condition
+		}
+
+		cursor.offset += index;
+
+		return settle(cursor, row);
+	}
+
+	private boolean settle(final CharClassCursor cursor, final int row) {
+		if (row >= 0) {
+			cursor.row = row;
+
+			return true;
+		}
+
+		cursor.row = -row - 1;
+		cursor.status = acceptStates[cursor.row / classCount] ? Status.ACCEPTED : Status.CRASHED;
+
+		return false;
+	}
+
+	void finish(final CharClassCursor cursor) {
+		if (cursor.status == READY) {
+			cursor.status = acceptStates[cursor.row / classCount] ? Status.ACCEPTED : Status.CRASHED;
+		}
+	}
+
+	State<Void> stateAt(final int row) {
+		return states[row / classCount];
+	}
+
+	Context<Void> snapshot(final CharClassCursor cursor) {
+		return new Context<>(stateAt(cursor.row), cursor.row / classCount, cursor.status, null);
+	}
+
+	int getStartRow() {
+		return startRow;
+	}
+
+	@SuppressWarnings("unchecked")
+	void compile() {
+		final int stateCount = transitions.size();
+
+		states = new State[stateCount];
+		acceptStates = new boolean[stateCount];
+
+		for (final State<Void> state : transitions.keySet()) {
+			final int ordinal = ordinals.size();
+
+			ordinals.put(state, Integer.valueOf(ordinal));
+			states[ordinal] = state;
+			acceptStates[ordinal] = state.isAcceptState();
+		}
+
+		final TreeSet<Integer> boundaries = new TreeSet<>();
+
+		boundaries.add(Integer.valueOf(0));
+		boundaries.add(Integer.valueOf(CHARACTERS));
+
+		for (final List<Range> ranges : transitions.values()) {
+			for (final Range range : ranges) {
+				boundaries.add(Integer.valueOf(range.first));
+				boundaries.add(Integer.valueOf(range.last + 1));
+			}
+		}
+
+		final Map<List<Integer>, Integer> classOfColumn = new HashMap<>();
+		final List<int[]> columns = new ArrayList<>();
+
+		classes = new char[CHARACTERS];
+
+		Integer lower = null;
+
+		for (final Integer upper : boundaries) {
+			if (lower != null) {
+				final int[] column = new int[stateCount];
+				final List<Integer> key = new ArrayList<>(stateCount);
+
+				for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+					column[ordinal] = targetOf(ordinal, (char) lower.intValue());
+					key.add(Integer.valueOf(column[ordinal]));
+				}
+
+				Integer type = classOfColumn.get(key);
+
+				if (type == null) {
+					type = Integer.valueOf(columns.size());
+					classOfColumn.put(key, type);
+					columns.add(column);
+				}
+
+				Arrays.fill(classes, lower.intValue(), upper.intValue(), (char) type.intValue());
+			}
+
+			lower = upper;
+		}
+
+		classCount = columns.size();
+		table = new int[stateCount * classCount];
+
+		for (int type = 0; type < classCount; type++) {
+			final int[] column = columns.get(type);
+
+			for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+				final int target = column[ordinal];
+				final int row = target * classCount;
+
+				table[ordinal * classCount + type] = haltStates.contains(states[target]) ? -row - 1 : row;
+			}
+		}
+
+		startRow = ordinals.get(startState)
+			.intValue() * classCount;
+	}
+
+	private int targetOf(final int ordinal, final char c) {
+		for (final Range range : transitions.get(states[ordinal])) {
+			if (range.first <= c && c <= range.last) {
+				return ordinals.get(range.target)
+					.intValue();
+			}
+		}
+
+		return ordinal;
+	}
+
+	Map<State<Void>, List<Range>> getTransitions() {
+		return transitions;
+	}
+
+	Set<State<Void>> getHaltStates() {
+		return haltStates;
+	}
+
+	State<Void> getStartState() {
+		return startState;
+	}
+
+	void setStartState(final State<Void> startState) {
+		this.startState = startState;
+	}
+
+	/**
+	 * Inclusive character range declared through the builder, resolved into the table by
+	 * {@link #compile()}.
+	 */
+	static final class Range {
+
+		final char first;
+
+		final char last;
+
+		final State<Void> target;
+
+		Range(final char first, final char last, final State<Void> target) {
+			if (first > last) {
+				throw new IllegalArgumentException("first shall not be greater than last");
+			}
+
+			this.first = first;
+			this.last = last;
+			this.target = requireNonNull(target, "target shall not be null");
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+final class CharClassMachineBuilderImpl extends AbstractBuilderImpl<CharClassMachine> implements
+	CharClassMachineBuilder {
+
+	protected CharClassMachineBuilderImpl() {
+		super(new CharClassMachine());
+	}
+
+	@Override
+	protected Set<String> validate(Set<String> errors, CharClassMachine instance) {
+		final Set<State<Void>> states = instance.getTransitions()
+			.keySet();
+
+		final String invalidStates = instance.getTransitions()
+			.values()
+			.stream()
+			.flatMap(List::stream)
+			.map(range -> range.target)
+			.filter(state -> !states.contains(state))
+			.map(State::getName)
+			.distinct()
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(invalidStates)) {
+			errors.add("Invalid states: " + invalidStates);
+		}
+
+		final String invalidHaltStates = instance.getHaltStates()
+			.stream()
+			.filter(state -> !states.contains(state))
+			.map(State::getName)
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(invalidHaltStates)) {
+			errors.add("Invalid halt states: " + invalidHaltStates);
+		}
+
+		if (!states.contains(instance.getStartState())) {
+			errors.add("Invalid start state: " + (instance.getStartState() == null ? null
+				: instance.getStartState()
+					.getName()));
+		}
+
+		return errors;
+	}
+
+	@Override
+	protected void complete(final CharClassMachine instance) {
+		instance.compile();
+	}
+
+	@Override
+	public CharClassStateBuilderFacade withState(State<Void> state) {
+		return new CharClassStateBuilderFacadeImpl(this, requireNonNull(state, "state shall not be null"));
+	}
+
+	void withState(final State<Void> state, final List<CharClassMachine.Range> ranges) {
+		getInstance().getTransitions()
+			.put(state, new ArrayList<>(ranges));
+	}
+
+	@Override
+	public CharClassMachineBuilder withStartState(State<Void> startState) {
+		getInstance().setStartState(requireNonNull(startState, "startState shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public CharClassMachineBuilder withHaltState(State<Void> state) {
+		getInstance().getHaltStates()
+			.add(requireNonNull(state, "state shall not be null"));
+
+		return this;
+	}
+}
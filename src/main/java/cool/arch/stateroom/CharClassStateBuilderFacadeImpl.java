@@ -0,0 +1,75 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class CharClassStateBuilderFacadeImpl implements CharClassStateBuilderFacade {
+
+	private final CharClassMachineBuilderImpl builder;
+
+	private final State<Void> state;
+
+	private final List<CharClassMachine.Range> builtTransitions = new ArrayList<>();
+
+	CharClassStateBuilderFacadeImpl(CharClassMachineBuilderImpl builder, State<Void> state) {
+		this.builder = builder;
+		this.state = state;
+	}
+
+	@Override
+	public CharClassStateBuilderFacade withState(State<Void> state) {
+		builder.withState(this.state, builtTransitions);
+
+		return builder.withState(state);
+	}
+
+	@Override
+	public CharClassMachine build() {
+		builder.withState(state, builtTransitions);
+
+		return builder.build();
+	}
+
+	@Override
+	public CharClassStateBuilderFacade on(char c, State<Void> targetState) {
+		return on(c, c, targetState);
+	}
+
+	@Override
+	public CharClassStateBuilderFacade on(char first, char last, State<Void> targetState) {
+		builtTransitions.add(new CharClassMachine.Range(first, last, targetState));
+
+		return this;
+	}
+
+	@Override
+	public CharClassStateBuilderFacade onAnyOf(CharSequence chars, State<Void> targetState) {
+		requireNonNull(chars, "chars shall not be null");
+
+		for (int i = 0; i < chars.length(); i++) {
+			on(chars.charAt(i), targetState);
+		}
+
+		return this;
+	}
+
+	@Override
+	public CharClassStateBuilderFacade otherwise(State<Void> targetState) {
+		return on(Character.MIN_VALUE, Character.MAX_VALUE, targetState);
+	}
+}
@@ -0,0 +1,77 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Listener notifying several listeners in registration order.
+ * @param <M> Type used to represent the machine model
+ */
+final class CompositeExecutionListener<M> implements ExecutionListener<M> {
+
+	private final ExecutionListener<M>[] listeners;
+
+	@SuppressWarnings("unchecked")
+	private CompositeExecutionListener(final List<ExecutionListener<M>> listeners) {
+		this.listeners = listeners.toArray(new ExecutionListener[listeners.size()]);
+	}
+
+	/**
+	 * Combines the given listeners into the cheapest equivalent listener.
+	 * @param listeners Registered listeners
+	 * @return {@code null} when there are no listeners, the listener itself when there is only one,
+	 *         or a composite otherwise
+	 */
+	static <M> ExecutionListener<M> of(final List<ExecutionListener<M>> listeners) {
+		switch (listeners.size()) {
+			case 0:
+				return null;
+			case 1:
+				return listeners.get(0);
+			default:
+				return new CompositeExecutionListener<>(listeners);
+		}
+	}
+
+	@Override
+	public void onStep(final State<M> state, final Status status, final M model) {
+		for (final ExecutionListener<M> listener : listeners) {
+			listener.onStep(state, status, model);
+		}
+	}
+
+	@Override
+	public void onTransitionTaken(final State<M> source, final Transition<M> transition, final M model) {
+		for (final ExecutionListener<M> listener : listeners) {
+			listener.onTransitionTaken(source, transition, model);
+		}
+	}
+
+	@Override
+	public void onStateEntered(final State<M> state, final M model) {
+		for (final ExecutionListener<M> listener : listeners) {
+			listener.onStateEntered(state, model);
+		}
+	}
+
+	@Override
+	public void onHalt(final State<M> state, final Status status, final M model) {
+		for (final ExecutionListener<M> listener : listeners) {
+			listener.onHalt(state, status, model);
+		}
+	}
+}
@@ -28,14 +28,44 @@ public final class Context<M> {
 
 	private final M model;
 
+	private final int ordinal;
+
+	/**
+	 * Last active leaf of every history state of the machine, or {@code null} when the machine has
+	 * none or the context was not produced by an evaluation.
+	 */
+	private final int[] history;
+
 	Context(final State<M> state, final Status status, final M model) {
+		this(state, ExecutionPlan.UNKNOWN_STATE, status, model);
+	}
+
+	Context(final State<M> state, final int ordinal, final Status status, final M model) {
+		this(state, ordinal, status, model, null);
+	}
+
+	Context(final State<M> state, final int ordinal, final Status status, final M model, final int[] history) {
 		this.state = requireNonNull(state, "state shall not be null");
+		this.ordinal = ordinal;
 		this.status = requireNonNull(status, "status shall not be null");
 		this.model = model;
+		this.history = history;
 	}
 
 	Context<M> derive(M model) {
-		return new Context<>(state, status, model);
+		return new Context<>(state, ordinal, status, model, history);
+	}
+
+	int[] getHistory() {
+		return history;
+	}
+
+	/**
+	 * Gets the ordinal of the state as assigned by the machine that produced this context.
+	 * @return Ordinal of the current state, or a negative value when not known
+	 */
+	int getOrdinal() {
+		return ordinal;
 	}
 
 	/**
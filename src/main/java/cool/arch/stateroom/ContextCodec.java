@@ -0,0 +1,225 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Compact binary codec for contexts of a single {@link Machine}.
+ * <p>
+ * A context is written as the ordinal of its state within the machine as an unsigned LEB128
+ * variable length integer, followed by its status as a single byte and the model as written by the
+ * supplied {@link ModelCodec}. Bulk snapshots written by {@link #encodeAll(Context[], ByteBuffer)}
+ * start with a header holding a magic number, the format version, the
+ * {@link Machine#getFingerprint() fingerprint} of the machine and the number of contexts, so that
+ * a snapshot is rejected when decoded against a different machine definition.
+ * <p>
+ * Machines with history states are not supported, as contexts are written without the last
+ * active leaves of their history states.
+ * <p>
+ * Instances are immutable and safe for concurrent use provided the model codec is.
+ * @param <M> Type used to represent the machine model
+ */
+public final class ContextCodec<M> {
+
+	static final int MAGIC = 0x53524358;
+
+	static final byte VERSION = 1;
+
+	/**
+	 * Size in bytes of the header written by the bulk operations.
+	 */
+	public static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES;
+
+	/**
+	 * Smallest size in bytes of a context: a single byte ordinal, the status and an empty model.
+	 */
+	private static final int MINIMUM_ENTRY_SIZE = Byte.BYTES + Byte.BYTES;
+
+	private static final Status[] STATUSES = Status.values();
+
+	private final Machine<M> machine;
+
+	private final ModelCodec<M> modelCodec;
+
+	public ContextCodec(final Machine<M> machine, final ModelCodec<M> modelCodec) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.modelCodec = requireNonNull(modelCodec, "modelCodec shall not be null");
+
+		if (machine.getPlan().historySlots != null) {
+			throw new IllegalStateException("Contexts of machines with history states cannot be encoded");
+		}
+	}
+
+	/**
+	 * Writes a single context, without header, at the current position of the buffer.
+	 * @param context Context to write
+	 * @param buffer Buffer to write to
+	 */
+	public void encode(final Context<M> context, final ByteBuffer buffer) {
+		encode(machine.getPlan(), context, buffer);
+	}
+
+	/**
+	 * Reads a single context written by {@link #encode(Context, ByteBuffer)}.
+	 * @param buffer Buffer to read from
+	 * @return Decoded context
+	 */
+	public Context<M> decode(final ByteBuffer buffer) {
+		return decode(machine.getPlan(), buffer);
+	}
+
+	/**
+	 * Writes a header followed by all contexts at the current position of the buffer.
+	 * @param contexts Contexts to write
+	 * @param buffer Buffer to write to
+	 */
+	public void encodeAll(final Context<M>[] contexts, final ByteBuffer buffer) {
+		final ExecutionPlan<M> plan = machine.getPlan();
+
+		writeHeader(plan, contexts.length, buffer);
+
+		for (final Context<M> context : contexts) {
+			encode(plan, context, buffer);
+		}
+	}
+
+	/**
+	 * Writes a header followed by all contexts at the current position of the buffer.
+	 * @param contexts Contexts to write
+	 * @param buffer Buffer to write to
+	 */
+	public void encodeAll(final Collection<Context<M>> contexts, final ByteBuffer buffer) {
+		final ExecutionPlan<M> plan = machine.getPlan();
+
+		writeHeader(plan, contexts.size(), buffer);
+
+		for (final Context<M> context : contexts) {
+			encode(plan, context, buffer);
+		}
+	}
+
+	/**
+	 * Reads a header and all contexts following it, as written by one of the bulk encode operations.
+	 * @param buffer Buffer to read from
+	 * @return Decoded contexts in encoding order
+	 * @throws IllegalArgumentException When the buffer does not hold a snapshot of this format or
+	 *         the snapshot was written for a machine with a different fingerprint
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Context<M>> decodeAll(final ByteBuffer buffer) {
+		final ExecutionPlan<M> plan = machine.getPlan();
+		final Context<M>[] contexts = new Context[readHeader(plan, buffer)];
+
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = decode(plan, buffer);
+		}
+
+		return Arrays.asList(contexts);
+	}
+
+	private void encode(final ExecutionPlan<M> plan, final Context<M> context, final ByteBuffer buffer) {
+		final int ordinal = plan.ordinalOf(context);
+
+		if (ordinal == ExecutionPlan.UNKNOWN_STATE) {
+			throw new IllegalArgumentException("State is not part of the machine: " + context.getState()
+				.getName());
+		}
+
+		writeVarInt(ordinal, buffer);
+		buffer.put((byte) context.getStatus()
+			.ordinal());
+		modelCodec.encode(context.getModel(), buffer);
+	}
+
+	private Context<M> decode(final ExecutionPlan<M> plan, final ByteBuffer buffer) {
+		final int ordinal = readVarInt(buffer);
+		final int status = buffer.get();
+
+		if (ordinal < 0 || ordinal >= plan.size() || status < 0 || status >= STATUSES.length) {
+			throw new IllegalArgumentException("Invalid context record at position " + buffer.position());
+		}
+
+		return new Context<>(plan.states[ordinal], ordinal, STATUSES[status], modelCodec.decode(buffer));
+	}
+
+	private static void writeHeader(final ExecutionPlan<?> plan, final int count, final ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.putLong(plan.fingerprint);
+		buffer.putInt(count);
+	}
+
+	private static int readHeader(final ExecutionPlan<?> plan, final ByteBuffer buffer) {
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Buffer does not hold a context snapshot");
+		}
+
+		final byte version = buffer.get();
+
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported context snapshot version: " + version);
+		}
+
+		final long fingerprint = buffer.getLong();
+
+		if (fingerprint != plan.fingerprint) {
+			throw new IllegalArgumentException(String.format(
+				"Context snapshot fingerprint %016x does not match machine fingerprint %016x",
+				Long.valueOf(fingerprint), Long.valueOf(plan.fingerprint)));
+		}
+
+		final int count = buffer.getInt();
+
+		if (count < 0 || count > buffer.remaining() / MINIMUM_ENTRY_SIZE) {
+			throw new IllegalArgumentException("Invalid context count: " + count);
+		}
+
+		return count;
+	}
+
+	static void writeVarInt(final int value, final ByteBuffer buffer) {
+		int remaining = value;
+
+		while ((remaining & ~0x7F) != 0) {
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+
+		buffer.put((byte) remaining);
+	}
+
+	static int readVarInt(final ByteBuffer buffer) {
+		int value = 0;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			final byte b = buffer.get();
+
+			value |= (b & 0x7F) << shift;
+
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Malformed variable length integer");
+	}
+}
@@ -0,0 +1,337 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.UnaryOperator;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Actor style handle around a single machine context. Any number of producer threads may
+ * {@link #submit(UnaryOperator)} model mutations without locking; exactly one consumer at a time
+ * drains them in submission order, applying each mutation followed by a single evaluation cycle.
+ * Mutations are drained in batches of at most {@link #BATCH_SIZE} that are evaluated on one
+ * {@link ExecutionCursor}; the context is published once at the end of every batch, before the
+ * futures of the batch are completed, and further messages are left to a new run of the consumer.
+ * <p>
+ * The mailbox is an intrusive, unbounded, lock free multiple producer single consumer queue:
+ * producers append with a single atomic exchange on the tail, and the consumer walks the chain
+ * from its private head without any atomic operation.
+ * @param <M> Type used to represent the machine model
+ */
+public final class ContextMailbox<M> implements Runnable {
+
+	/**
+	 * Maximum number of messages drained by a single run of the consumer.
+	 */
+	static final int BATCH_SIZE = 64;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<ContextMailbox, Message> TAIL =
+		AtomicReferenceFieldUpdater.newUpdater(ContextMailbox.class, Message.class, "tail");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ContextMailbox> SCHEDULED =
+		AtomicIntegerFieldUpdater.newUpdater(ContextMailbox.class, "scheduled");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Message, Message> NEXT =
+		AtomicReferenceFieldUpdater.newUpdater(Message.class, Message.class, "next");
+
+	private final Machine<M> machine;
+
+	private final Executor executor;
+
+	/**
+	 * Last consumed message, owned by the consumer. Its successor is the next message to apply.
+	 */
+	private Message<M> head;
+
+	private volatile Message<M> tail;
+
+	private volatile int scheduled;
+
+	private volatile Context<M> context;
+
+	/**
+	 * Wheel scheduling the timed transitions of the machine, or {@code null} when there are none.
+	 */
+	private final TimingWheel<ContextMailbox<M>> timers;
+
+	/**
+	 * Pending timer of the current state, only replaced by the consumer.
+	 */
+	private volatile TimingWheel.Timer<ContextMailbox<M>> timer;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a mailbox draining on the given executor.
+	 * @param machine Machine evaluating the context
+	 * @param context Initial context
+	 * @param executor Executor running the consumer whenever messages are pending
+	 */
+	public ContextMailbox(final Machine<M> machine, final Context<M> context, final Executor executor) {
+		this(machine, context, executor, null);
+	}
+
+	/**
+	 * Creates a mailbox draining on the given executor and scheduling the timed transitions of the
+	 * machine on the given wheel.
+	 * @param machine Machine evaluating the context
+	 * @param context Initial context
+	 * @param executor Executor running the consumer whenever messages are pending
+	 * @param timers Wheel scheduling timed transitions, or {@code null} to ignore them
+	 */
+	ContextMailbox(final Machine<M> machine, final Context<M> context, final Executor executor,
+		final TimingWheel<ContextMailbox<M>> timers) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.context = requireNonNull(context, "context shall not be null");
+		this.executor = requireNonNull(executor, "executor shall not be null");
+		this.timers = timers;
+
+		final Message<M> stub = new Message<>(null, null);
+
+		head = stub;
+		tail = stub;
+
+		if (timers != null) {
+			schedule(machine.getPlan()
+				.ordinalOf(context), context.getStatus());
+		}
+	}
+
+	/**
+	 * Submits a model mutation. The mutation is applied and followed by a single evaluation cycle
+	 * after all previously submitted mutations.
+	 * @param mutation Mutation to apply to the model before evaluating
+	 * @return Future completed with the context resulting from the evaluation cycle
+	 */
+	public CompletableFuture<Context<M>> submit(final UnaryOperator<M> mutation) {
+		final Message<M> message = new Message<>(requireNonNull(mutation, "mutation shall not be null"), null);
+
+		offer(message);
+		signal();
+
+		return message.future;
+	}
+
+	/**
+	 * Queues the expiry of a timer, which fires the timed transition of the current state unless
+	 * the timer has been replaced in the meantime.
+	 * @param expired Expired timer
+	 */
+	void expire(final TimingWheel.Timer<ContextMailbox<M>> expired) {
+		offer(new Message<>(null, expired));
+		signal();
+	}
+
+	/**
+	 * Cancels the pending timer, if any, and stops scheduling new ones.
+	 */
+	void close() {
+		closed = true;
+
+		final TimingWheel.Timer<ContextMailbox<M>> pending = timer;
+
+		if (pending != null) {
+			timers.cancel(pending);
+		}
+	}
+
+	private void signal() {
+		if (SCHEDULED.compareAndSet(this, 0, 1)) {
+			executor.execute(this);
+		}
+	}
+
+	/**
+	 * Gets the context published after the most recently drained batch.
+	 * @return Current context
+	 */
+	public Context<M> getContext() {
+		return context;
+	}
+
+	/**
+	 * Drains up to {@link #BATCH_SIZE} pending messages. Invoked by the executor; only ever runs on one thread at a time.
+	 */
+	@Override
+	public void run() {
+		final ExecutionCursor<M> cursor = machine.cursor(context);
+		// History is resumed in place, so it is saved before every message to roll back failures
+		final int[] history = cursor.history == null ? null : new int[cursor.history.length];
+		Context<M> published = context;
+		Message<M> first = null;
+		Message<M> last = null;
+		Message<M> message;
+		boolean entered = false;
+		int drained = 0;
+
+		try {
+			while (drained++ < BATCH_SIZE && (message = poll()) != null) {
+				final State<M> state = cursor.state;
+				final int ordinal = cursor.ordinal;
+				final Status status = cursor.status;
+				final M model = cursor.model;
+
+				if (history != null) {
+					System.arraycopy(cursor.history, 0, history, 0, history.length);
+				}
+
+				first = first == null ? message : first;
+				last = message;
+
+				try {
+					if (message.timer == null) {
+						cursor.model = message.mutation.apply(model);
+						machine.step(cursor);
+					} else if (message.timer == timer && status == Status.READY) {
+						machine.fire(cursor, machine.getPlan().timeoutEvents[ordinal]);
+						// A timed transition re-enters its state even when it targets it
+						entered = true;
+					} else {
+						continue;
+					}
+
+					entered |= cursor.ordinal != ordinal;
+					published = cursor.snapshot();
+					message.result = published;
+				} catch (final RuntimeException e) {
+					cursor.state = state;
+					cursor.ordinal = ordinal;
+					cursor.status = status;
+					cursor.model = model;
+
+					if (history != null) {
+						System.arraycopy(history, 0, cursor.history, 0, history.length);
+					}
+
+					message.failure = e;
+				}
+			}
+		} finally {
+			if (entered && timers != null) {
+				schedule(cursor.ordinal, cursor.status);
+			}
+
+			context = published;
+			scheduled = 0;
+			complete(first, last);
+		}
+
+		// A producer may have swung the tail without being able to schedule the consumer
+		if (head != tail && SCHEDULED.compareAndSet(this, 0, 1)) {
+			executor.execute(this);
+		}
+	}
+
+	/**
+	 * Replaces the pending timer by one for the timed transition of the given state.
+	 * @param ordinal Ordinal of the current state
+	 * @param status Current status
+	 */
+	private void schedule(final int ordinal, final Status status) {
+		final TimingWheel.Timer<ContextMailbox<M>> pending = timer;
+		final long[] timeouts = machine.getPlan().timeouts;
+
+		if (pending != null) {
+			timers.cancel(pending);
+			timer = null;
+		}
+
+		if (!closed && timeouts != null && ordinal >= 0 && timeouts[ordinal] >= 0 && status == Status.READY) {
+			timer = timers.schedule(this, timeouts[ordinal]);
+
+			if (closed) {
+				timers.cancel(timer);
+			}
+		}
+	}
+
+	private static <M> void complete(final Message<M> first, final Message<M> last) {
+		for (Message<M> message = first; message != null; message = message == last ? null : message.next) {
+			message.complete();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void offer(final Message<M> message) {
+		final Message<M> previous = TAIL.getAndSet(this, message);
+
+		NEXT.lazySet(previous, message);
+	}
+
+	private Message<M> poll() {
+		Message<M> next = head.next;
+
+		if (next == null) {
+			if (head == tail) {
+				return null;
+			}
+
+			// A producer has swung the tail but not linked its message yet
+			while ((next = head.next) == null) {
+				Thread.yield();
+			}
+		}
+
+		head = next;
+
+		return next;
+	}
+
+	private static final class Message<M> {
+
+		final CompletableFuture<Context<M>> future;
+
+		/**
+		 * Expired timer this message fires, or {@code null} for a mutation.
+		 */
+		final TimingWheel.Timer<?> timer;
+
+		UnaryOperator<M> mutation;
+
+		Context<M> result;
+
+		RuntimeException failure;
+
+		volatile Message<M> next;
+
+		Message(final UnaryOperator<M> mutation, final TimingWheel.Timer<?> timer) {
+			this.mutation = mutation;
+			this.timer = timer;
+			this.future = mutation == null ? null : new CompletableFuture<>();
+		}
+
+		void complete() {
+			mutation = null;
+
+			if (future != null && failure == null) {
+				future.complete(result);
+			} else if (future != null) {
+				future.completeExceptionally(failure);
+			}
+
+			result = null;
+			failure = null;
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Dense, array backed population of machine instances of a single {@link Machine}, indexed by an
+ * {@code int} instance id.
+ * <p>
+ * Instead of one {@link Context} per instance the store keeps the state ordinal and the status of
+ * every instance packed into a single {@code int} of a primitive array, next to an array holding
+ * the models. An instance only turns into a {@link Context} when it is read through
+ * {@link #get(int)}, and {@link #stepAll()} advances the whole population in place through a
+ * single reused {@link ExecutionCursor}, so stepping creates no per instance objects beyond what
+ * the transforms of the machine create.
+ * <p>
+ * Machines with history states are not supported, as the last active leaves of every instance
+ * would have to be stored as well.
+ * <p>
+ * Instances are not thread safe. Once the population stops growing, disjoint ranges of ids may be
+ * stepped concurrently through {@link #stepAll(int, int)}.
+ * @param <M> Type used to represent the machine model
+ */
+public final class ContextStore<M> {
+
+	private static final int STATUS_BITS = 2;
+
+	private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+	private static final Status[] STATUSES = Status.values();
+
+	private final Machine<M> machine;
+
+	private final ExecutionPlan<M> plan;
+
+	private int[] entries;
+
+	private Object[] models;
+
+	private int size;
+
+	/**
+	 * @param machine Machine evaluating the instances
+	 * @param initialCapacity Number of instances to reserve room for
+	 */
+	public ContextStore(final Machine<M> machine, final int initialCapacity) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("initialCapacity shall not be negative: " + initialCapacity);
+		}
+
+		plan = machine.getPlan();
+
+		if (plan.historySlots != null) {
+			throw new IllegalStateException("Machines with history states cannot be stored");
+		}
+
+		entries = new int[initialCapacity];
+		models = new Object[initialCapacity];
+	}
+
+	/**
+	 * Adds an instance at the start state of the machine.
+	 * @return Id of the new instance
+	 */
+	public int add() {
+		final int id = reserve();
+
+		entries[id] = pack(plan.startOrdinal, Status.READY);
+		models[id] = plan.modelSupplier.get();
+
+		return id;
+	}
+
+	/**
+	 * Adds an instance continuing from the given context.
+	 * @param context Context of the new instance
+	 * @return Id of the new instance
+	 */
+	public int add(final Context<M> context) {
+		final int entry = pack(context);
+		final int id = reserve();
+
+		entries[id] = entry;
+		models[id] = context.getModel();
+
+		return id;
+	}
+
+	/**
+	 * Replaces an instance with the given context.
+	 * @param id Id of the instance
+	 * @param context New context of the instance
+	 */
+	public void set(final int id, final Context<M> context) {
+		checkId(id);
+		entries[id] = pack(context);
+		models[id] = context.getModel();
+	}
+
+	/**
+	 * Materializes an instance as a context.
+	 * @param id Id of the instance
+	 * @return Current context of the instance
+	 */
+	public Context<M> get(final int id) {
+		checkId(id);
+
+		final int ordinal = entries[id] >>> STATUS_BITS;
+
+		return new Context<>(plan.states[ordinal], ordinal, STATUSES[entries[id] & STATUS_MASK], model(id));
+	}
+
+	public State<M> getState(final int id) {
+		checkId(id);
+
+		return plan.states[entries[id] >>> STATUS_BITS];
+	}
+
+	public Status getStatus(final int id) {
+		checkId(id);
+
+		return STATUSES[entries[id] & STATUS_MASK];
+	}
+
+	public M getModel(final int id) {
+		checkId(id);
+
+		return model(id);
+	}
+
+	public void setModel(final int id, final M model) {
+		checkId(id);
+		models[id] = model;
+	}
+
+	/**
+	 * @return Number of instances in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param status Status to count
+	 * @return Number of instances having the status
+	 */
+	public int count(final Status status) {
+		final int ordinal = requireNonNull(status, "status shall not be null").ordinal();
+		int count = 0;
+
+		for (int id = 0; id < size; id++) {
+			if ((entries[id] & STATUS_MASK) == ordinal) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Performs a single evaluation cycle of an instance.
+	 * @param id Id of the instance
+	 * @return {@code true} when the instance is still ready for evaluation afterwards
+	 */
+	public boolean step(final int id) {
+		checkId(id);
+
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(machine);
+
+		if (!load(cursor, id)) {
+			return false;
+		}
+
+		machine.step(cursor);
+
+		return store(cursor, id);
+	}
+
+	/**
+	 * Performs a single evaluation cycle of an instance, selecting among the transitions declared
+	 * for the event.
+	 * @param id Id of the instance
+	 * @param event Event to fire
+	 * @return {@code true} when the instance is still ready for evaluation afterwards
+	 */
+	public boolean fire(final int id, final Object event) {
+		checkId(id);
+		requireNonNull(event, "event shall not be null");
+
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(machine);
+
+		if (!load(cursor, id)) {
+			return false;
+		}
+
+		machine.fire(cursor, event);
+
+		return store(cursor, id);
+	}
+
+	/**
+	 * Performs a single evaluation cycle of every instance that is ready for evaluation.
+	 * @return Number of instances still ready for evaluation afterwards
+	 */
+	public int stepAll() {
+		return stepAll(0, size);
+	}
+
+	/**
+	 * Performs a single evaluation cycle of every instance in a range of ids that is ready for
+	 * evaluation.
+	 * @param from First id of the range (inclusive)
+	 * @param to Last id of the range (exclusive)
+	 * @return Number of instances of the range still ready for evaluation afterwards
+	 */
+	public int stepAll(final int from, final int to) {
+		if (from < 0 || to > size || from > to) {
+			throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") of " + size + " instances");
+		}
+
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(machine);
+		int ready = 0;
+
+		for (int id = from; id < to; id++) {
+			if (load(cursor, id)) {
+				machine.step(cursor);
+
+				if (store(cursor, id)) {
+					ready++;
+				}
+			}
+		}
+
+		return ready;
+	}
+
+	/**
+	 * Evaluates every instance until it halts.
+	 */
+	public void runAll() {
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(machine);
+
+		for (int id = 0; id < size; id++) {
+			if (load(cursor, id)) {
+				machine.run(cursor);
+				store(cursor, id);
+			}
+		}
+	}
+
+	/**
+	 * Positions the cursor onto an instance.
+	 * @return {@code true} when the instance is ready for evaluation
+	 */
+	private boolean load(final ExecutionCursor<M> cursor, final int id) {
+		final int entry = entries[id];
+
+		if ((entry & STATUS_MASK) != Status.READY.ordinal()) {
+			return false;
+		}
+
+		cursor.ordinal = entry >>> STATUS_BITS;
+		cursor.state = plan.states[cursor.ordinal];
+		cursor.status = Status.READY;
+		cursor.model = model(id);
+
+		return true;
+	}
+
+	/**
+	 * Writes the cursor back into an instance.
+	 * @return {@code true} when the instance is still ready for evaluation
+	 */
+	private boolean store(final ExecutionCursor<M> cursor, final int id) {
+		entries[id] = pack(cursor.ordinal, cursor.status);
+		models[id] = cursor.model;
+
+		return cursor.status == Status.READY;
+	}
+
+	private int pack(final Context<M> context) {
+		final int ordinal = plan.ordinalOf(requireNonNull(context, "context shall not be null"));
+
+		if (ordinal == ExecutionPlan.UNKNOWN_STATE) {
+			throw new IllegalArgumentException("State is not part of the machine: " + context.getState()
+				.getName());
+		}
+
+		return pack(ordinal, context.getStatus());
+	}
+
+	private static int pack(final int ordinal, final Status status) {
+		return ordinal << STATUS_BITS | status.ordinal();
+	}
+
+	@SuppressWarnings("unchecked")
+	private M model(final int id) {
+		return (M) models[id];
+	}
+
+	private int reserve() {
+		if (size == entries.length) {
+			final int capacity = Math.max(16, entries.length + (entries.length >> 1));
+
+			entries = Arrays.copyOf(entries, capacity);
+			models = Arrays.copyOf(models, capacity);
+		}
+
+		return size++;
+	}
+
+	private void checkId(final int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Invalid instance id " + id + " of " + size + " instances");
+		}
+	}
+}
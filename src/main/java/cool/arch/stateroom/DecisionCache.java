@@ -0,0 +1,200 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache of the transitions selected by the guards of states declared through
+ * {@link StateBuilderFacade#withPureGuards(Function)}, keyed by state ordinal and by the key
+ * extracted from the model.
+ * <p>
+ * Entries live in a set associative table of {@value #WAYS} way sets. Lookups read the ways of a
+ * single set without locking, and insertions claim a slot with a compare and set. A full set evicts
+ * with the CLOCK algorithm: a hit marks an entry as referenced, and eviction spares referenced
+ * entries once, clearing their mark, which approximates evicting the least recently used entry of
+ * the set. Races between concurrent insertions may drop an insertion or briefly hold a decision
+ * twice, both of which only cost a later miss.
+ * @param <M> Type used to represent the machine model
+ */
+final class DecisionCache<M> {
+
+	/**
+	 * Result of {@link #find(int, Object)} when the decision is not cached.
+	 */
+	static final int MISS = Integer.MIN_VALUE;
+
+	static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+	private static final int WAYS = 8;
+
+	/**
+	 * Stands for {@code null} keys, so that {@code null} can tell uncached states apart.
+	 */
+	private static final Object NULL_KEY = new Object();
+
+	private final Function<? super M, ?>[] keyExtractors;
+
+	private final AtomicReferenceArray<Entry> entries;
+
+	private final int setMask;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder size = new LongAdder();
+
+	/**
+	 * Position of the CLOCK hand within a set. Updated without synchronization, as any position will
+	 * do.
+	 */
+	private int hand;
+
+	DecisionCache(final Function<? super M, ?>[] keyExtractors, final int maximumSize) {
+		final int minimumSets = Math.max(1, (maximumSize + WAYS - 1) / WAYS);
+		final int sets = minimumSets == 1 ? 1 : Integer.highestOneBit(minimumSets - 1) << 1;
+
+		this.keyExtractors = keyExtractors;
+		entries = new AtomicReferenceArray<>(sets * WAYS);
+		setMask = sets - 1;
+	}
+
+	/**
+	 * Extracts the key of a model in a state.
+	 * @param ordinal Ordinal of the state
+	 * @param model Model after the pre-evaluation transform
+	 * @return Key, or {@code null} when the decisions of the state are not cached
+	 */
+	Object key(final int ordinal, final M model) {
+		if (ordinal < 0) {
+			return null;
+		}
+
+		final Function<? super M, ?> keyExtractor = keyExtractors[ordinal];
+
+		if (keyExtractor == null) {
+			return null;
+		}
+
+		final Object key = keyExtractor.apply(model);
+
+		return key == null ? NULL_KEY : key;
+	}
+
+	/**
+	 * Looks a decision up.
+	 * @param ordinal Ordinal of the state
+	 * @param key Key returned by {@link #key(int, Object)}
+	 * @return Index of the selected transition, a negative value when none applies, or {@link #MISS}
+	 */
+	int find(final int ordinal, final Object key) {
+		final int hash = hash(ordinal, key);
+		final int base = (hash & setMask) * WAYS;
+
+		for (int way = 0; way < WAYS; way++) {
+			final Entry entry = entries.get(base + way);
+
+			if (entry != null && entry.matches(hash, ordinal, key)) {
+				if (!entry.referenced) {
+					entry.referenced = true;
+				}
+
+				hits.increment();
+
+				return entry.index;
+			}
+		}
+
+		misses.increment();
+
+		return MISS;
+	}
+
+	/**
+	 * Caches a decision.
+	 * @param ordinal Ordinal of the state
+	 * @param key Key returned by {@link #key(int, Object)}
+	 * @param index Index of the selected transition, or a negative value when none applies
+	 */
+	void put(final int ordinal, final Object key, final int index) {
+		final int hash = hash(ordinal, key);
+		final int base = (hash & setMask) * WAYS;
+		final Entry added = new Entry(hash, ordinal, key, index);
+
+		for (int way = 0; way < WAYS; way++) {
+			final Entry entry = entries.get(base + way);
+
+			if (entry == null) {
+				if (entries.compareAndSet(base + way, null, added)) {
+					size.increment();
+					return;
+				}
+			} else if (entry.matches(hash, ordinal, key)) {
+				return;
+			}
+		}
+
+		// Every entry is spared at most once, so two rounds always find a victim
+		for (int attempt = 0; attempt < 2 * WAYS; attempt++) {
+			final int slot = base + (hand++ & (WAYS - 1));
+			final Entry entry = entries.get(slot);
+
+			if (entry.referenced) {
+				entry.referenced = false;
+			} else if (entries.compareAndSet(slot, entry, added)) {
+				evictions.increment();
+				return;
+			}
+		}
+	}
+
+	DecisionCacheStats stats() {
+		return new DecisionCacheStats(hits.sum(), misses.sum(), evictions.sum(), size.sum(), entries.length());
+	}
+
+	private static int hash(final int ordinal, final Object key) {
+		final int hash = key.hashCode() * 31 + ordinal;
+
+		return hash ^ (hash >>> 16);
+	}
+
+	private static final class Entry {
+
+		final int hash;
+
+		final int ordinal;
+
+		final Object key;
+
+		final int index;
+
+		boolean referenced;
+
+		Entry(final int hash, final int ordinal, final Object key, final int index) {
+			this.hash = hash;
+			this.ordinal = ordinal;
+			this.key = key;
+			this.index = index;
+		}
+
+		boolean matches(final int hash, final int ordinal, final Object key) {
+			return this.hash == hash && this.ordinal == ordinal && this.key.equals(key);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+/**
+ * Statistics of the decision cache of a machine whose states were declared through
+ * {@link StateBuilderFacade#withPureGuards(java.util.function.Function)}. Counters are read one at a
+ * time while evaluations may be running, so they are not a consistent snapshot.
+ */
+public final class DecisionCacheStats {
+
+	private final long hits;
+
+	private final long misses;
+
+	private final long evictions;
+
+	private final long size;
+
+	private final int capacity;
+
+	DecisionCacheStats(final long hits, final long misses, final long evictions, final long size,
+		final int capacity) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+		this.capacity = capacity;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return Number of cached decisions
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return Maximum number of cached decisions, the requested maximum rounded up to a power of two
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Share of lookups answered by the cache, or {@code 0} before the first lookup
+	 */
+	public double getHitRate() {
+		final long lookups = hits + misses;
+
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{'hits':");
+		sb.append(hits);
+		sb.append(", 'misses':");
+		sb.append(misses);
+		sb.append(", 'evictions':");
+		sb.append(evictions);
+		sb.append(", 'size':");
+		sb.append(size);
+		sb.append(", 'capacity':");
+		sb.append(capacity);
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,112 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounds on an evaluation until halted, see
+ * {@link Machine#evaluateUntilHalted(Context, EvaluationLimits)}. An evaluation stops at the first bound reached: a maximum number of evaluation cycles, a
+ * timeout, or a livelock.
+ * <p>
+ * The clock is only read every {@value #CLOCK_INTERVAL} cycles, so a timeout may be overrun by
+ * as many cycles. Livelocks are detected by fingerprinting the model after every cycle and looking
+ * for a cycle of (state, fingerprint) pairs with Brent's algorithm, which holds a single pair and
+ * finds a cycle within a small multiple of its length. Since every guard and transform sees only
+ * the state and the model, returning to a pair means the machine loops forever, provided the
+ * fingerprint tells apart the models the machine does.
+ * <p>
+ * Instances are immutable.
+ * @param <M> Type used to represent the machine model
+ */
+public final class EvaluationLimits<M> {
+
+	public static final int CLOCK_INTERVAL = 256;
+
+	private static final EvaluationLimits<Object> NONE = new EvaluationLimits<>(Long.MAX_VALUE, -1, null);
+
+	final long maxSteps;
+
+	/**
+	 * Timeout in nanoseconds, or a negative value when there is none.
+	 */
+	final long timeout;
+
+	/**
+	 * Fingerprint of the model, or {@code null} when livelocks are not detected.
+	 */
+	final ToLongFunction<? super M> fingerprint;
+
+	private EvaluationLimits(final long maxSteps, final long timeout, final ToLongFunction<? super M> fingerprint) {
+		this.maxSteps = maxSteps;
+		this.timeout = timeout;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Gets limits that bound nothing, to be narrowed by the {@code with} methods.
+	 * @param <M> Type used to represent the machine model
+	 * @return Unbounded limits
+	 */
+	@SuppressWarnings("unchecked")
+	public static <M> EvaluationLimits<M> none() {
+		return (EvaluationLimits<M>) NONE;
+	}
+
+	/**
+	 * @param maxSteps Maximum number of evaluation cycles
+	 * @return Copy of these limits with the given maximum number of evaluation cycles
+	 */
+	public EvaluationLimits<M> withMaxSteps(final long maxSteps) {
+		if (maxSteps < 0) {
+			throw new IllegalArgumentException("maxSteps shall not be negative");
+		}
+
+		return new EvaluationLimits<>(maxSteps, timeout, fingerprint);
+	}
+
+	/**
+	 * @param timeout Time after which the evaluation stops, measured from its start
+	 * @return Copy of these limits with the given timeout
+	 */
+	public EvaluationLimits<M> withTimeout(final Duration timeout) {
+		requireNonNull(timeout, "timeout shall not be null");
+
+		if (timeout.isNegative()) {
+			throw new IllegalArgumentException("timeout shall not be negative");
+		}
+
+		return new EvaluationLimits<>(maxSteps, timeout.toNanos(), fingerprint);
+	}
+
+	/**
+	 * Detects livelocks by the repetition of a state, a model fingerprint and, on machines with
+	 * history states, the last active leaf of every history state.
+	 * @param fingerprint Function reducing a model to a value that differs between models the
+	 *        machine evaluates differently
+	 * @return Copy of these limits detecting livelocks with the given fingerprint
+	 */
+	public EvaluationLimits<M> withLivelockDetection(final ToLongFunction<? super M> fingerprint) {
+		return new EvaluationLimits<>(maxSteps, timeout, requireNonNull(fingerprint, "fingerprint shall not be null"));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{'maxSteps':%d, 'timeout':%d, 'livelockDetection':%s}", Long.valueOf(maxSteps),
+			Long.valueOf(timeout), Boolean.toString(fingerprint != null));
+	}
+}
@@ -0,0 +1,59 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import cool.arch.stateroom.enums.StopReason;
+
+/**
+ * Outcome of a bounded evaluation: the context it stopped at, why it stopped and how many
+ * evaluation cycles it performed. A context whose evaluation was stopped by a bound is still
+ * {@link cool.arch.stateroom.enums.Status#READY READY} and may be evaluated further.
+ * @param <M> Type used to represent the machine model
+ */
+public final class EvaluationResult<M> {
+
+	private final Context<M> context;
+
+	private final StopReason reason;
+
+	private final long steps;
+
+	EvaluationResult(final Context<M> context, final StopReason reason, final long steps) {
+		this.context = requireNonNull(context, "context shall not be null");
+		this.reason = requireNonNull(reason, "reason shall not be null");
+		this.steps = steps;
+	}
+
+	public Context<M> getContext() {
+		return context;
+	}
+
+	public StopReason getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return Number of evaluation cycles performed
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{'context':%s, 'reason':%s, 'steps':%d}", context, reason, Long.valueOf(steps));
+	}
+}
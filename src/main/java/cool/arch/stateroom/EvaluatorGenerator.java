@@ -0,0 +1,670 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Emits a {@link GeneratedEvaluator} subclass specialized for a single execution plan and defines
+ * it in a class loader of its own, so that it can be unloaded together with its machine.
+ * <p>
+ * The generated {@code select} method switches over the state ordinal, in groups of
+ * {@value #GROUP_SIZE} states to keep every method well below the size limit for JIT compilation,
+ * into one method per state testing each of its predicates from a call site of its own. The
+ * {@code transform} and {@code enter} methods switch over transition and state ordinals the same
+ * way. The class file uses version 49 so that it needs no stack map frames.
+ * <p>
+ * Plans that record metrics, that read facts or shared guards, or that are too large for the
+ * layout above are not specialized and keep running on the interpreter.
+ */
+final class EvaluatorGenerator {
+
+	private static final int GROUP_BITS = 8;
+
+	private static final int GROUP_SIZE = 1 << GROUP_BITS;
+
+	private static final int MAX_GROUPS = 512;
+
+	private static final int MAX_GUARDS_PER_STATE = 256;
+
+	/**
+	 * Largest number of constant pool entries and of methods a class file can hold.
+	 */
+	private static final int MAX_CLASS_FILE_ITEMS = 0xFFFF;
+
+	/**
+	 * Upper bound of the constant pool entries that do not depend on the size of the machine.
+	 */
+	private static final int FIXED_POOL_ENTRIES = 64;
+
+	private static final int CLASS_VERSION = 49;
+
+	private static final String BASE = "cool/arch/stateroom/GeneratedEvaluator";
+
+	private static final String PREDICATE = "java/util/function/BiPredicate";
+
+	private static final String FUNCTION = "java/util/function/BiFunction";
+
+	private static final String OBJECT = "Ljava/lang/Object;";
+
+	private static final String STATE = "Lcool/arch/stateroom/State;";
+
+	private static final String SELECT = "(I" + STATE + OBJECT + ")I";
+
+	private static final String SELECT_STATE = "(" + STATE + OBJECT + ")I";
+
+	private static final String APPLY = "(I" + STATE + OBJECT + ")" + OBJECT;
+
+	private static final String CONSTRUCTOR = "([L" + PREDICATE + ";[L" + FUNCTION + ";[L" + FUNCTION + ";)V";
+
+	private static final AtomicLong COUNTER = new AtomicLong();
+
+	private static final int ACC_PUBLIC = 0x0001;
+
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private static final int ACC_FINAL = 0x0010;
+
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ICONST_0 = 0x03;
+
+	private static final int BIPUSH = 0x10;
+
+	private static final int SIPUSH = 0x11;
+
+	private static final int LDC_W = 0x13;
+
+	private static final int ILOAD_1 = 0x1B;
+
+	private static final int ALOAD_0 = 0x2A;
+
+	private static final int ALOAD_1 = 0x2B;
+
+	private static final int ALOAD_2 = 0x2C;
+
+	private static final int ALOAD_3 = 0x2D;
+
+	private static final int AALOAD = 0x32;
+
+	private static final int IAND = 0x7E;
+
+	private static final int IUSHR = 0x7C;
+
+	private static final int IFEQ = 0x99;
+
+	private static final int TABLESWITCH = 0xAA;
+
+	private static final int IRETURN = 0xAC;
+
+	private static final int ARETURN = 0xB0;
+
+	private static final int RETURN = 0xB1;
+
+	private static final int GETFIELD = 0xB4;
+
+	private static final int INVOKESPECIAL = 0xB7;
+
+	private static final int INVOKEINTERFACE = 0xB9;
+
+	private final ExecutionPlan<?> plan;
+
+	private final String className;
+
+	private final ConstantPool pool = new ConstantPool();
+
+	private final List<byte[]> methods = new ArrayList<>();
+
+	private EvaluatorGenerator(final ExecutionPlan<?> plan) {
+		this.plan = plan;
+		className = BASE + "$$" + COUNTER.incrementAndGet();
+	}
+
+	/**
+	 * Generates and instantiates an evaluator for the plan.
+	 * @param plan Plan to specialize
+	 * @return Generated evaluator, or {@code null} when the plan shall keep running on the
+	 *         interpreter
+	 */
+	@SuppressWarnings("unchecked")
+	static <M> GeneratedEvaluator<M> generate(final ExecutionPlan<M> plan) {
+		if (!supports(plan)) {
+			return null;
+		}
+
+		try {
+			final EvaluatorGenerator generator = new EvaluatorGenerator(plan);
+			final byte[] bytes = generator.generate();
+			final Class<?> type = new Loader(GeneratedEvaluator.class.getClassLoader())
+				.define(generator.className.replace('/', '.'), bytes);
+
+			return (GeneratedEvaluator<M>) type.getConstructor(BiPredicate[].class, BiFunction[].class, BiFunction[].class)
+				.newInstance(plan.predicates, plan.transforms, plan.stateTransforms);
+		} catch (final ReflectiveOperationException | LinkageError | SecurityException | IllegalStateException e) {
+			return null;
+		}
+	}
+
+	private static boolean supports(final ExecutionPlan<?> plan) {
+		if (plan.metrics != null || plan.states.length > MAX_GROUPS * GROUP_SIZE
+			|| plan.targets.length > MAX_GROUPS * GROUP_SIZE) {
+			return false;
+		}
+
+		int guardedStates = 0;
+
+		for (int ordinal = 0; ordinal < plan.states.length; ordinal++) {
+			final int guards = plan.firstEvent[ordinal] - plan.firstTransition[ordinal];
+
+			if (guards > MAX_GUARDS_PER_STATE) {
+				return false;
+			} else if (guards > 0) {
+				guardedStates++;
+			}
+		}
+
+		// A class file holding more methods or constants cannot be defined, however long emitting it takes
+		final int stateGroups = (plan.states.length + GROUP_SIZE - 1) >>> GROUP_BITS;
+		final int transitionGroups = (plan.targets.length + GROUP_SIZE - 1) >>> GROUP_BITS;
+		final int methods = 4 + 2 * stateGroups + transitionGroups + guardedStates;
+		// Every private method adds its name, a name and type and a method reference, and every key
+		// beyond the range of sipush an integer constant
+		final int constants = FIXED_POOL_ENTRIES + 3 * (methods - 4)
+			+ Math.max(0, Math.max(plan.states.length, plan.targets.length) - Short.MAX_VALUE - 1);
+
+		if (methods > MAX_CLASS_FILE_ITEMS || constants >= MAX_CLASS_FILE_ITEMS) {
+			return false;
+		}
+
+		return Arrays.stream(plan.guardSlots)
+			.allMatch(slot -> slot < 0);
+	}
+
+	private byte[] generate() {
+		constructor();
+		dispatch("select", SELECT, plan.states.length, this::selectCase, false);
+		dispatch("transform", APPLY, plan.targets.length, (code, index) -> applyCase(code, "transforms", index), true);
+		dispatch("enter", APPLY, plan.states.length, (code, ordinal) -> applyCase(code, "stateTransforms", ordinal),
+			true);
+
+		final int thisClass = pool.classRef(className);
+		final int superClass = pool.classRef(BASE);
+
+		try (final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(0);
+
+			if (methods.size() > MAX_CLASS_FILE_ITEMS) {
+				throw new IllegalStateException("Too many methods: " + methods.size());
+			}
+
+			out.writeShort(methods.size());
+
+			for (final byte[] method : methods) {
+				out.write(method);
+			}
+
+			out.writeShort(0);
+			out.flush();
+
+			return bytes.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void constructor() {
+		final Code code = new Code();
+
+		code.u1(ALOAD_0);
+		code.u1(ALOAD_1);
+		code.u1(ALOAD_2);
+		code.u1(ALOAD_3);
+		code.u1(INVOKESPECIAL);
+		code.u2(pool.member(ConstantPool.METHOD, BASE, "<init>", CONSTRUCTOR));
+		code.u1(RETURN);
+		method(ACC_PUBLIC, "<init>", CONSTRUCTOR, code);
+	}
+
+	/**
+	 * Emits a public method switching over groups of {@value #GROUP_SIZE} keys, and a private method
+	 * per group switching over the keys of the group.
+	 */
+	private void dispatch(final String name, final String descriptor, final int keys, final CaseEmitter emitter,
+		final boolean returnsModel) {
+		final int groups = (keys + GROUP_SIZE - 1) >>> GROUP_BITS;
+		final Code code = new Code();
+
+		code.u1(ILOAD_1);
+		pushInt(code, GROUP_BITS);
+		code.u1(IUSHR);
+
+		final Switch outer = Switch.emit(code, Math.max(groups, 1));
+
+		for (int group = 0; group < groups; group++) {
+			outer.target(group);
+			code.u1(ALOAD_0);
+			code.u1(ILOAD_1);
+			code.u1(ALOAD_2);
+			code.u1(ALOAD_3);
+			code.u1(INVOKESPECIAL);
+			code.u2(pool.member(ConstantPool.METHOD, className, name + "Group" + group, descriptor));
+			code.u1(returnsModel ? ARETURN : IRETURN);
+		}
+
+		outer.defaultTarget();
+		fallThrough(code, returnsModel);
+		method(ACC_PUBLIC, name, descriptor, code);
+
+		for (int group = 0; group < groups; group++) {
+			final Code groupCode = new Code();
+			final int first = group << GROUP_BITS;
+			final int count = Math.min(GROUP_SIZE, keys - first);
+
+			groupCode.u1(ILOAD_1);
+			pushInt(groupCode, GROUP_SIZE - 1);
+			groupCode.u1(IAND);
+
+			final Switch inner = Switch.emit(groupCode, count);
+
+			for (int key = 0; key < count; key++) {
+				final int start = groupCode.length;
+
+				if (emitter.emit(groupCode, first + key)) {
+					inner.target(start, key);
+				}
+			}
+
+			inner.defaultTarget();
+			fallThrough(groupCode, returnsModel);
+			method(ACC_PRIVATE, name + "Group" + group, descriptor, groupCode);
+		}
+	}
+
+	/**
+	 * Emits the case of a state with predicate transitions as a call to a method of its own.
+	 */
+	private boolean selectCase(final Code code, final int ordinal) {
+		final int first = plan.firstTransition[ordinal];
+		final int end = plan.firstEvent[ordinal];
+
+		if (first == end) {
+			return false;
+		}
+
+		final String name = "selectState" + ordinal;
+
+		code.u1(ALOAD_0);
+		code.u1(ALOAD_2);
+		code.u1(ALOAD_3);
+		code.u1(INVOKESPECIAL);
+		code.u2(pool.member(ConstantPool.METHOD, className, name, SELECT_STATE));
+		code.u1(IRETURN);
+
+		final Code state = new Code();
+		final int predicates = pool.member(ConstantPool.FIELD, BASE, "predicates", "[L" + PREDICATE + ";");
+		final int test = pool.member(ConstantPool.INTERFACE_METHOD, PREDICATE, "test", "(" + OBJECT + OBJECT + ")Z");
+
+		for (int index = first; index < end; index++) {
+			state.u1(ALOAD_0);
+			state.u1(GETFIELD);
+			state.u2(predicates);
+			pushInt(state, index);
+			state.u1(AALOAD);
+			state.u1(ALOAD_1);
+			state.u1(ALOAD_2);
+			state.u1(INVOKEINTERFACE);
+			state.u2(test);
+			state.u1(3);
+			state.u1(0);
+
+			final int branch = state.length;
+
+			state.u1(IFEQ);
+			state.u2(0);
+			pushInt(state, index);
+			state.u1(IRETURN);
+			state.putU2(branch + 1, state.length - branch);
+		}
+
+		pushInt(state, -1);
+		state.u1(IRETURN);
+		method(ACC_PRIVATE, name, SELECT_STATE, state);
+
+		return true;
+	}
+
+	private boolean applyCase(final Code code, final String field, final int index) {
+		code.u1(ALOAD_0);
+		code.u1(GETFIELD);
+		code.u2(pool.member(ConstantPool.FIELD, BASE, field, "[L" + FUNCTION + ";"));
+		pushInt(code, index);
+		code.u1(AALOAD);
+		code.u1(ALOAD_2);
+		code.u1(ALOAD_3);
+		code.u1(INVOKEINTERFACE);
+		code.u2(pool.member(ConstantPool.INTERFACE_METHOD, FUNCTION, "apply", "(" + OBJECT + OBJECT + ")" + OBJECT));
+		code.u1(3);
+		code.u1(0);
+		code.u1(ARETURN);
+
+		return true;
+	}
+
+	/**
+	 * Emits the result for keys without a case: no transition for {@code select}, and the
+	 * unchanged model for {@code transform} and {@code enter}.
+	 */
+	private void fallThrough(final Code code, final boolean returnsModel) {
+		if (returnsModel) {
+			code.u1(ALOAD_3);
+			code.u1(ARETURN);
+		} else {
+			pushInt(code, -1);
+			code.u1(IRETURN);
+		}
+	}
+
+	private void pushInt(final Code code, final int value) {
+		if (value >= -1 && value <= 5) {
+			code.u1(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			code.u1(BIPUSH);
+			code.u1(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			code.u1(SIPUSH);
+			code.u2(value);
+		} else {
+			code.u1(LDC_W);
+			code.u2(pool.integer(value));
+		}
+	}
+
+	private void method(final int access, final String name, final String descriptor, final Code code) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + 32);
+
+		try (final DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeShort(access);
+			out.writeShort(pool.utf8(name));
+			out.writeShort(pool.utf8(descriptor));
+			out.writeShort(1);
+			out.writeShort(pool.utf8("Code"));
+			out.writeInt(12 + code.length);
+			out.writeShort(4);
+			out.writeShort(4);
+			out.writeInt(code.length);
+			out.write(code.bytes, 0, code.length);
+			out.writeShort(0);
+			out.writeShort(0);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		methods.add(bytes.toByteArray());
+	}
+
+	@FunctionalInterface
+	private interface CaseEmitter {
+
+		/**
+		 * Emits the code for a key, ending in a return.
+		 * @return {@code false} when nothing was emitted and the key shall take the default branch
+		 */
+		boolean emit(Code code, int key);
+	}
+
+	/**
+	 * Growable bytecode buffer.
+	 */
+	private static final class Code {
+
+		private byte[] bytes = new byte[256];
+
+		private int length;
+
+		void u1(final int value) {
+			if (length == bytes.length) {
+				bytes = Arrays.copyOf(bytes, length << 1);
+			}
+
+			bytes[length++] = (byte) value;
+		}
+
+		void u2(final int value) {
+			u1(value >>> 8);
+			u1(value);
+		}
+
+		void u4(final int value) {
+			u2(value >>> 16);
+			u2(value);
+		}
+
+		void putU2(final int at, final int value) {
+			bytes[at] = (byte) (value >>> 8);
+			bytes[at + 1] = (byte) value;
+		}
+
+		void putU4(final int at, final int value) {
+			putU2(at, value >>> 16);
+			putU2(at + 2, value);
+		}
+	}
+
+	/**
+	 * Tableswitch over the keys {@code 0} to {@code count - 1} whose jump offsets are patched once
+	 * the targets are known. Keys left unpatched take the default branch.
+	 */
+	private static final class Switch {
+
+		private final Code code;
+
+		private final int opcode;
+
+		private final int defaultSlot;
+
+		private final int firstSlot;
+
+		private final boolean[] patched;
+
+		private Switch(final Code code, final int opcode, final int defaultSlot, final int firstSlot, final int count) {
+			this.code = code;
+			this.opcode = opcode;
+			this.defaultSlot = defaultSlot;
+			this.firstSlot = firstSlot;
+			patched = new boolean[count];
+		}
+
+		static Switch emit(final Code code, final int count) {
+			final int opcode = code.length;
+
+			code.u1(TABLESWITCH);
+
+			while (code.length % 4 != 0) {
+				code.u1(0);
+			}
+
+			final int defaultSlot = code.length;
+
+			code.u4(0);
+			code.u4(0);
+			code.u4(count - 1);
+
+			final int firstSlot = code.length;
+
+			for (int i = 0; i < count; i++) {
+				code.u4(0);
+			}
+
+			return new Switch(code, opcode, defaultSlot, firstSlot, count);
+		}
+
+		/**
+		 * Points a key at the current end of the code.
+		 */
+		void target(final int key) {
+			target(code.length, key);
+		}
+
+		/**
+		 * Points a key at the given position of the code.
+		 */
+		void target(final int at, final int key) {
+			code.putU4(firstSlot + (key << 2), at - opcode);
+			patched[key] = true;
+		}
+
+		/**
+		 * Points the default branch and all keys not patched so far at the current end of the code.
+		 */
+		void defaultTarget() {
+			final int offset = code.length - opcode;
+
+			code.putU4(defaultSlot, offset);
+
+			for (int key = 0; key < patched.length; key++) {
+				if (!patched[key]) {
+					code.putU4(firstSlot + (key << 2), offset);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constant pool of the generated class, deduplicating its entries.
+	 */
+	private static final class ConstantPool {
+
+		static final int FIELD = 9;
+
+		static final int METHOD = 10;
+
+		static final int INTERFACE_METHOD = 11;
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		private final Map<String, Integer> entries = new HashMap<>();
+
+		private int count = 1;
+
+		int utf8(final String value) {
+			return entry("U" + value, () -> {
+				out.writeByte(1);
+				out.writeUTF(value);
+			});
+		}
+
+		int integer(final int value) {
+			return entry("I" + value, () -> {
+				out.writeByte(3);
+				out.writeInt(value);
+			});
+		}
+
+		int classRef(final String name) {
+			final int nameIndex = utf8(name);
+
+			return entry("C" + name, () -> {
+				out.writeByte(7);
+				out.writeShort(nameIndex);
+			});
+		}
+
+		int member(final int tag, final String owner, final String name, final String descriptor) {
+			final int ownerIndex = classRef(owner);
+			final int nameIndex = utf8(name);
+			final int descriptorIndex = utf8(descriptor);
+			final int nameAndType = entry("N" + name + ' ' + descriptor, () -> {
+				out.writeByte(12);
+				out.writeShort(nameIndex);
+				out.writeShort(descriptorIndex);
+			});
+
+			return entry(tag + owner + '.' + name + ' ' + descriptor, () -> {
+				out.writeByte(tag);
+				out.writeShort(ownerIndex);
+				out.writeShort(nameAndType);
+			});
+		}
+
+		void writeTo(final DataOutputStream target) throws IOException {
+			if (count > MAX_CLASS_FILE_ITEMS) {
+				throw new IllegalStateException("Too many constants: " + (count - 1));
+			}
+
+			out.flush();
+			target.writeShort(count);
+			bytes.writeTo(target);
+		}
+
+		private int entry(final String key, final EntryWriter writer) {
+			final Integer existing = entries.get(key);
+
+			if (existing != null) {
+				return existing.intValue();
+			} else if (count == MAX_CLASS_FILE_ITEMS) {
+				// Gives up as soon as the pool overflows rather than after emitting the whole class
+				throw new IllegalStateException("Too many constants");
+			}
+
+			try {
+				writer.write();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			entries.put(key, Integer.valueOf(count));
+
+			return count++;
+		}
+
+		@FunctionalInterface
+		private interface EntryWriter {
+
+			void write() throws IOException;
+		}
+	}
+
+	private static final class Loader extends ClassLoader {
+
+		Loader(final ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(final String name, final byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+/**
+ * Open addressing table mapping the events accepted by a single state to the contiguous range of
+ * transitions declared for each event in the flat arrays of an {@link ExecutionPlan}.
+ * <p>
+ * Instances are immutable once built.
+ */
+final class EventTable {
+
+	private final Object[] events;
+
+	private final int[] starts;
+
+	private final int[] ends;
+
+	private final int mask;
+
+	EventTable(final Object[] distinctEvents, final int[] distinctStarts, final int[] distinctEnds) {
+		int capacity = Integer.highestOneBit(Math.max(2, distinctEvents.length) * 2 - 1) << 1;
+
+		events = new Object[capacity];
+		starts = new int[capacity];
+		ends = new int[capacity];
+		mask = capacity - 1;
+
+		for (int i = 0; i < distinctEvents.length; i++) {
+			int slot = indexFor(distinctEvents[i]);
+
+			while (events[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			events[slot] = distinctEvents[i];
+			starts[slot] = distinctStarts[i];
+			ends[slot] = distinctEnds[i];
+		}
+	}
+
+	/**
+	 * Finds the slot holding the given event.
+	 * @param event Event to look up
+	 * @return Slot of the event, or a negative value when the event is not accepted
+	 */
+	int find(final Object event) {
+		int slot = indexFor(event);
+		Object candidate;
+
+		while ((candidate = events[slot]) != null) {
+			if (candidate == event || candidate.equals(event)) {
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	int start(final int slot) {
+		return starts[slot];
+	}
+
+	int end(final int slot) {
+		return ends[slot];
+	}
+
+	private int indexFor(final Object event) {
+		final int hash = event.hashCode() * 0x9E3779B9;
+
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
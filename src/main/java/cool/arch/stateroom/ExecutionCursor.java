@@ -0,0 +1,208 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.BiFunction;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Mutable counterpart of {@link Context} for running a machine without creating a new context on
+ * every evaluation cycle. A cursor is advanced in place by {@link #step()} or {@link #run()} and
+ * only turns into an immutable {@link Context} when a {@link #snapshot()} is requested.
+ * <p>
+ * Cursors are not thread safe and are meant to be confined to the thread driving the run.
+ * @param <M> Type used to represent the machine model
+ */
+public final class ExecutionCursor<M> {
+
+	private final Machine<M> machine;
+
+	State<M> state;
+
+	int ordinal;
+
+	Status status;
+
+	M model;
+
+	/**
+	 * Last active leaf of every history state, or {@code null} when the machine has none.
+	 */
+	int[] history;
+
+	/**
+	 * Number of the current evaluation cycle, advanced by every step.
+	 */
+	long cycle;
+
+	/**
+	 * Memoized values of the fact slots of the execution plan, valid while their entry in
+	 * {@code factCycles} equals {@code cycle}.
+	 */
+	private final Object[] factValues;
+
+	private final long[] factCycles;
+
+	ExecutionCursor(final Machine<M> machine, final Context<M> context) {
+		this(machine);
+		reset(context);
+	}
+
+	/**
+	 * Creates a cursor positioned at no state, which its owner positions before every use.
+	 * @param machine Machine advancing the cursor
+	 */
+	ExecutionCursor(final Machine<M> machine) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+
+		final int slots = machine.getPlan().factFunctions.length;
+
+		factValues = slots == 0 ? null : new Object[slots];
+		factCycles = slots == 0 ? null : new long[slots];
+		ordinal = ExecutionPlan.UNKNOWN_STATE;
+		cycle = 1;
+	}
+
+	/**
+	 * Repositions the cursor onto the given context, allowing a single cursor to be reused across
+	 * runs.
+	 * @param context Context to continue from
+	 * @return This cursor
+	 */
+	public ExecutionCursor<M> reset(final Context<M> context) {
+		requireNonNull(context, "context shall not be null");
+
+		final ExecutionPlan<M> plan = machine.getPlan();
+
+		state = context.getState();
+		ordinal = plan.ordinalOf(context);
+		status = context.getStatus();
+		model = context.getModel();
+
+		if (plan.historySlots != null) {
+			history = context.getHistory() == null ? plan.initialHistory(ordinal) : context.getHistory()
+				.clone();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Gets the value of a fact slot for the current evaluation cycle, computing it on first use.
+	 * @param slot Slot of the fact
+	 * @param function Function computing the fact
+	 * @param transformedModel Model after the pre-evaluation transform
+	 * @return Value of the fact
+	 */
+	Object fact(final int slot, final BiFunction<State<M>, M, ?> function, final M transformedModel) {
+		if (factCycles[slot] != cycle) {
+			factValues[slot] = function.apply(state, transformedModel);
+			factCycles[slot] = cycle;
+		}
+
+		return factValues[slot];
+	}
+
+	/**
+	 * Performs a single evaluation cycle in place.
+	 * @return Whether the machine is still ready for further evaluation
+	 */
+	public boolean step() {
+		machine.step(this);
+
+		return status == Status.READY;
+	}
+
+	/**
+	 * Performs a single evaluation cycle in place, selecting the transition by event.
+	 * @param event Event to dispatch
+	 * @return Whether the machine is still ready for further evaluation
+	 * @see Machine#fire(Context, Object)
+	 */
+	public boolean fire(final Object event) {
+		machine.fire(this, requireNonNull(event, "event shall not be null"));
+
+		return status == Status.READY;
+	}
+
+	/**
+	 * Evaluates in place until the machine halts.
+	 * @return Snapshot of the halted run
+	 */
+	public Context<M> run() {
+		machine.run(this);
+
+		return snapshot();
+	}
+
+	/**
+	 * Evaluates in place until the machine halts or one of the limits is reached.
+	 * @param limits Limits of the evaluation
+	 * @return Snapshot of the run along with the reason it stopped
+	 * @see Machine#evaluateUntilHalted(Context, EvaluationLimits)
+	 */
+	public EvaluationResult<M> run(final EvaluationLimits<? super M> limits) {
+		return machine.run(this, limits);
+	}
+
+	/**
+	 * Captures the current position of the cursor as an immutable context.
+	 * @return Context reflecting the current state, status and model
+	 */
+	public Context<M> snapshot() {
+		return new Context<>(state, ordinal, status, model, history == null ? null : history.clone());
+	}
+
+	/**
+	 * Gets the current state of the run.
+	 * @return Current state
+	 */
+	public State<M> getState() {
+		return state;
+	}
+
+	/**
+	 * Gets the current status of the run.
+	 * @return Current status
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the current model of the run.
+	 * @return Current model
+	 */
+	public M getModel() {
+		return model;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{");
+		sb.append("'state':");
+		sb.append(state);
+		sb.append("'status':");
+		sb.append(status);
+		sb.append("'model':");
+		sb.append(model);
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,68 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Callbacks invoked by a {@link Machine} while it evaluates. Listeners are registered with
+ * {@link MachineBuilder#withListener(ExecutionListener)}; a machine built without listeners skips
+ * every notification with a single null check per callback site.
+ * <p>
+ * Callbacks run synchronously on the evaluating thread and shall be safe for concurrent use when
+ * the machine is evaluated by several threads.
+ * @param <M> Type used to represent the machine model
+ */
+public interface ExecutionListener<M> {
+
+	/**
+	 * Invoked at the beginning of every evaluation cycle, before the pre-evaluation transform.
+	 * @param state Current state
+	 * @param status Current status
+	 * @param model Current model
+	 */
+	default void onStep(final State<M> state, final Status status, final M model) {
+		// Nothing by default
+	}
+
+	/**
+	 * Invoked when a transition has been selected, before any model transform is applied.
+	 * @param source State the transition leaves
+	 * @param transition Selected transition
+	 * @param model Model after the pre-evaluation transform
+	 */
+	default void onTransitionTaken(final State<M> source, final Transition<M> transition, final M model) {
+		// Nothing by default
+	}
+
+	/**
+	 * Invoked once the target state of a transition has been entered and all model transforms have
+	 * been applied.
+	 * @param state Entered state
+	 * @param model Resulting model
+	 */
+	default void onStateEntered(final State<M> state, final M model) {
+		// Nothing by default
+	}
+
+	/**
+	 * Invoked when the machine halts.
+	 * @param state State the machine halted in
+	 * @param status Resulting status, either accepted or crashed
+	 * @param model Resulting model
+	 */
+	default void onHalt(final State<M> state, final Status status, final M model) {
+		// Nothing by default
+	}
+}
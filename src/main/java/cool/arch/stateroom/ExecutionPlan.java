@@ -0,0 +1,539 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Compiled, index based form of a {@link Machine}. Every state is assigned a dense ordinal in
+ * declaration order and the transitions of all states are laid out in flat arrays, so that a
+ * single evaluation step is an array index followed by a loop over a contiguous range.
+ * <p>
+ * The transitions of the state with ordinal {@code n} occupy the indices
+ * {@code firstTransition[n]} (inclusive) to {@code firstTransition[n + 1]} (exclusive) of the
+ * {@code targets}, {@code predicates}, {@code transforms} and {@code transitions} arrays. Within
+ * that range the transitions guarded by a predicate only come first, up to
+ * {@code firstEvent[n]} (exclusive), followed by the event transitions grouped by event and
+ * indexed through {@code eventTables[n]}.
+ * <p>
+ * Declared facts and shared guards are assigned slots in {@code factFunctions}. A transition whose
+ * guard reads a slot has its slot in {@code guardSlots} and the test of the slot value in
+ * {@code slotPredicates}; all other transitions have a negative slot and are guarded by
+ * {@code predicates} alone. Slot values are memoized per evaluation cycle by the
+ * {@link ExecutionCursor}.
+ * <p>
+ * Instances are immutable once compiled.
+ * @param <M> Type used to represent the machine model
+ */
+final class ExecutionPlan<M> {
+
+	static final int UNKNOWN_STATE = -1;
+
+	private static final Predicate<Object> IS_TRUE = value -> ((Boolean) value).booleanValue();
+
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	final State<M>[] states;
+
+	final BiFunction<State<M>, M, M>[] stateTransforms;
+
+	final boolean[] acceptStates;
+
+	final int[] firstTransition;
+
+	final int[] firstEvent;
+
+	final EventTable[] eventTables;
+
+	final int[] targets;
+
+	final BiPredicate<State<M>, M>[] predicates;
+
+	final BiFunction<State<M>, M, M>[] transforms;
+
+	final Transition<M>[] transitions;
+
+	final BiFunction<State<M>, M, ?>[] factFunctions;
+
+	final int[] guardSlots;
+
+	final Predicate<Object>[] slotPredicates;
+
+	final int startOrdinal;
+
+	final Supplier<M> modelSupplier;
+
+	final BiFunction<State<M>, M, M> preEvaluationTransform;
+
+	final BiPredicate<State<M>, M> haltPredicate;
+
+	/**
+	 * Listener to notify, or {@code null} when none has been registered.
+	 */
+	final ExecutionListener<M> listener;
+
+	/**
+	 * Metrics to record, or {@code null} when metrics are not enabled.
+	 */
+	final MetricsRecorder metrics;
+
+	/**
+	 * Hash over the structure of the machine: state names and accept flags in ordinal order, and
+	 * the target and event of every transition in plan order.
+	 */
+	final long fingerprint;
+
+	/**
+	 * Timeout of the timed transition of every state in nanoseconds, negative for states without
+	 * one, or {@code null} when the machine has no timed transitions.
+	 */
+	final long[] timeouts;
+
+	/**
+	 * Event of the timed transition of every state.
+	 */
+	final Object[] timeoutEvents;
+
+	/**
+	 * History slot resumed by every transition, negative for transitions that do not target a
+	 * history state, or {@code null} when the machine has no history states.
+	 */
+	final int[] historySlots;
+
+	/**
+	 * Slots of the history states containing every state, or {@code null} when the machine has no
+	 * history states.
+	 */
+	final int[][] historyAncestors;
+
+	/**
+	 * Evaluator generated for this plan, or {@code null} when the plan runs on the interpreter.
+	 */
+	final GeneratedEvaluator<M> evaluator;
+
+	/**
+	 * Cache of the transitions selected in states with pure guards, or {@code null} when there are
+	 * none.
+	 */
+	final DecisionCache<M> decisionCache;
+
+	private final Map<State<M>, Integer> ordinals;
+
+	private final int historyCount;
+
+	@SuppressWarnings("unchecked")
+	private ExecutionPlan(final Machine<M> machine) {
+		final Map<State<M>, Transitions<M>> stateTransitions = machine.getTransitions();
+		final int stateCount = stateTransitions.size();
+
+		ordinals = new IdentityHashMap<>(stateCount);
+		states = new State[stateCount];
+		stateTransforms = new BiFunction[stateCount];
+		acceptStates = new boolean[stateCount];
+		firstTransition = new int[stateCount + 1];
+		firstEvent = new int[stateCount];
+		eventTables = new EventTable[stateCount];
+
+		int transitionCount = 0;
+
+		for (final Map.Entry<State<M>, Transitions<M>> entry : stateTransitions.entrySet()) {
+			final State<M> state = entry.getKey();
+			final int ordinal = ordinals.size();
+
+			ordinals.put(state, Integer.valueOf(ordinal));
+			states[ordinal] = state;
+			stateTransforms[ordinal] = state.getModelTransform();
+			acceptStates[ordinal] = state.isAcceptState();
+			transitionCount += entry.getValue()
+				.size();
+		}
+
+		targets = new int[transitionCount];
+		predicates = new BiPredicate[transitionCount];
+		transforms = new BiFunction[transitionCount];
+		transitions = new Transition[transitionCount];
+
+		int index = 0;
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			Map<Object, List<Transition<M>>> byEvent = null;
+
+			firstTransition[ordinal] = index;
+
+			for (final Transition<M> transition : stateTransitions.get(states[ordinal])) {
+				if (transition.getEvent() == null) {
+					index = place(index, transition);
+				} else {
+					if (byEvent == null) {
+						byEvent = new LinkedHashMap<>();
+					}
+
+					byEvent.computeIfAbsent(transition.getEvent(), event -> new ArrayList<>())
+						.add(transition);
+				}
+			}
+
+			firstEvent[ordinal] = index;
+
+			if (byEvent != null) {
+				final Object[] events = new Object[byEvent.size()];
+				final int[] starts = new int[events.length];
+				final int[] ends = new int[events.length];
+				int slot = 0;
+
+				for (final Map.Entry<Object, List<Transition<M>>> entry : byEvent.entrySet()) {
+					events[slot] = entry.getKey();
+					starts[slot] = index;
+
+					for (final Transition<M> transition : entry.getValue()) {
+						index = place(index, transition);
+					}
+
+					ends[slot++] = index;
+				}
+
+				eventTables[ordinal] = new EventTable(events, starts, ends);
+			}
+		}
+
+		firstTransition[stateCount] = index;
+
+		final Map<Object, Integer> slots = new IdentityHashMap<>();
+		final List<BiFunction<State<M>, M, ?>> functions = new ArrayList<>();
+
+		for (final Fact<M, ?> fact : machine.getFacts()) {
+			slots.put(fact, Integer.valueOf(functions.size()));
+			functions.add(fact.getFunction());
+		}
+
+		for (final BiPredicate<State<M>, M> guard : machine.getSharedGuards()) {
+			slots.put(guard, Integer.valueOf(functions.size()));
+			functions.add((state, model) -> Boolean.valueOf(guard.test(state, model)));
+		}
+
+		factFunctions = functions.toArray(new BiFunction[functions.size()]);
+		guardSlots = new int[transitionCount];
+		slotPredicates = new Predicate[transitionCount];
+
+		for (int i = 0; i < transitionCount; i++) {
+			final Transition<M> transition = transitions[i];
+			final Integer slot = slots.get(transition.getFact() == null ? transition.getPredicate() : transition.getFact());
+
+			guardSlots[i] = slot == null ? -1 : slot.intValue();
+			slotPredicates[i] = transition.getFact() == null ? IS_TRUE : (Predicate<Object>) transition.getFactPredicate();
+		}
+
+		final OptimizationReport<M> report = machine.findOptimizationReport();
+
+		if (report != null) {
+			report.getMergedStates()
+				.forEach((merged, representative) -> ordinals.put(merged, ordinals.get(representative)));
+		}
+
+		final Map<State<M>, Function<? super M, ?>> decisionKeys = machine.getDecisionKeys();
+		final Function<? super M, ?>[] keyExtractors = new Function[stateCount];
+		boolean cached = false;
+
+		for (final Map.Entry<State<M>, Function<? super M, ?>> entry : decisionKeys.entrySet()) {
+			final Integer ordinal = ordinals.get(entry.getKey());
+
+			if (ordinal != null && states[ordinal.intValue()] == entry.getKey()) {
+				keyExtractors[ordinal.intValue()] = entry.getValue();
+				cached = true;
+			}
+		}
+
+		decisionCache = cached ? new DecisionCache<>(keyExtractors, machine.getDecisionCacheSize()) : null;
+
+		long[] stateTimeouts = null;
+
+		timeoutEvents = new Object[stateCount];
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			for (int i = firstEvent[ordinal]; i < firstTransition[ordinal + 1]; i++) {
+				final Object event = transitions[i].getEvent();
+
+				if (event instanceof Timeout && timeoutEvents[ordinal] == null) {
+					if (stateTimeouts == null) {
+						stateTimeouts = new long[stateCount];
+						Arrays.fill(stateTimeouts, -1);
+					}
+
+					stateTimeouts[ordinal] = ((Timeout) event).toNanos();
+					timeoutEvents[ordinal] = event;
+				}
+			}
+		}
+
+		timeouts = stateTimeouts;
+
+		final StateHierarchy<M> hierarchy = machine.getHierarchy();
+
+		if (hierarchy != null && hierarchy.hasHistory()) {
+			historyCount = hierarchy.getHistoryCount();
+			historySlots = new int[transitionCount];
+			historyAncestors = new int[stateCount][];
+
+			for (int i = 0; i < transitionCount; i++) {
+				historySlots[i] = transitions[i].getHistorySlot();
+			}
+
+			for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+				historyAncestors[ordinal] = hierarchy.historySlotsOf(states[ordinal]);
+			}
+		} else {
+			historyCount = 0;
+			historySlots = null;
+			historyAncestors = null;
+		}
+
+		startOrdinal = ordinalOf(machine.getStartState());
+		modelSupplier = machine.getModelSupplier();
+		preEvaluationTransform = machine.getPreEvaluationTransform();
+		haltPredicate = machine.getHaltPredicate();
+		listener = CompositeExecutionListener.of(machine.getListeners());
+		metrics = machine.isMetricsEnabled() ? new MetricsRecorder(stateCount, transitionCount) : null;
+		fingerprint = fingerprint();
+		evaluator = machine.isCodeGenerationEnabled() ? EvaluatorGenerator.generate(this) : null;
+	}
+
+	private long fingerprint() {
+		long hash = mix(FNV_OFFSET_BASIS, states.length);
+
+		for (int ordinal = 0; ordinal < states.length; ordinal++) {
+			hash = mix(hash, states[ordinal].getName());
+			hash = mix(hash, acceptStates[ordinal] ? 1 : 0);
+			hash = mix(hash, firstTransition[ordinal + 1] - firstTransition[ordinal]);
+			hash = mix(hash, firstEvent[ordinal] - firstTransition[ordinal]);
+		}
+
+		for (int index = 0; index < targets.length; index++) {
+			final Object event = transitions[index].getEvent();
+
+			hash = mix(hash, targets[index]);
+			hash = event == null ? mix(hash, -1) : mix(hash, stableForm(event));
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Gets a form of an event that is the same in every run of the JVM. Strings, enum constants and
+	 * timeouts are covered by their value; any other event only by its class, as its string form
+	 * may derive from its identity hash code.
+	 * @param event Event of a transition
+	 * @return Stable form of the event
+	 */
+	private static String stableForm(final Object event) {
+		if (event instanceof String || event instanceof Timeout) {
+			return event.toString();
+		} else if (event instanceof Enum) {
+			return ((Enum<?>) event).getDeclaringClass()
+				.getName() + '.' + ((Enum<?>) event).name();
+		}
+
+		return event.getClass()
+			.getName();
+	}
+
+	private static long mix(final long hash, final String value) {
+		long result = mix(hash, value.length());
+
+		for (int i = 0; i < value.length(); i++) {
+			result = mix(result, value.charAt(i));
+		}
+
+		return result;
+	}
+
+	private static long mix(final long hash, final int value) {
+		long result = hash;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+			result = (result ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+
+		return result;
+	}
+
+	private int place(final int index, final Transition<M> transition) {
+		targets[index] = ordinalOf(transition.getTargetState());
+		predicates[index] = transition.getPredicate();
+		transforms[index] = transition.getModelTransform();
+		transitions[index] = transition;
+
+		return index + 1;
+	}
+
+	static <M> ExecutionPlan<M> compile(final Machine<M> machine) {
+		return new ExecutionPlan<>(machine);
+	}
+
+	/**
+	 * Resolves the ordinal of a state, falling back to a lookup only when the ordinal cached on
+	 * the context does not belong to this plan.
+	 * @param context Context to resolve the state ordinal of
+	 * @return Ordinal of the state of the context, or {@link #UNKNOWN_STATE}
+	 */
+	int ordinalOf(final Context<M> context) {
+		final int ordinal = context.getOrdinal();
+
+		if (ordinal >= 0 && ordinal < states.length && states[ordinal] == context.getState()) {
+			return ordinal;
+		}
+
+		return ordinalOf(context.getState());
+	}
+
+	/**
+	 * Selects the first transition guarded by a predicate only that accepts the model.
+	 * @param cursor Cursor positioned at the current state
+	 * @param model Model after the pre-evaluation transform
+	 * @return Index of the selected transition, or a negative value when none applies
+	 */
+	int select(final ExecutionCursor<M> cursor, final M model) {
+		final int ordinal = cursor.ordinal;
+
+		if (ordinal == UNKNOWN_STATE) {
+			return -1;
+		}
+
+		final int end = firstEvent[ordinal];
+
+		for (int index = firstTransition[ordinal]; index < end; index++) {
+			if (test(index, cursor, model)) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Selects the first transition declared for the event whose secondary guard accepts the model.
+	 * @param cursor Cursor positioned at the current state
+	 * @param event Event fired
+	 * @param model Model after the pre-evaluation transform
+	 * @return Index of the selected transition, or a negative value when none applies
+	 */
+	int select(final ExecutionCursor<M> cursor, final Object event, final M model) {
+		final int ordinal = cursor.ordinal;
+
+		if (ordinal == UNKNOWN_STATE) {
+			return -1;
+		}
+
+		final EventTable table = eventTables[ordinal];
+		final int slot = table == null ? -1 : table.find(event);
+
+		if (slot < 0) {
+			return -1;
+		}
+
+		final int end = table.end(slot);
+
+		for (int index = table.start(slot); index < end; index++) {
+			if (test(index, cursor, model)) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+
+	private boolean test(final int index, final ExecutionCursor<M> cursor, final M model) {
+		final MetricsRecorder metrics = this.metrics;
+
+		if (metrics == null) {
+			return test(index, cursor.state, cursor, model);
+		}
+
+		final long start = System.nanoTime();
+		final boolean result = test(index, cursor.state, cursor, model);
+
+		metrics.guardLatency.record(System.nanoTime() - start);
+
+		return result;
+	}
+
+	private boolean test(final int index, final State<M> state, final ExecutionCursor<M> cursor, final M model) {
+		final int slot = guardSlots[index];
+
+		if (slot < 0) {
+			return predicates[index].test(state, model);
+		}
+
+		return slotPredicates[index].test(cursor.fact(slot, factFunctions[slot], model));
+	}
+
+	/**
+	 * Creates the history of a run starting in the given state.
+	 * @param ordinal Ordinal of the start state
+	 * @return Last active leaf of every history state
+	 */
+	int[] initialHistory(final int ordinal) {
+		final int[] history = new int[historyCount];
+
+		Arrays.fill(history, UNKNOWN_STATE);
+
+		if (ordinal >= 0) {
+			for (final int slot : historyAncestors[ordinal]) {
+				history[slot] = ordinal;
+			}
+		}
+
+		return history;
+	}
+
+	/**
+	 * Resolves the state entered by a transition, resuming the last active leaf when the transition
+	 * targets a history state, and records the entered state in the history.
+	 * @param history History of the run, updated in place
+	 * @param index Index of the transition taken
+	 * @param target Ordinal of the declared target leaf
+	 * @return Ordinal of the state entered
+	 */
+	int resume(final int[] history, final int index, final int target) {
+		final int slot = historySlots[index];
+		final int ordinal = slot >= 0 && history[slot] >= 0 ? history[slot] : target;
+
+		for (final int ancestor : historyAncestors[ordinal]) {
+			history[ancestor] = ordinal;
+		}
+
+		return ordinal;
+	}
+
+	int ordinalOf(final State<M> state) {
+		final Integer ordinal = ordinals.get(state);
+
+		return ordinal == null ? UNKNOWN_STATE : ordinal.intValue();
+	}
+
+	int size() {
+		return states.length;
+	}
+}
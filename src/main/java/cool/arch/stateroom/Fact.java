@@ -0,0 +1,58 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.BiFunction;
+
+/**
+ * Named value derived from the current state and model, computed at most once per evaluation
+ * cycle no matter how many transition guards read it.
+ * <p>
+ * A fact is declared on the machine through {@link MachineBuilder#withFact(Fact)} and read by
+ * transitions declared through {@link StateBuilderFacade#to(State, Fact, java.util.function.Predicate)}.
+ * Its function receives the current state and the model after the pre-evaluation transform, and
+ * shall not have side effects.
+ * @param <M> Type used to represent the machine model
+ * @param <V> Type of the derived value
+ */
+public final class Fact<M, V> {
+
+	private final String name;
+
+	private final BiFunction<State<M>, M, V> function;
+
+	private Fact(final String name, final BiFunction<State<M>, M, V> function) {
+		this.name = requireNonNull(name, "name shall not be null");
+		this.function = requireNonNull(function, "function shall not be null");
+	}
+
+	public static <M, V> Fact<M, V> of(final String name, final BiFunction<State<M>, M, V> function) {
+		return new Fact<>(name, function);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public BiFunction<State<M>, M, V> getFunction() {
+		return function;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{'fact':'%s'}", name);
+	}
+}
@@ -0,0 +1,70 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Base class of the evaluators generated for machines built with
+ * {@link MachineBuilder#withCodeGeneration()}. Generated subclasses replace the loops of the
+ * interpreter with a switch over state ordinals in which every guard and transform is invoked from
+ * a call site of its own, so that each call site only ever sees a single implementation.
+ * <p>
+ * This class is public only because generated subclasses are defined in a class loader of their
+ * own; it is not meant to be extended by applications.
+ * @param <M> Type used to represent the machine model
+ */
+public abstract class GeneratedEvaluator<M> {
+
+	protected final BiPredicate<State<M>, M>[] predicates;
+
+	protected final BiFunction<State<M>, M, M>[] transforms;
+
+	protected final BiFunction<State<M>, M, M>[] stateTransforms;
+
+	protected GeneratedEvaluator(final BiPredicate<State<M>, M>[] predicates,
+		final BiFunction<State<M>, M, M>[] transforms, final BiFunction<State<M>, M, M>[] stateTransforms) {
+		this.predicates = predicates;
+		this.transforms = transforms;
+		this.stateTransforms = stateTransforms;
+	}
+
+	/**
+	 * Selects the first transition guarded by a predicate only that accepts the model.
+	 * @param ordinal Ordinal of the current state
+	 * @param state Current state
+	 * @param model Model after the pre-evaluation transform
+	 * @return Index of the selected transition, or a negative value when none applies
+	 */
+	public abstract int select(int ordinal, State<M> state, M model);
+
+	/**
+	 * Applies the model transform of a transition.
+	 * @param index Index of the transition
+	 * @param state Target state of the transition
+	 * @param model Model to transform
+	 * @return Transformed model
+	 */
+	public abstract M transform(int index, State<M> state, M model);
+
+	/**
+	 * Applies the model transform of a state being entered.
+	 * @param ordinal Ordinal of the state
+	 * @param state State being entered
+	 * @param model Model to transform
+	 * @return Transformed model
+	 */
+	public abstract M enter(int ordinal, State<M> state, M model);
+}
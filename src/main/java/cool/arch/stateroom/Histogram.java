@@ -0,0 +1,53 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention free histogram with power of two buckets. Bucket {@code 0} counts the value zero and
+ * bucket {@code n} counts the values in {@code [2^(n-1), 2^n)}, so any non negative {@code long}
+ * is recorded with a single striped increment.
+ */
+final class Histogram {
+
+	static final int BUCKETS = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder sum = new LongAdder();
+
+	Histogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	void record(final long value) {
+		final long clamped = Math.max(0L, value);
+
+		buckets[Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(clamped))].increment();
+		sum.add(clamped);
+	}
+
+	HistogramSnapshot snapshot() {
+		final long[] counts = new long[BUCKETS];
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+		}
+
+		return new HistogramSnapshot(counts, sum.sum());
+	}
+}
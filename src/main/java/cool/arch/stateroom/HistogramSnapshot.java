@@ -0,0 +1,105 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Point in time copy of a histogram with power of two buckets. Bucket {@code 0} holds the value
+ * zero and bucket {@code n} holds the values in {@code [2^(n-1), 2^n)}. Percentiles are reported
+ * as the upper bound of the bucket they fall in and are therefore accurate within a factor of two.
+ */
+public final class HistogramSnapshot {
+
+	private final long[] counts;
+
+	private final long count;
+
+	private final long sum;
+
+	HistogramSnapshot(final long[] counts, final long sum) {
+		this.counts = counts;
+		this.count = Arrays.stream(counts)
+			.sum();
+		this.sum = sum;
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 * @return Number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the sum of all recorded values.
+	 * @return Sum of recorded values
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * Gets the mean of all recorded values.
+	 * @return Mean, or zero when nothing has been recorded
+	 */
+	public double getMean() {
+		return count == 0 ? 0.0 : (double) sum / count;
+	}
+
+	/**
+	 * Gets the upper bound of the bucket holding the given percentile.
+	 * @param percentile Percentile between 0 and 100
+	 * @return Upper bound of the bucket, or zero when nothing has been recorded
+	 */
+	public long getPercentile(final double percentile) {
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException("percentile shall be between 0 and 100");
+		}
+
+		final long rank = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			seen += counts[bucket];
+
+			if (seen >= rank && counts[bucket] > 0) {
+				return upperBound(bucket);
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Gets the number of values recorded in a bucket.
+	 * @param bucket Bucket index between 0 and 63
+	 * @return Number of values in the bucket
+	 */
+	public long getBucketCount(final int bucket) {
+		return counts[bucket];
+	}
+
+	private static long upperBound(final int bucket) {
+		return bucket == 0 ? 0 : bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{'count':%d, 'mean':%.1f, 'p50':%d, 'p99':%d, 'p999':%d}", Long.valueOf(count),
+			Double.valueOf(getMean()), Long.valueOf(getPercentile(50)), Long.valueOf(getPercentile(99)),
+			Long.valueOf(getPercentile(99.9)));
+	}
+}
@@ -0,0 +1,189 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Runs a machine over a sequence of inputs, performing one evaluation cycle per input. Each input
+ * is either folded into the model by an accumulator before the cycle or dispatched as the event of
+ * the cycle, see {@link Machine#driver(BiFunction)} and {@link Machine#eventDriver()}.
+ * <p>
+ * Inputs are pulled one at a time and consumption stops as soon as the machine halts, so sources
+ * are never read ahead or buffered.
+ * @param <M> Type used to represent the machine model
+ * @param <I> Type of the inputs
+ */
+public final class InputDriver<M, I> {
+
+	/**
+	 * Characteristics of a source that still hold for the contexts derived from it. Sizes are not
+	 * propagated since a halt may end the derived stream early.
+	 */
+	private static final int PROPAGATED_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.IMMUTABLE
+		| Spliterator.CONCURRENT;
+
+	private final Machine<M> machine;
+
+	private final BiFunction<M, ? super I, M> accumulator;
+
+	InputDriver(final Machine<M> machine, final BiFunction<M, ? super I, M> accumulator) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.accumulator = accumulator;
+	}
+
+	/**
+	 * Consumes inputs from the iterator until it is exhausted or the machine halts.
+	 * @param context Context to start from
+	 * @param inputs Inputs to consume
+	 * @return Resulting context
+	 */
+	public Context<M> run(final Context<M> context, final Iterator<? extends I> inputs) {
+		requireNonNull(inputs, "inputs shall not be null");
+
+		final ExecutionCursor<M> cursor = machine.cursor(context);
+
+		while (cursor.status == Status.READY && inputs.hasNext()) {
+			accept(cursor, inputs.next());
+		}
+
+		return cursor.snapshot();
+	}
+
+	/**
+	 * Consumes inputs from the stream until it is exhausted or the machine halts. The stream is
+	 * traversed sequentially in encounter order.
+	 * @param context Context to start from
+	 * @param inputs Inputs to consume
+	 * @return Resulting context
+	 */
+	public Context<M> run(final Context<M> context, final Stream<? extends I> inputs) {
+		requireNonNull(inputs, "inputs shall not be null");
+
+		final ExecutionCursor<M> cursor = machine.cursor(context);
+		final Spliterator<? extends I> spliterator = inputs.spliterator();
+		final Consumer<I> sink = input -> accept(cursor, input);
+
+		while (cursor.status == Status.READY && spliterator.tryAdvance(sink)) {
+			// Advanced by the sink
+		}
+
+		return cursor.snapshot();
+	}
+
+	/**
+	 * Lazily maps the inputs onto the context reached after each of them. Nothing is consumed until
+	 * the returned stream is traversed, and the stream ends after the context in which the machine
+	 * halts. The ordering of the source is kept and closing the returned stream closes the source.
+	 * @param context Context to start from
+	 * @param inputs Inputs to consume
+	 * @return Sequential stream of intermediate contexts
+	 */
+	public Stream<Context<M>> contexts(final Context<M> context, final Stream<? extends I> inputs) {
+		requireNonNull(inputs, "inputs shall not be null");
+
+		return StreamSupport.stream(new ContextSpliterator(machine.cursor(context), inputs.spliterator()), false)
+			.onClose(inputs::close);
+	}
+
+	/**
+	 * Lazily maps the inputs onto the context reached after each of them.
+	 * @param context Context to start from
+	 * @param inputs Inputs to consume
+	 * @return Sequential stream of intermediate contexts
+	 * @see #contexts(Context, Stream)
+	 */
+	public Stream<Context<M>> contexts(final Context<M> context, final Iterator<? extends I> inputs) {
+		requireNonNull(inputs, "inputs shall not be null");
+
+		return StreamSupport.stream(new ContextSpliterator(machine.cursor(context),
+			Spliterators.spliteratorUnknownSize(inputs, Spliterator.ORDERED)), false);
+	}
+
+	/**
+	 * Creates a consumer feeding pushed inputs into the cursor, for sources that call back rather
+	 * than being pulled from. Inputs pushed after the machine halted are ignored.
+	 * @param cursor Cursor to advance
+	 * @return Consumer of inputs
+	 */
+	public Consumer<I> sink(final ExecutionCursor<M> cursor) {
+		requireNonNull(cursor, "cursor shall not be null");
+
+		return input -> {
+			if (cursor.status == Status.READY) {
+				accept(cursor, input);
+			}
+		};
+	}
+
+	private void accept(final ExecutionCursor<M> cursor, final I input) {
+		if (accumulator == null) {
+			machine.fire(cursor, requireNonNull(input, "input shall not be null"));
+		} else {
+			cursor.model = accumulator.apply(cursor.model, input);
+			machine.step(cursor);
+		}
+	}
+
+	private final class ContextSpliterator implements Spliterator<Context<M>> {
+
+		private final ExecutionCursor<M> cursor;
+
+		private final Spliterator<? extends I> source;
+
+		private final Consumer<I> sink;
+
+		ContextSpliterator(final ExecutionCursor<M> cursor, final Spliterator<? extends I> source) {
+			this.cursor = cursor;
+			this.source = source;
+			sink = input -> accept(cursor, input);
+		}
+
+		@Override
+		public boolean tryAdvance(final Consumer<? super Context<M>> action) {
+			if (cursor.status != Status.READY || !source.tryAdvance(sink)) {
+				return false;
+			}
+
+			action.accept(cursor.snapshot());
+
+			return true;
+		}
+
+		@Override
+		public Spliterator<Context<M>> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return cursor.status == Status.READY ? source.estimateSize() : 0;
+		}
+
+		@Override
+		public int characteristics() {
+			return source.characteristics() & PROPAGATED_CHARACTERISTICS | Spliterator.NONNULL;
+		}
+	}
+}
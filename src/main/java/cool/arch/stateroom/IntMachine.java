@@ -0,0 +1,262 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.READY;
+import static java.util.Objects.requireNonNull;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntSupplier;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Finite state machine over a primitive {@code int} model, the unboxed counterpart of a
+ * {@code Machine<Integer>}.
+ * <p>
+ * Guards and transforms receive the ordinal of a state, its position in declaration order, and the
+ * model as primitives, and an {@link IntCursor} keeps the model as an {@code int}, so that stepping
+ * a cursor never boxes. Transition transforms and entry transforms receive the ordinal of the
+ * target state, just like their generic counterparts receive the target state. Listeners, metrics
+ * and event dispatch are only available on {@link Machine}.
+ * <p>
+ * A machine is immutable once built and may be shared by any number of threads evaluating
+ * different cursors concurrently, provided its guards and transforms are.
+ */
+public final class IntMachine {
+
+	private IntSupplier modelSupplier = () -> 0;
+
+	private IntBinaryOperator preEvaluationTransform = (state, model) -> model;
+
+	private State<Integer> startState;
+
+	private IntStatePredicate haltPredicate = (state, model) -> false;
+
+	private final Map<State<Integer>, List<Edge>> transitions = new LinkedHashMap<>();
+
+	private final Map<State<Integer>, IntBinaryOperator> entryTransforms = new IdentityHashMap<>();
+
+	private State<Integer>[] states;
+
+	private boolean[] acceptStates;
+
+	private IntBinaryOperator[] stateTransforms;
+
+	private int[] firstTransition;
+
+	private int[] targets;
+
+	private IntStatePredicate[] guards;
+
+	private IntBinaryOperator[] transforms;
+
+	private int startOrdinal;
+
+	private final Map<State<Integer>, Integer> ordinals = new IdentityHashMap<>();
+
+	IntMachine() {
+		// Built through IntMachine.builder()
+	}
+
+	public static IntMachineBuilder builder() {
+		return new IntMachineBuilderImpl();
+	}
+
+	public Context<Integer> create() {
+		return new Context<>(states[startOrdinal], startOrdinal, READY, Integer.valueOf(modelSupplier.getAsInt()));
+	}
+
+	/**
+	 * Creates a cursor positioned at the start state with a freshly supplied model.
+	 * @return New cursor
+	 */
+	public IntCursor cursor() {
+		return new IntCursor(this, startOrdinal, READY, modelSupplier.getAsInt());
+	}
+
+	/**
+	 * Creates a cursor positioned at the given context.
+	 * @param context Context to continue from
+	 * @return New cursor
+	 */
+	public IntCursor cursor(final Context<Integer> context) {
+		return new IntCursor(this, ordinalOf(context.getState()), context.getStatus(), context.getModel()
+			.intValue());
+	}
+
+	public Context<Integer> evaluate(final Context<Integer> context) {
+		final IntCursor cursor = cursor(context);
+
+		step(cursor);
+
+		return cursor.snapshot();
+	}
+
+	public Context<Integer> evaluateUntilHalted(final Context<Integer> context) {
+		return cursor(context).run();
+	}
+
+	/**
+	 * Resolves the ordinal under which a state is passed to guards and transforms.
+	 * @param state State to resolve
+	 * @return Ordinal of the state
+	 * @throws IllegalArgumentException When the state is not part of the machine
+	 */
+	public int ordinalOf(final State<Integer> state) {
+		final Integer ordinal = ordinals.get(state);
+
+		if (ordinal == null) {
+			throw new IllegalArgumentException("State is not part of the machine: " + state.getName());
+		}
+
+		return ordinal.intValue();
+	}
+
+	/**
+	 * @param ordinal Ordinal of a state
+	 * @return State with the given ordinal
+	 */
+	public State<Integer> getState(final int ordinal) {
+		return states[ordinal];
+	}
+
+	/**
+	 * @return Number of states of the machine
+	 */
+	public int size() {
+		return states.length;
+	}
+
+	void step(final IntCursor cursor) {
+		int ordinal = cursor.ordinal;
+		int model = preEvaluationTransform.applyAsInt(ordinal, cursor.model);
+		final int end = firstTransition[ordinal + 1];
+
+		for (int index = firstTransition[ordinal]; index < end; index++) {
+			if (guards[index].test(ordinal, model)) {
+				ordinal = targets[index];
+				model = transforms[index].applyAsInt(ordinal, model);
+				model = stateTransforms[ordinal].applyAsInt(ordinal, model);
+				break;
+			}
+		}
+
+		cursor.ordinal = ordinal;
+		cursor.model = model;
+
+		if (cursor.status == READY && haltPredicate.test(ordinal, model)) {
+			cursor.status = acceptStates[ordinal] ? Status.ACCEPTED : Status.CRASHED;
+		}
+	}
+
+	void run(final IntCursor cursor) {
+		while (cursor.status == READY) {
+			step(cursor);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void compile() {
+		final int stateCount = transitions.size();
+		int transitionCount = 0;
+
+		states = new State[stateCount];
+		acceptStates = new boolean[stateCount];
+		stateTransforms = new IntBinaryOperator[stateCount];
+		firstTransition = new int[stateCount + 1];
+
+		for (final Map.Entry<State<Integer>, List<Edge>> entry : transitions.entrySet()) {
+			final int ordinal = ordinals.size();
+			final State<Integer> state = entry.getKey();
+
+			ordinals.put(state, Integer.valueOf(ordinal));
+			states[ordinal] = state;
+			acceptStates[ordinal] = state.isAcceptState();
+			stateTransforms[ordinal] = entryTransforms.getOrDefault(state, (target, model) -> model);
+			transitionCount += entry.getValue()
+				.size();
+		}
+
+		targets = new int[transitionCount];
+		guards = new IntStatePredicate[transitionCount];
+		transforms = new IntBinaryOperator[transitionCount];
+
+		int index = 0;
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			firstTransition[ordinal] = index;
+
+			for (final Edge edge : transitions.get(states[ordinal])) {
+				targets[index] = ordinalOf(edge.target);
+				guards[index] = edge.guard;
+				transforms[index] = edge.transform;
+				index++;
+			}
+		}
+
+		firstTransition[stateCount] = index;
+		startOrdinal = ordinalOf(startState);
+	}
+
+	Map<State<Integer>, List<Edge>> getTransitions() {
+		return transitions;
+	}
+
+	Map<State<Integer>, IntBinaryOperator> getEntryTransforms() {
+		return entryTransforms;
+	}
+
+	State<Integer> getStartState() {
+		return startState;
+	}
+
+	void setModelSupplier(final IntSupplier modelSupplier) {
+		this.modelSupplier = modelSupplier;
+	}
+
+	void setPreEvaluationTransform(final IntBinaryOperator preEvaluationTransform) {
+		this.preEvaluationTransform = preEvaluationTransform;
+	}
+
+	void setStartState(final State<Integer> startState) {
+		this.startState = startState;
+	}
+
+	void setHaltPredicate(final IntStatePredicate haltPredicate) {
+		this.haltPredicate = haltPredicate;
+	}
+
+	/**
+	 * Transition declared through the builder, resolved to ordinals by {@link #compile()}.
+	 */
+	static final class Edge {
+
+		final State<Integer> target;
+
+		final IntStatePredicate guard;
+
+		final IntBinaryOperator transform;
+
+		Edge(final State<Integer> target, final IntStatePredicate guard, final IntBinaryOperator transform) {
+			this.target = requireNonNull(target, "target shall not be null");
+			this.guard = requireNonNull(guard, "guard shall not be null");
+			this.transform = requireNonNull(transform, "transform shall not be null");
+		}
+	}
+}
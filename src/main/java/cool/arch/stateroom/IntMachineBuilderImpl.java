@@ -0,0 +1,123 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+final class IntMachineBuilderImpl extends AbstractBuilderImpl<IntMachine> implements IntMachineBuilder {
+
+	protected IntMachineBuilderImpl() {
+		super(new IntMachine());
+	}
+
+	@Override
+	protected Set<String> validate(Set<String> errors, IntMachine instance) {
+		final Set<State<Integer>> states = instance.getTransitions()
+			.keySet();
+
+		final String invalidStates = instance.getTransitions()
+			.values()
+			.stream()
+			.flatMap(List::stream)
+			.map(edge -> edge.target)
+			.filter(state -> !states.contains(state))
+			.map(State::getName)
+			.distinct()
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(invalidStates)) {
+			errors.add("Invalid states: " + invalidStates);
+		}
+
+		final String boxingStates = states.stream()
+			.filter(State::hasModelTransform)
+			.map(State::getName)
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(boxingStates)) {
+			errors.add("States with a generic model transform, use an entry transform instead: " + boxingStates);
+		}
+
+		if (!states.contains(instance.getStartState())) {
+			errors.add("Invalid start state: " + (instance.getStartState() == null ? null
+				: instance.getStartState()
+					.getName()));
+		}
+
+		return errors;
+	}
+
+	@Override
+	protected void complete(final IntMachine instance) {
+		instance.compile();
+	}
+
+	@Override
+	public IntStateBuilderFacade withState(State<Integer> state) {
+		return new IntStateBuilderFacadeImpl(this, requireNonNull(state, "state shall not be null"), null);
+	}
+
+	@Override
+	public IntStateBuilderFacade withState(State<Integer> state, IntBinaryOperator entryTransform) {
+		return new IntStateBuilderFacadeImpl(this, requireNonNull(state, "state shall not be null"),
+			requireNonNull(entryTransform, "entryTransform shall not be null"));
+	}
+
+	void withState(final State<Integer> state, final IntBinaryOperator entryTransform,
+		final List<IntMachine.Edge> edges) {
+		getInstance().getTransitions()
+			.put(state, new ArrayList<>(edges));
+
+		if (entryTransform != null) {
+			getInstance().getEntryTransforms()
+				.put(state, entryTransform);
+		}
+	}
+
+	@Override
+	public IntMachineBuilder withModelSupplier(IntSupplier modelSupplier) {
+		getInstance().setModelSupplier(requireNonNull(modelSupplier, "modelSupplier shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public IntMachineBuilder withStartState(State<Integer> startState) {
+		getInstance().setStartState(requireNonNull(startState, "startState shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public IntMachineBuilder haltWhen(IntStatePredicate predicate) {
+		getInstance().setHaltPredicate(requireNonNull(predicate, "predicate shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public IntMachineBuilder withPreEvaluationTransform(IntBinaryOperator preEvaluationTransform) {
+		getInstance().setPreEvaluationTransform(
+			requireNonNull(preEvaluationTransform, "preEvaluationTransform shall not be null"));
+
+		return this;
+	}
+}
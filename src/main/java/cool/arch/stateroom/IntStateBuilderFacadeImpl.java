@@ -0,0 +1,69 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+final class IntStateBuilderFacadeImpl implements IntStateBuilderFacade {
+
+	private final IntMachineBuilderImpl builder;
+
+	private final State<Integer> state;
+
+	private final IntBinaryOperator entryTransform;
+
+	private final List<IntMachine.Edge> builtTransitions = new ArrayList<>();
+
+	IntStateBuilderFacadeImpl(IntMachineBuilderImpl builder, State<Integer> state, IntBinaryOperator entryTransform) {
+		this.builder = builder;
+		this.state = state;
+		this.entryTransform = entryTransform;
+	}
+
+	@Override
+	public IntStateBuilderFacade withState(State<Integer> state) {
+		builder.withState(this.state, entryTransform, builtTransitions);
+
+		return builder.withState(state);
+	}
+
+	@Override
+	public IntStateBuilderFacade withState(State<Integer> state, IntBinaryOperator entryTransform) {
+		builder.withState(this.state, this.entryTransform, builtTransitions);
+
+		return builder.withState(state, entryTransform);
+	}
+
+	@Override
+	public IntMachine build() {
+		builder.withState(state, entryTransform, builtTransitions);
+
+		return builder.build();
+	}
+
+	@Override
+	public IntStateBuilderFacade to(State<Integer> targetState, IntStatePredicate predicate) {
+		return to(targetState, predicate, (target, model) -> model);
+	}
+
+	@Override
+	public IntStateBuilderFacade to(State<Integer> targetState, IntStatePredicate predicate,
+		IntBinaryOperator modelTransform) {
+		builtTransitions.add(new IntMachine.Edge(targetState, predicate, modelTransform));
+
+		return this;
+	}
+}
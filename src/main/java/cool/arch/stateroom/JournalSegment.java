@@ -0,0 +1,150 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Single fixed size, memory mapped file of a {@link TransitionJournal}.
+ * <p>
+ * A segment starts with a header holding a magic number, the format version, the fingerprint of
+ * the machine and the index of the segment. Entries follow back to back, each prefixed with the
+ * length of its body; the length is written last, so a zero length marks the end of the written
+ * part of the segment.
+ */
+final class JournalSegment {
+
+	static final int MAGIC = 0x53524a4c;
+
+	static final byte VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	private static final int FINGERPRINT_OFFSET = 8;
+
+	private static final int INDEX_OFFSET = 16;
+
+	final long index;
+
+	final Path path;
+
+	final MappedByteBuffer buffer;
+
+	private JournalSegment(final long index, final Path path, final MappedByteBuffer buffer) {
+		this.index = index;
+		this.path = path;
+		this.buffer = buffer;
+	}
+
+	static Path path(final Path directory, final long index) {
+		return directory.resolve(String.format("journal-%016d.log", Long.valueOf(index)));
+	}
+
+	static long indexOf(final Path path) {
+		final String name = path.getFileName()
+			.toString();
+
+		if (!name.startsWith("journal-") || !name.endsWith(".log")) {
+			return -1;
+		}
+
+		try {
+			return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	static JournalSegment create(final Path directory, final long index, final int size, final long fingerprint) {
+		final JournalSegment segment = map(path(directory, index), index, size, true);
+
+		segment.buffer.putInt(0, MAGIC);
+		segment.buffer.put(4, VERSION);
+		segment.buffer.putLong(FINGERPRINT_OFFSET, fingerprint);
+		segment.buffer.putLong(INDEX_OFFSET, index);
+
+		return segment;
+	}
+
+	static JournalSegment open(final Path path, final long index, final long fingerprint, final boolean writable) {
+		final JournalSegment segment;
+
+		try {
+			segment = map(path, index, (int) Files.size(path), writable);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		final ByteBuffer buffer = segment.buffer;
+
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+			throw new IllegalStateException("Not a journal segment: " + path);
+		}
+
+		if (buffer.getLong(FINGERPRINT_OFFSET) != fingerprint) {
+			throw new IllegalStateException("Journal segment was written for a different machine: " + path);
+		}
+
+		if (buffer.getLong(INDEX_OFFSET) != index) {
+			throw new IllegalStateException("Journal segment index does not match its name: " + path);
+		}
+
+		return segment;
+	}
+
+	private static JournalSegment map(final Path path, final long index, final int size, final boolean writable) {
+		try (final FileChannel channel = writable
+			? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+			: FileChannel.open(path, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(writable ? MapMode.READ_WRITE : MapMode.READ_ONLY, 0, size);
+
+			return new JournalSegment(index, path, buffer);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Finds the end of the written part of the segment.
+	 * @return Offset right after the last complete entry
+	 * @throws IllegalStateException When an entry length does not fit the segment
+	 */
+	int end() {
+		int offset = HEADER_SIZE;
+		int length;
+
+		while (offset + Integer.BYTES <= buffer.capacity() && (length = buffer.getInt(offset)) > 0) {
+			if (length < TransitionJournal.ENTRY_SIZE || length > buffer.capacity() - offset - Integer.BYTES) {
+				throw new IllegalStateException(
+					"Corrupt journal entry at position " + TransitionJournal.position(index, offset));
+			}
+
+			offset += Integer.BYTES + length;
+		}
+
+		return offset;
+	}
+
+	void force() {
+		buffer.force();
+	}
+}
@@ -0,0 +1,40 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Receives the raw entries of a {@link TransitionJournal} during replay. Entries are handed out
+ * straight from the memory mapped segments without creating any object per entry.
+ */
+@FunctionalInterface
+public interface JournalVisitor {
+
+	/**
+	 * Invoked for every journal entry in append order.
+	 * @param position Journal position of the entry
+	 * @param contextId Id of the context the entry belongs to
+	 * @param fromOrdinal Ordinal of the state before the evaluation
+	 * @param toOrdinal Ordinal of the state after the evaluation
+	 * @param statusBefore Status before the evaluation
+	 * @param statusAfter Status after the evaluation
+	 * @param model Read only view of the encoded model, or {@code null} when the journal records no
+	 *        models; only valid for the duration of the call
+	 */
+	void visit(long position, long contextId, int fromOrdinal, int toOrdinal, Status statusBefore,
+		Status statusAfter, ByteBuffer model);
+}
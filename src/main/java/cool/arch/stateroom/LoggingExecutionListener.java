@@ -0,0 +1,75 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Listener tracing evaluation through {@code java.util.logging}. Messages are only formatted when
+ * the logger accepts the configured level.
+ * @param <M> Type used to represent the machine model
+ */
+public final class LoggingExecutionListener<M> implements ExecutionListener<M> {
+
+	private final Logger logger;
+
+	private final Level level;
+
+	/**
+	 * Creates a listener logging at {@link Level#FINE} to the logger of {@link Machine}.
+	 */
+	public LoggingExecutionListener() {
+		this(Logger.getLogger(Machine.class.getName()), Level.FINE);
+	}
+
+	public LoggingExecutionListener(final Logger logger, final Level level) {
+		this.logger = requireNonNull(logger, "logger shall not be null");
+		this.level = requireNonNull(level, "level shall not be null");
+	}
+
+	@Override
+	public void onStep(final State<M> state, final Status status, final M model) {
+		if (logger.isLoggable(level)) {
+			logger.log(level,
+				String.format("Evaluating machine with State: %s, Status: %s, Model: %s", state, status, model));
+		}
+	}
+
+	@Override
+	public void onTransitionTaken(final State<M> source, final Transition<M> transition, final M model) {
+		if (logger.isLoggable(level)) {
+			logger.log(level, String.format("Taking transition %s from State: %s, Model: %s", transition,
+				source.getName(), model));
+		}
+	}
+
+	@Override
+	public void onStateEntered(final State<M> state, final M model) {
+		if (logger.isLoggable(level)) {
+			logger.log(level, String.format("Resulting state: %s, Model: %s", state, model));
+		}
+	}
+
+	@Override
+	public void onHalt(final State<M> state, final Status status, final M model) {
+		if (logger.isLoggable(level)) {
+			logger.log(level, String.format("Halted with State: %s, Status: %s, Model: %s", state, status, model));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Mutable run state of a {@link LongMachine}, holding the model as a primitive {@code long}.
+ * <p>
+ * Cursors are not thread safe and are meant to be confined to the thread driving the run.
+ */
+public final class LongCursor {
+
+	private final LongMachine machine;
+
+	int ordinal;
+
+	Status status;
+
+	long model;
+
+	LongCursor(final LongMachine machine, final int ordinal, final Status status, final long model) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.ordinal = ordinal;
+		this.status = requireNonNull(status, "status shall not be null");
+		this.model = model;
+	}
+
+	/**
+	 * Repositions the cursor, allowing a single cursor to be reused across runs.
+	 * @param state State to continue from
+	 * @param status Status to continue with
+	 * @param model Model to continue with
+	 * @return This cursor
+	 */
+	public LongCursor reset(final State<Long> state, final Status status, final long model) {
+		ordinal = machine.ordinalOf(requireNonNull(state, "state shall not be null"));
+		this.status = requireNonNull(status, "status shall not be null");
+		this.model = model;
+
+		return this;
+	}
+
+	/**
+	 * Performs a single evaluation cycle in place.
+	 * @return Whether the machine is still ready for further evaluation
+	 */
+	public boolean step() {
+		machine.step(this);
+
+		return status == Status.READY;
+	}
+
+	/**
+	 * Evaluates in place until the machine halts.
+	 * @return Snapshot of the halted run
+	 */
+	public Context<Long> run() {
+		machine.run(this);
+
+		return snapshot();
+	}
+
+	/**
+	 * Captures the current position of the cursor as an immutable context, boxing the model.
+	 * @return Context reflecting the current state, status and model
+	 */
+	public Context<Long> snapshot() {
+		return new Context<>(machine.getState(ordinal), ordinal, status, Long.valueOf(model));
+	}
+
+	public State<Long> getState() {
+		return machine.getState(ordinal);
+	}
+
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public long getModel() {
+		return model;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{");
+		sb.append("'state':");
+		sb.append(getState());
+		sb.append("'status':");
+		sb.append(status);
+		sb.append("'model':");
+		sb.append(model);
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
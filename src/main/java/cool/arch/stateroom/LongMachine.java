@@ -0,0 +1,261 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.READY;
+import static java.util.Objects.requireNonNull;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Finite state machine over a primitive {@code long} model, the unboxed counterpart of a
+ * {@code Machine<Long>}.
+ * <p>
+ * Guards and transforms receive the ordinal of a state, its position in declaration order, and the
+ * model as primitives, and a {@link LongCursor} keeps the model as a {@code long}, so that stepping
+ * a cursor never boxes. Transition transforms and entry transforms receive the ordinal of the
+ * target state, just like their generic counterparts receive the target state. Listeners, metrics
+ * and event dispatch are only available on {@link Machine}.
+ * <p>
+ * A machine is immutable once built and may be shared by any number of threads evaluating
+ * different cursors concurrently, provided its guards and transforms are.
+ */
+public final class LongMachine {
+
+	private LongSupplier modelSupplier = () -> 0L;
+
+	private LongStateOperator preEvaluationTransform = (state, model) -> model;
+
+	private State<Long> startState;
+
+	private LongStatePredicate haltPredicate = (state, model) -> false;
+
+	private final Map<State<Long>, List<Edge>> transitions = new LinkedHashMap<>();
+
+	private final Map<State<Long>, LongStateOperator> entryTransforms = new IdentityHashMap<>();
+
+	private State<Long>[] states;
+
+	private boolean[] acceptStates;
+
+	private LongStateOperator[] stateTransforms;
+
+	private int[] firstTransition;
+
+	private int[] targets;
+
+	private LongStatePredicate[] guards;
+
+	private LongStateOperator[] transforms;
+
+	private int startOrdinal;
+
+	private final Map<State<Long>, Integer> ordinals = new IdentityHashMap<>();
+
+	LongMachine() {
+		// Built through LongMachine.builder()
+	}
+
+	public static LongMachineBuilder builder() {
+		return new LongMachineBuilderImpl();
+	}
+
+	public Context<Long> create() {
+		return new Context<>(states[startOrdinal], startOrdinal, READY, Long.valueOf(modelSupplier.getAsLong()));
+	}
+
+	/**
+	 * Creates a cursor positioned at the start state with a freshly supplied model.
+	 * @return New cursor
+	 */
+	public LongCursor cursor() {
+		return new LongCursor(this, startOrdinal, READY, modelSupplier.getAsLong());
+	}
+
+	/**
+	 * Creates a cursor positioned at the given context.
+	 * @param context Context to continue from
+	 * @return New cursor
+	 */
+	public LongCursor cursor(final Context<Long> context) {
+		return new LongCursor(this, ordinalOf(context.getState()), context.getStatus(), context.getModel()
+			.longValue());
+	}
+
+	public Context<Long> evaluate(final Context<Long> context) {
+		final LongCursor cursor = cursor(context);
+
+		step(cursor);
+
+		return cursor.snapshot();
+	}
+
+	public Context<Long> evaluateUntilHalted(final Context<Long> context) {
+		return cursor(context).run();
+	}
+
+	/**
+	 * Resolves the ordinal under which a state is passed to guards and transforms.
+	 * @param state State to resolve
+	 * @return Ordinal of the state
+	 * @throws IllegalArgumentException When the state is not part of the machine
+	 */
+	public int ordinalOf(final State<Long> state) {
+		final Integer ordinal = ordinals.get(state);
+
+		if (ordinal == null) {
+			throw new IllegalArgumentException("State is not part of the machine: " + state.getName());
+		}
+
+		return ordinal.intValue();
+	}
+
+	/**
+	 * @param ordinal Ordinal of a state
+	 * @return State with the given ordinal
+	 */
+	public State<Long> getState(final int ordinal) {
+		return states[ordinal];
+	}
+
+	/**
+	 * @return Number of states of the machine
+	 */
+	public int size() {
+		return states.length;
+	}
+
+	void step(final LongCursor cursor) {
+		int ordinal = cursor.ordinal;
+		long model = preEvaluationTransform.applyAsLong(ordinal, cursor.model);
+		final int end = firstTransition[ordinal + 1];
+
+		for (int index = firstTransition[ordinal]; index < end; index++) {
+			if (guards[index].test(ordinal, model)) {
+				ordinal = targets[index];
+				model = transforms[index].applyAsLong(ordinal, model);
+				model = stateTransforms[ordinal].applyAsLong(ordinal, model);
+				break;
+			}
+		}
+
+		cursor.ordinal = ordinal;
+		cursor.model = model;
+
+		if (cursor.status == READY && haltPredicate.test(ordinal, model)) {
+			cursor.status = acceptStates[ordinal] ? Status.ACCEPTED : Status.CRASHED;
+		}
+	}
+
+	void run(final LongCursor cursor) {
+		while (cursor.status == READY) {
+			step(cursor);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void compile() {
+		final int stateCount = transitions.size();
+		int transitionCount = 0;
+
+		states = new State[stateCount];
+		acceptStates = new boolean[stateCount];
+		stateTransforms = new LongStateOperator[stateCount];
+		firstTransition = new int[stateCount + 1];
+
+		for (final Map.Entry<State<Long>, List<Edge>> entry : transitions.entrySet()) {
+			final int ordinal = ordinals.size();
+			final State<Long> state = entry.getKey();
+
+			ordinals.put(state, Integer.valueOf(ordinal));
+			states[ordinal] = state;
+			acceptStates[ordinal] = state.isAcceptState();
+			stateTransforms[ordinal] = entryTransforms.getOrDefault(state, (target, model) -> model);
+			transitionCount += entry.getValue()
+				.size();
+		}
+
+		targets = new int[transitionCount];
+		guards = new LongStatePredicate[transitionCount];
+		transforms = new LongStateOperator[transitionCount];
+
+		int index = 0;
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			firstTransition[ordinal] = index;
+
+			for (final Edge edge : transitions.get(states[ordinal])) {
+				targets[index] = ordinalOf(edge.target);
+				guards[index] = edge.guard;
+				transforms[index] = edge.transform;
+				index++;
+			}
+		}
+
+		firstTransition[stateCount] = index;
+		startOrdinal = ordinalOf(startState);
+	}
+
+	Map<State<Long>, List<Edge>> getTransitions() {
+		return transitions;
+	}
+
+	Map<State<Long>, LongStateOperator> getEntryTransforms() {
+		return entryTransforms;
+	}
+
+	State<Long> getStartState() {
+		return startState;
+	}
+
+	void setModelSupplier(final LongSupplier modelSupplier) {
+		this.modelSupplier = modelSupplier;
+	}
+
+	void setPreEvaluationTransform(final LongStateOperator preEvaluationTransform) {
+		this.preEvaluationTransform = preEvaluationTransform;
+	}
+
+	void setStartState(final State<Long> startState) {
+		this.startState = startState;
+	}
+
+	void setHaltPredicate(final LongStatePredicate haltPredicate) {
+		this.haltPredicate = haltPredicate;
+	}
+
+	/**
+	 * Transition declared through the builder, resolved to ordinals by {@link #compile()}.
+	 */
+	static final class Edge {
+
+		final State<Long> target;
+
+		final LongStatePredicate guard;
+
+		final LongStateOperator transform;
+
+		Edge(final State<Long> target, final LongStatePredicate guard, final LongStateOperator transform) {
+			this.target = requireNonNull(target, "target shall not be null");
+			this.guard = requireNonNull(guard, "guard shall not be null");
+			this.transform = requireNonNull(transform, "transform shall not be null");
+		}
+	}
+}
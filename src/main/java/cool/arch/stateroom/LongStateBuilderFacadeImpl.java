@@ -0,0 +1,68 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class LongStateBuilderFacadeImpl implements LongStateBuilderFacade {
+
+	private final LongMachineBuilderImpl builder;
+
+	private final State<Long> state;
+
+	private final LongStateOperator entryTransform;
+
+	private final List<LongMachine.Edge> builtTransitions = new ArrayList<>();
+
+	LongStateBuilderFacadeImpl(LongMachineBuilderImpl builder, State<Long> state, LongStateOperator entryTransform) {
+		this.builder = builder;
+		this.state = state;
+		this.entryTransform = entryTransform;
+	}
+
+	@Override
+	public LongStateBuilderFacade withState(State<Long> state) {
+		builder.withState(this.state, entryTransform, builtTransitions);
+
+		return builder.withState(state);
+	}
+
+	@Override
+	public LongStateBuilderFacade withState(State<Long> state, LongStateOperator entryTransform) {
+		builder.withState(this.state, this.entryTransform, builtTransitions);
+
+		return builder.withState(state, entryTransform);
+	}
+
+	@Override
+	public LongMachine build() {
+		builder.withState(state, entryTransform, builtTransitions);
+
+		return builder.build();
+	}
+
+	@Override
+	public LongStateBuilderFacade to(State<Long> targetState, LongStatePredicate predicate) {
+		return to(targetState, predicate, (target, model) -> model);
+	}
+
+	@Override
+	public LongStateBuilderFacade to(State<Long> targetState, LongStatePredicate predicate,
+		LongStateOperator modelTransform) {
+		builtTransitions.add(new LongMachine.Edge(targetState, predicate, modelTransform));
+
+		return this;
+	}
+}
@@ -14,24 +14,43 @@ package cool.arch.stateroom;
  */
 
 import static cool.arch.stateroom.enums.Status.READY;
-
-import java.lang.invoke.MethodHandles;
-import java.util.HashMap;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import cool.arch.stateroom.enums.Status;
-
+import cool.arch.stateroom.enums.StopReason;
+
+/**
+ * Finite state machine definition together with its evaluation entry points.
+ * <p>
+ * A machine is immutable once built: evaluation only reads the execution plan compiled by
+ * {@link MachineBuilder#build()} and keeps all run specific data in the {@link Context} or
+ * {@link ExecutionCursor} being evaluated. A built machine may therefore be shared by any number
+ * of threads evaluating different contexts concurrently, provided the predicates and transforms
+ * it was built with are themselves safe for concurrent use. The builder that produced a machine
+ * shall not be used after {@link MachineBuilder#build()}.
+ * @param <M> Type used to represent the machine model
+ */
 public class Machine<M> {
 
-	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup()
-		.lookupClass()
-		.getName());
+	/**
+	 * Lower bound for the grain size of batch evaluations when none is specified.
+	 */
+	private static final int MINIMUM_GRAIN_SIZE = 64;
 
 	private Supplier<M> modelSupplier;
 
@@ -41,7 +60,46 @@ public class Machine<M> {
 
 	private BiPredicate<State<M>, M> haltPredicate = (state, model) -> false;
 
-	private final Map<State<M>, Transitions<M>> transitions = new HashMap<>();
+	private final Map<State<M>, Transitions<M>> transitions;
+
+	private final List<ExecutionListener<M>> listeners = new ArrayList<>();
+
+	private final List<Fact<M, ?>> facts = new ArrayList<>();
+
+	private final List<BiPredicate<State<M>, M>> sharedGuards = new ArrayList<>();
+
+	private final Map<State<M>, State<M>> parents = new LinkedHashMap<>();
+
+	private final Map<State<M>, BiFunction<State<M>, M, M>> exitTransforms = new IdentityHashMap<>();
+
+	private final List<State<M>> historyStates = new ArrayList<>();
+
+	private final Map<State<M>, Function<? super M, ?>> decisionKeys = new IdentityHashMap<>();
+
+	private int decisionCacheSize = DecisionCache.DEFAULT_MAXIMUM_SIZE;
+
+	/**
+	 * Nesting of the states, or {@code null} when the machine is flat.
+	 */
+	private StateHierarchy<M> hierarchy;
+
+	private boolean metricsEnabled;
+
+	private boolean optimizationEnabled;
+
+	private boolean codeGenerationEnabled;
+
+	private OptimizationReport<M> optimizationReport;
+
+	private ExecutionPlan<M> plan;
+
+	public Machine() {
+		this(0);
+	}
+
+	Machine(final int expectedStates) {
+		transitions = new LinkedHashMap<>(Math.max(16, (int) (expectedStates / 0.75f) + 1));
+	}
 
 	@Override
 	public String toString() {
@@ -75,85 +133,486 @@ public class Machine<M> {
 		return new MachineBuilderImpl<>();
 	}
 
+	/**
+	 * Creates a loader of machines from tabular definitions.
+	 * @param modelType Type used to represent the machine model
+	 * @return New loader
+	 */
+	public static <T> MachineLoader<T> loader(Class<T> modelType) {
+		return new MachineLoaderImpl<>();
+	}
+
 	public Context<M> create() {
-		return new Context<>(startState, READY, modelSupplier.get());
+		final ExecutionPlan<M> plan = this.plan;
+		final int ordinal = plan.startOrdinal;
+
+		return new Context<>(plan.states[ordinal], ordinal, READY, plan.modelSupplier.get(),
+			plan.historySlots == null ? null : plan.initialHistory(ordinal));
+	}
+
+	/**
+	 * Creates a cursor positioned at the start state with a freshly supplied model.
+	 * @return New cursor
+	 */
+	public ExecutionCursor<M> cursor() {
+		return new ExecutionCursor<>(this, create());
+	}
+
+	/**
+	 * Creates a cursor positioned at the given context.
+	 * @param context Context to continue from
+	 * @return New cursor
+	 */
+	public ExecutionCursor<M> cursor(final Context<M> context) {
+		return new ExecutionCursor<>(this, context);
+	}
+
+	/**
+	 * Creates a driver running this machine over a sequence of inputs, folding each input into the
+	 * model with the accumulator before evaluating one cycle.
+	 * @param accumulator Function producing the model from the current model and the next input
+	 * @param <I> Type of the inputs
+	 * @return New driver
+	 */
+	public <I> InputDriver<M, I> driver(final BiFunction<M, ? super I, M> accumulator) {
+		return new InputDriver<>(this, requireNonNull(accumulator, "accumulator shall not be null"));
+	}
+
+	/**
+	 * Creates a driver running this machine over a sequence of inputs, dispatching each input as an
+	 * event as by {@link #fire(Context, Object)}.
+	 * @param <I> Type of the inputs
+	 * @return New driver
+	 */
+	public <I> InputDriver<M, I> eventDriver() {
+		return new InputDriver<>(this, null);
+	}
+
+	/**
+	 * Creates a runner evaluating long sequences of events in parallel by speculating on the start
+	 * state of each chunk.
+	 * @return New runner
+	 * @throws IllegalStateException When a transition of the machine is not an unguarded event
+	 *         transition
+	 */
+	public SpeculativeRunner<M> speculativeRunner() {
+		return new SpeculativeRunner<>(this);
 	}
 
 	public Context<M> evaluate(final Context<M> context) {
-		State<M> state = context.getState();
-		Status status = context.getStatus();
-		final M model = context.getModel();
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(this, context);
+
+		step(cursor);
 
-		LOGGER.log(
-			Level.FINE,
-			() -> String.format("Evaluating machine with State: %s, Status: %s, Model: %s", context.getState(),
-				context.getStatus(), context.getModel()));
+		return cursor.snapshot();
+	}
 
-		final M transformedModel = preEvaluationTransform.apply(state, model);
+	/**
+	 * Evaluates a single cycle in which the transition is selected by the given event rather than
+	 * by scanning predicates. Only transitions declared for the event on the current state are
+	 * considered, in declaration order, and their guards act as secondary conditions. When no such
+	 * transition applies the machine remains in its current state.
+	 * @param context Context to evaluate
+	 * @param event Event to dispatch
+	 * @return Resulting context
+	 */
+	public Context<M> fire(final Context<M> context, final Object event) {
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(this, context);
+
+		fire(cursor, requireNonNull(event, "event shall not be null"));
+
+		return cursor.snapshot();
+	}
 
-		LOGGER.log(Level.FINE, () -> String.format("After preevaluation transform. Model: %s", transformedModel));
+	public Context<M> evaluateUntilHalted(final Context<M> context) {
+		final ExecutionCursor<M> cursor = new ExecutionCursor<>(this, context);
 
-		M resultingModel = transformedModel;
+		run(cursor);
+
+		return cursor.snapshot();
+	}
+
+	/**
+	 * Evaluates until the machine halts or one of the limits is reached.
+	 * @param context Context to evaluate
+	 * @param limits Limits of the evaluation
+	 * @return Resulting context along with the reason the evaluation stopped
+	 */
+	public EvaluationResult<M> evaluateUntilHalted(final Context<M> context, final EvaluationLimits<? super M> limits) {
+		return run(new ExecutionCursor<>(this, context), limits);
+	}
+
+	/**
+	 * Evaluates a single cycle for every context of the array, replacing each element with its
+	 * resulting context. The work is split across the common fork-join pool.
+	 * @param contexts Contexts to evaluate in place
+	 */
+	public void evaluateAll(final Context<M>[] contexts) {
+		evaluateAll(contexts, defaultGrainSize(contexts.length));
+	}
+
+	/**
+	 * Evaluates a single cycle for every context of the array, replacing each element with its
+	 * resulting context. The work is split across the common fork-join pool.
+	 * @param contexts Contexts to evaluate in place
+	 * @param grainSize Maximum number of contexts evaluated by a single task
+	 */
+	public void evaluateAll(final Context<M>[] contexts, final int grainSize) {
+		evaluateBatch(contexts, grainSize, false);
+	}
+
+	/**
+	 * Evaluates a single cycle for every context of the collection.
+	 * @param contexts Contexts to evaluate
+	 * @return Resulting contexts in iteration order of the given collection
+	 */
+	public List<Context<M>> evaluateAll(final Collection<Context<M>> contexts) {
+		return evaluateAll(contexts, defaultGrainSize(contexts.size()));
+	}
+
+	/**
+	 * Evaluates a single cycle for every context of the collection.
+	 * @param contexts Contexts to evaluate
+	 * @param grainSize Maximum number of contexts evaluated by a single task
+	 * @return Resulting contexts in iteration order of the given collection
+	 */
+	public List<Context<M>> evaluateAll(final Collection<Context<M>> contexts, final int grainSize) {
+		final Context<M>[] batch = toArray(contexts);
+
+		evaluateBatch(batch, grainSize, false);
+
+		return Arrays.asList(batch);
+	}
+
+	/**
+	 * Evaluates every context of the array until halted, replacing each element with its resulting
+	 * context. The work is split across the common fork-join pool.
+	 * @param contexts Contexts to evaluate in place
+	 */
+	public void evaluateAllUntilHalted(final Context<M>[] contexts) {
+		evaluateAllUntilHalted(contexts, defaultGrainSize(contexts.length));
+	}
+
+	/**
+	 * Evaluates every context of the array until halted, replacing each element with its resulting
+	 * context. The work is split across the common fork-join pool.
+	 * @param contexts Contexts to evaluate in place
+	 * @param grainSize Maximum number of contexts evaluated by a single task
+	 */
+	public void evaluateAllUntilHalted(final Context<M>[] contexts, final int grainSize) {
+		evaluateBatch(contexts, grainSize, true);
+	}
+
+	/**
+	 * Evaluates every context of the collection until halted.
+	 * @param contexts Contexts to evaluate
+	 * @return Resulting contexts in iteration order of the given collection
+	 */
+	public List<Context<M>> evaluateAllUntilHalted(final Collection<Context<M>> contexts) {
+		return evaluateAllUntilHalted(contexts, defaultGrainSize(contexts.size()));
+	}
+
+	/**
+	 * Evaluates every context of the collection until halted.
+	 * @param contexts Contexts to evaluate
+	 * @param grainSize Maximum number of contexts evaluated by a single task
+	 * @return Resulting contexts in iteration order of the given collection
+	 */
+	public List<Context<M>> evaluateAllUntilHalted(final Collection<Context<M>> contexts, final int grainSize) {
+		final Context<M>[] batch = toArray(contexts);
+
+		evaluateBatch(batch, grainSize, true);
+
+		return Arrays.asList(batch);
+	}
+
+	private void evaluateBatch(final Context<M>[] contexts, final int grainSize, final boolean untilHalted) {
+		requireNonNull(contexts, "contexts shall not be null");
+
+		if (grainSize < 1) {
+			throw new IllegalArgumentException("grainSize shall be positive");
+		}
+
+		if (contexts.length > 0) {
+			new BatchEvaluation<>(this, contexts, 0, contexts.length, grainSize, untilHalted).invoke();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <M> Context<M>[] toArray(final Collection<Context<M>> contexts) {
+		return requireNonNull(contexts, "contexts shall not be null").toArray(new Context[contexts.size()]);
+	}
+
+	private static int defaultGrainSize(final int size) {
+		return Math.max(MINIMUM_GRAIN_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() << 3));
+	}
+
+	/**
+	 * Gets a 64 bit hash of the structure of this machine, covering the names and accept flags of
+	 * its states in declaration order and the targets and events of their transitions. Predicates
+	 * and transforms are not covered, and events other than strings, enum constants and timeouts
+	 * only by their class, so that the fingerprint is the same in every run. Two machines with the same fingerprint assign the same
+	 * ordinals to equally named states.
+	 * @return Structural fingerprint
+	 */
+	public long getFingerprint() {
+		return plan.fingerprint;
+	}
+
+	/**
+	 * Tells whether this machine evaluates through an evaluator generated for it. Machines built
+	 * with {@link MachineBuilder#withCodeGeneration()} fall back to the interpreter when they record
+	 * metrics, read facts or shared guards, are too large, or when the evaluator cannot be defined.
+	 * @return {@code true} when a generated evaluator is in use
+	 */
+	public boolean isCodeGenerated() {
+		return plan.evaluator != null;
+	}
+
+	/**
+	 * Gets the report of the optimization pass run when this machine was built.
+	 * @return Report listing the removed states
+	 * @throws IllegalStateException When the machine was built without
+	 *         {@link MachineBuilder#withOptimization()}
+	 */
+	public OptimizationReport<M> getOptimizationReport() {
+		if (optimizationReport == null) {
+			throw new IllegalStateException("optimization is not enabled for this machine");
+		}
+
+		return optimizationReport;
+	}
+
+	/**
+	 * Takes a snapshot of the runtime metrics of this machine.
+	 * @return Current metrics
+	 * @throws IllegalStateException When the machine was built without
+	 *         {@link MachineBuilder#withMetrics()}
+	 */
+	public MetricsSnapshot<M> getMetrics() {
+		final ExecutionPlan<M> plan = this.plan;
+
+		if (plan.metrics == null) {
+			throw new IllegalStateException("metrics are not enabled for this machine");
+		}
+
+		return new MetricsSnapshot<>(plan, plan.metrics);
+	}
+
+	/**
+	 * Reads the statistics of the cache of transitions selected in states declared through
+	 * {@link StateBuilderFacade#withPureGuards(Function)}.
+	 * @return Current statistics
+	 * @throws IllegalStateException When no state of the machine caches its decisions
+	 */
+	public DecisionCacheStats getDecisionCacheStats() {
+		final DecisionCache<M> cache = plan.decisionCache;
+
+		if (cache == null) {
+			throw new IllegalStateException("decision cache is not enabled for this machine");
+		}
+
+		return cache.stats();
+	}
 
-		final Transitions<M> stateTransitions = transitions.get(context.getState());
+	void run(final ExecutionCursor<M> cursor) {
+		long steps = 0;
 
-		if (stateTransitions != null) {
-			for (final Transition<M> transition : stateTransitions) {
-				LOGGER.log(Level.FINE, () -> String.format("Evaluating transition %s", transition));
+		while (cursor.status == READY) {
+			step(cursor);
+			steps++;
+		}
 
-				final BiPredicate<State<M>, M> predicate = transition.getPredicate();
+		final MetricsRecorder metrics = plan.metrics;
 
-				if (predicate.test(state, transformedModel)) {
-					LOGGER.log(Level.FINE, "Predicate accepted");
+		if (metrics != null) {
+			metrics.stepsPerRun.record(steps);
+		}
+	}
 
-					state = transition.getTargetState();
-					resultingModel = transition.onEnter(state, resultingModel);
-					resultingModel = state.onEnter(resultingModel);
+	EvaluationResult<M> run(final ExecutionCursor<M> cursor, final EvaluationLimits<? super M> limits) {
+		requireNonNull(limits, "limits shall not be null");
+
+		final ToLongFunction<? super M> fingerprint = limits.fingerprint;
+		final long deadline = limits.timeout < 0 ? 0 : System.nanoTime() + limits.timeout;
+		StopReason reason = StopReason.HALTED;
+		long steps = 0;
+		int savedOrdinal = ExecutionPlan.UNKNOWN_STATE;
+		long savedFingerprint = 0;
+		// Resumed leaves are part of what decides the next state, so they are compared as well
+		int[] savedHistory = null;
+		long power = 1;
+		long length = 0;
+
+		while (cursor.status == READY) {
+			if (steps == limits.maxSteps) {
+				reason = StopReason.STEP_BUDGET_EXHAUSTED;
+				break;
+			}
 
-					final State<M> currentState = state;
-					final M currentModel = resultingModel;
+			if (limits.timeout >= 0 && steps % EvaluationLimits.CLOCK_INTERVAL == 0
+				&& System.nanoTime() - deadline >= 0) {
+				reason = StopReason.DEADLINE_EXCEEDED;
+				break;
+			}
 
-					LOGGER.log(Level.FINE,
-						() -> String.format("Resulting state: %s, Model: %s", currentState, currentModel));
+			step(cursor);
+			steps++;
+
+			if (fingerprint != null && cursor.status == READY) {
+				final long current = fingerprint.applyAsLong(cursor.model);
+
+				if (cursor.ordinal == savedOrdinal && current == savedFingerprint
+					&& Arrays.equals(cursor.history, savedHistory)) {
+					reason = StopReason.LIVELOCK;
 					break;
 				}
+
+				if (++length == power) {
+					savedOrdinal = cursor.ordinal;
+					savedFingerprint = current;
+					savedHistory = cursor.history == null ? null : cursor.history.clone();
+					power <<= 1;
+					length = 0;
+				}
 			}
 		}
 
-		final boolean shouldHalt = haltPredicate.test(state, resultingModel);
+		final MetricsRecorder metrics = plan.metrics;
+
+		if (metrics != null) {
+			metrics.stepsPerRun.record(steps);
+		}
+
+		return new EvaluationResult<>(cursor.snapshot(), reason, steps);
+	}
+
+	void step(final ExecutionCursor<M> cursor) {
+		final M transformedModel = preEvaluate(cursor);
+		final DecisionCache<M> cache = plan.decisionCache;
+		final Object key = cache == null ? null : cache.key(cursor.ordinal, transformedModel);
+
+		if (key == null) {
+			complete(cursor, select(cursor, transformedModel), transformedModel);
+			return;
+		}
+
+		int index = cache.find(cursor.ordinal, key);
+
+		if (index == DecisionCache.MISS) {
+			index = select(cursor, transformedModel);
+			cache.put(cursor.ordinal, key, index);
+		}
+
+		complete(cursor, index, transformedModel);
+	}
+
+	private int select(final ExecutionCursor<M> cursor, final M transformedModel) {
+		final GeneratedEvaluator<M> evaluator = plan.evaluator;
+
+		return evaluator == null ? plan.select(cursor, transformedModel)
+			: evaluator.select(cursor.ordinal, cursor.state, transformedModel);
+	}
+
+	void fire(final ExecutionCursor<M> cursor, final Object event) {
+		final M transformedModel = preEvaluate(cursor);
+
+		complete(cursor, plan.select(cursor, event, transformedModel), transformedModel);
+	}
+
+	private M preEvaluate(final ExecutionCursor<M> cursor) {
+		final ExecutionListener<M> listener = plan.listener;
+
+		if (listener != null) {
+			listener.onStep(cursor.state, cursor.status, cursor.model);
+		}
+
+		if (plan.metrics != null) {
+			plan.metrics.steps.increment();
+		}
+
+		cursor.cycle++;
+
+		return plan.preEvaluationTransform.apply(cursor.state, cursor.model);
+	}
+
+	private void complete(final ExecutionCursor<M> cursor, final int index, final M transformedModel) {
+		final ExecutionPlan<M> plan = this.plan;
+		final ExecutionListener<M> listener = plan.listener;
+		final MetricsRecorder metrics = plan.metrics;
+		State<M> state = cursor.state;
+		int ordinal = cursor.ordinal;
+		M resultingModel = transformedModel;
 
-		LOGGER.log(Level.FINE, () -> String.format("Appropriate to halt: %s", Boolean.valueOf(shouldHalt)));
+		if (index >= 0) {
+			if (listener != null) {
+				listener.onTransitionTaken(state, plan.transitions[index], transformedModel);
+			}
 
-		if (READY.equals(status) && shouldHalt) {
-			if (state.isAcceptState()) {
-				status = Status.ACCEPTED;
-				LOGGER.log(Level.FINE, "Setting status ACCEPTED");
+			ordinal = plan.targets[index];
+
+			if (plan.historySlots != null) {
+				ordinal = plan.resume(cursor.history, index, ordinal);
+			}
+
+			state = plan.states[ordinal];
+
+			if (plan.evaluator != null) {
+				resultingModel = plan.evaluator.transform(index, state, resultingModel);
+				resultingModel = plan.evaluator.enter(ordinal, state, resultingModel);
+			} else if (metrics == null) {
+				resultingModel = plan.transforms[index].apply(state, resultingModel);
+				resultingModel = plan.stateTransforms[ordinal].apply(state, resultingModel);
 			} else {
-				status = Status.CRASHED;
-				LOGGER.log(Level.FINE, "Setting status CRASHED");
+				final long start = System.nanoTime();
+
+				resultingModel = plan.transforms[index].apply(state, resultingModel);
+				resultingModel = plan.stateTransforms[ordinal].apply(state, resultingModel);
+				metrics.transformLatency.record(System.nanoTime() - start);
+				metrics.transitionFires[index].increment();
+				metrics.stateEntries[ordinal].increment();
+			}
+
+			if (listener != null) {
+				listener.onStateEntered(state, resultingModel);
 			}
 		}
 
-		final Context<M> resultingContext = new Context<>(state, status, resultingModel);
+		cursor.state = state;
+		cursor.ordinal = ordinal;
+		cursor.model = resultingModel;
 
-		LOGGER.log(Level.FINE,
-			() -> String.format("Completing evaluation with resulting context: %s", resultingContext));
+		if (cursor.status == READY && plan.haltPredicate.test(state, resultingModel)) {
+			cursor.status = state.isAcceptState() ? Status.ACCEPTED : Status.CRASHED;
 
-		return resultingContext;
-	}
+			if (metrics != null) {
+				metrics.halts[cursor.status.ordinal()].increment();
+			}
 
-	public Context<M> evaluateUntilHalted(final Context<M> context) {
-		Context<M> currentContext = context;
+			if (listener != null) {
+				listener.onHalt(state, cursor.status, resultingModel);
+			}
+		}
+	}
 
-		LOGGER.log(Level.FINE, "Evaluating until halted");
+	void compile() {
+		if (!parents.isEmpty()) {
+			hierarchy = StateHierarchy.flatten(this);
+		}
 
-		while (READY.equals(currentContext.getStatus())) {
-			currentContext = evaluate(currentContext);
+		if (optimizationEnabled) {
+			optimizationReport = MachineOptimizer.optimize(this);
 		}
 
-		LOGGER.log(Level.FINE, "Completed evaluation");
+		plan = ExecutionPlan.compile(this);
+	}
+
+	OptimizationReport<M> findOptimizationReport() {
+		return optimizationReport;
+	}
 
-		return currentContext;
+	ExecutionPlan<M> getPlan() {
+		return plan;
 	}
 
 	Supplier<M> getModelSupplier() {
@@ -176,6 +635,70 @@ public class Machine<M> {
 		return transitions;
 	}
 
+	List<ExecutionListener<M>> getListeners() {
+		return listeners;
+	}
+
+	Map<State<M>, State<M>> getParents() {
+		return parents;
+	}
+
+	Map<State<M>, BiFunction<State<M>, M, M>> getExitTransforms() {
+		return exitTransforms;
+	}
+
+	List<State<M>> getHistoryStates() {
+		return historyStates;
+	}
+
+	Map<State<M>, Function<? super M, ?>> getDecisionKeys() {
+		return decisionKeys;
+	}
+
+	int getDecisionCacheSize() {
+		return decisionCacheSize;
+	}
+
+	void setDecisionCacheSize(int decisionCacheSize) {
+		this.decisionCacheSize = decisionCacheSize;
+	}
+
+	StateHierarchy<M> getHierarchy() {
+		return hierarchy;
+	}
+
+	List<Fact<M, ?>> getFacts() {
+		return facts;
+	}
+
+	List<BiPredicate<State<M>, M>> getSharedGuards() {
+		return sharedGuards;
+	}
+
+	boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	boolean isOptimizationEnabled() {
+		return optimizationEnabled;
+	}
+
+	void setOptimizationEnabled(boolean optimizationEnabled) {
+		this.optimizationEnabled = optimizationEnabled;
+	}
+
+	boolean isCodeGenerationEnabled() {
+		return codeGenerationEnabled;
+	}
+
+	void setCodeGenerationEnabled(boolean codeGenerationEnabled) {
+		this.codeGenerationEnabled = codeGenerationEnabled;
+	}
+
 	void setModelSupplier(Supplier<M> modelSupplier) {
 		this.modelSupplier = modelSupplier;
 	}
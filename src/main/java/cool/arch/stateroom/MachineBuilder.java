@@ -29,4 +29,76 @@ public interface MachineBuilder<M> extends AbstractBuilder<Machine<M>> {
 
 	MachineBuilder<M> withPreEvaluationTransform(BiFunction<State<M>, M, M> preEvaluationTransform);
 
+	/**
+	 * Registers a listener notified of every evaluation cycle, taken transition and entered state.
+	 * Listeners are notified in registration order on the evaluating thread.
+	 * @param listener Listener to register
+	 * @return This builder
+	 */
+	MachineBuilder<M> withListener(ExecutionListener<M> listener);
+
+	/**
+	 * Requests that the built machine counts evaluation cycles, transitions taken, states entered and
+	 * halts, and records histograms of the steps per run and of the latency of guards and
+	 * transforms. The metrics are read through {@link Machine#getMetrics()}. Machines recording
+	 * metrics are not specialized by {@link #withCodeGeneration()}.
+	 * @return This builder
+	 * @see Machine#getMetrics()
+	 */
+	MachineBuilder<M> withMetrics();
+
+	/**
+	 * Declares a fact, so that transitions reading it share a single computation per evaluation
+	 * cycle.
+	 * @param fact Fact to declare
+	 * @return This builder
+	 */
+	MachineBuilder<M> withFact(Fact<M, ?> fact);
+
+	/**
+	 * Declares a guard instance used by several transitions, so that it is tested at most once per
+	 * evaluation cycle.
+	 * @param guard Guard to share
+	 * @return This builder
+	 */
+	MachineBuilder<M> withSharedGuard(BiPredicate<State<M>, M> guard);
+
+	/**
+	 * Declares a composite state as a history state, so that transitions targeting it resume the
+	 * leaf last active within it instead of entering its first substate. Last active leaves are kept
+	 * by contexts and cursors; {@link ContextStore}, {@link ContextCodec} and
+	 * {@link TransitionJournal} reject machines with history states.
+	 * @param state Composite state
+	 * @return This builder
+	 * @see StateBuilderFacade#within(State)
+	 */
+	MachineBuilder<M> withHistory(State<M> state);
+
+	/**
+	 * Requests that the built machine drops the states unreachable from the start state and merges
+	 * equivalent states. Merging assumes that predicates and transforms do not tell equivalent states
+	 * apart by the state instance they are passed.
+	 * @return This builder
+	 * @see Machine#getOptimizationReport()
+	 */
+	MachineBuilder<M> withOptimization();
+
+	/**
+	 * Requests that the built machine evaluates through a class generated for it, in which every
+	 * guard and transform is called from a call site of its own. The machine silently keeps using
+	 * the interpreter when no class can be generated for it.
+	 * @return This builder
+	 * @see Machine#isCodeGenerated()
+	 */
+	MachineBuilder<M> withCodeGeneration();
+
+	/**
+	 * Bounds the cache of the transitions selected in states declared through
+	 * {@link StateBuilderFacade#withPureGuards(java.util.function.Function)}. Defaults to
+	 * {@value DecisionCache#DEFAULT_MAXIMUM_SIZE} decisions.
+	 * @param maximumSize Maximum number of cached decisions, rounded up to a power of two
+	 * @return This builder
+	 */
+	MachineBuilder<M> withDecisionCache(int maximumSize);
+
 }
@@ -18,8 +18,10 @@ import static java.util.Objects.requireNonNull;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 final class MachineBuilderImpl<M> extends AbstractBuilderImpl<Machine<M>> implements MachineBuilder<M> {
 
@@ -43,6 +45,53 @@ final class MachineBuilderImpl<M> extends AbstractBuilderImpl<Machine<M>> implem
 			errors.add("Invalid states: " + invalidStates);
 		}
 
+		final String undeclaredFacts = instance.getTransitions()
+			.values()
+			.stream()
+			.flatMap(t -> StreamSupport.stream(t.spliterator(), false))
+			.map(Transition::getFact)
+			.filter(fact -> fact != null && !instance.getFacts()
+				.contains(fact))
+			.map(Fact::getName)
+			.distinct()
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(undeclaredFacts)) {
+			errors.add("Undeclared facts: " + undeclaredFacts);
+		}
+
+		final String invalidParents = instance.getParents()
+			.values()
+			.stream()
+			.filter(state -> !states.contains(state))
+			.map(State::getName)
+			.distinct()
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(invalidParents)) {
+			errors.add("Invalid parent states: " + invalidParents);
+		}
+
+		final String cyclicStates = StateHierarchy.findCycles(instance.getParents())
+			.stream()
+			.map(State::getName)
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(cyclicStates)) {
+			errors.add("States nested within themselves: " + cyclicStates);
+		}
+
+		final String invalidHistoryStates = instance.getHistoryStates()
+			.stream()
+			.filter(state -> !instance.getParents()
+				.containsValue(state))
+			.map(State::getName)
+			.collect(Collectors.joining(", "));
+
+		if (!"".equals(invalidHistoryStates)) {
+			errors.add("History states without substates: " + invalidHistoryStates);
+		}
+
 		if (!states.contains(instance.getStartState())) {
 			errors.add("Invalid start state: " + instance.getStartState()
 				.getName());
@@ -51,6 +100,11 @@ final class MachineBuilderImpl<M> extends AbstractBuilderImpl<Machine<M>> implem
 		return errors;
 	}
 
+	@Override
+	protected void complete(final Machine<M> instance) {
+		instance.compile();
+	}
+
 	public MachineBuilder<M> withState(State<M> state, Transitions<M> transitions) {
 		getInstance().getTransitions()
 			.put(state, transitions);
@@ -58,6 +112,34 @@ final class MachineBuilderImpl<M> extends AbstractBuilderImpl<Machine<M>> implem
 		return this;
 	}
 
+	void withParent(final State<M> state, final State<M> parent) {
+		getInstance().getParents()
+			.put(state, parent);
+	}
+
+	void withExitTransform(final State<M> state, final BiFunction<State<M>, M, M> exitTransform) {
+		getInstance().getExitTransforms()
+			.put(state, exitTransform);
+	}
+
+	void withDecisionKey(final State<M> state, final Function<? super M, ?> keyExtractor) {
+		getInstance().getDecisionKeys()
+			.put(state, keyExtractor);
+	}
+
+	@Override
+	public MachineBuilder<M> withHistory(State<M> state) {
+		requireNonNull(state, "state shall not be null");
+
+		if (!getInstance().getHistoryStates()
+			.contains(state)) {
+			getInstance().getHistoryStates()
+				.add(state);
+		}
+
+		return this;
+	}
+
 	@Override
 	public MachineBuilder<M> withModelSupplier(Supplier<M> modelSupplier) {
 		getInstance().setModelSupplier(requireNonNull(modelSupplier, "modelSupplier shall not be null"));
@@ -87,6 +169,72 @@ final class MachineBuilderImpl<M> extends AbstractBuilderImpl<Machine<M>> implem
 		return this;
 	}
 
+	@Override
+	public MachineBuilder<M> withListener(ExecutionListener<M> listener) {
+		getInstance().getListeners()
+			.add(requireNonNull(listener, "listener shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withMetrics() {
+		getInstance().setMetricsEnabled(true);
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withFact(Fact<M, ?> fact) {
+		requireNonNull(fact, "fact shall not be null");
+
+		if (!getInstance().getFacts()
+			.contains(fact)) {
+			getInstance().getFacts()
+				.add(fact);
+		}
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withSharedGuard(BiPredicate<State<M>, M> guard) {
+		requireNonNull(guard, "guard shall not be null");
+
+		if (!getInstance().getSharedGuards()
+			.contains(guard)) {
+			getInstance().getSharedGuards()
+				.add(guard);
+		}
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withCodeGeneration() {
+		getInstance().setCodeGenerationEnabled(true);
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withDecisionCache(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize shall be positive: " + maximumSize);
+		}
+
+		getInstance().setDecisionCacheSize(maximumSize);
+
+		return this;
+	}
+
+	@Override
+	public MachineBuilder<M> withOptimization() {
+		getInstance().setOptimizationEnabled(true);
+
+		return this;
+	}
+
 	@Override
 	public StateBuilderFacade<M> withState(State<M> state) {
 		return new StateBuilderFacadeImpl<>(this, state);
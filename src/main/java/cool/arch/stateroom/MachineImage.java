@@ -0,0 +1,407 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32;
+
+/**
+ * Binary image of the execution plan of a machine, written and loaded by {@link MachineLoader}.
+ * <p>
+ * An image starts with a header holding a magic number, the format version, the
+ * {@link Machine#getFingerprint() fingerprint} of the machine, a CRC-32 checksum of the body and
+ * the length of the body. The body holds the counts of states, transitions, ids and events, the
+ * guard and transform ids, the events, the state names, and then fixed width columns: accept
+ * flags, state transform ids, the first transition of every state, and the target, guard,
+ * transform and event of every transition. Ids and events are written as indexes into their
+ * tables, or as {@code -1} when absent.
+ * <p>
+ * The body of an image whose checksum matches is trusted, so loading it only decodes the names
+ * and bulk copies the columns before resolving ids.
+ */
+final class MachineImage {
+
+	static final int MAGIC = 0x53524D49;
+
+	static final byte VERSION = 1;
+
+	static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+	private static final byte STRING_EVENT = 0;
+
+	private static final byte TIMEOUT_EVENT = 1;
+
+	private MachineImage() {
+		// Static utility
+	}
+
+	static <M> ByteBuffer encode(final Machine<M> machine, final Map<String, BiPredicate<State<M>, M>> guards,
+		final Map<String, BiFunction<State<M>, M, M>> modelTransforms) {
+		final ExecutionPlan<M> plan = machine.getPlan();
+		final int stateCount = plan.size();
+		final int transitionCount = plan.transitions.length;
+		final Map<Object, String> guardIds = ids(guards);
+		final Map<Object, String> modelTransformIds = ids(modelTransforms);
+		final Map<Object, Integer> usedGuards = new LinkedHashMap<>();
+		final Map<Object, Integer> usedTransforms = new LinkedHashMap<>();
+		final Map<Object, Integer> events = new LinkedHashMap<>();
+		final int[] stateTransforms = new int[stateCount];
+		final int[] guardColumn = new int[transitionCount];
+		final int[] transformColumn = new int[transitionCount];
+		final int[] eventColumn = new int[transitionCount];
+		final Set<String> unregisteredGuards = new LinkedHashSet<>();
+		final Set<String> unregisteredTransforms = new LinkedHashSet<>();
+		final Set<String> unsupportedEvents = new LinkedHashSet<>();
+		final Set<String> errors = new LinkedHashSet<>();
+
+		if (plan.historySlots != null) {
+			errors.add("History states cannot be written");
+		}
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			final State<M> state = plan.states[ordinal];
+
+			stateTransforms[ordinal] = !state.hasModelTransform() ? -1
+				: index(usedTransforms, modelTransformIds.get(state.getModelTransform()));
+
+			if (stateTransforms[ordinal] < 0 && state.hasModelTransform()) {
+				unregisteredTransforms.add(state.getName());
+			}
+
+			for (int i = plan.firstTransition[ordinal]; i < plan.firstTransition[ordinal + 1]; i++) {
+				final Transition<M> transition = plan.transitions[i];
+				final Object event = transition.getEvent();
+
+				guardColumn[i] = transition.isUnguarded() ? -1 : index(usedGuards, guardIds.get(transition.getPredicate()));
+				transformColumn[i] = !transition.hasModelTransform() ? -1
+					: index(usedTransforms, modelTransformIds.get(transition.getModelTransform()));
+				eventColumn[i] = event == null ? -1 : index(events, event);
+
+				if (guardColumn[i] < 0 && !transition.isUnguarded()) {
+					unregisteredGuards.add(state.getName());
+				}
+
+				if (transformColumn[i] < 0 && transition.hasModelTransform()) {
+					unregisteredTransforms.add(state.getName());
+				}
+
+				if (event != null && !(event instanceof String) && !(event instanceof Timeout)) {
+					unsupportedEvents.add(event.toString());
+				}
+			}
+		}
+
+		if (!unregisteredGuards.isEmpty()) {
+			errors.add("Unregistered guards in states: " + String.join(", ", unregisteredGuards));
+		}
+
+		if (!unregisteredTransforms.isEmpty()) {
+			errors.add("Unregistered transforms in states: " + String.join(", ", unregisteredTransforms));
+		}
+
+		if (!unsupportedEvents.isEmpty()) {
+			errors.add("Events other than strings and timeouts: " + String.join(", ", unsupportedEvents));
+		}
+
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Machine cannot be written to an image: " + String.join(", ", errors) + ".");
+		}
+
+		final List<byte[]> strings = new ArrayList<>();
+		int size = 6 * Integer.BYTES;
+
+		for (final Object guard : usedGuards.keySet()) {
+			size += string(strings, (String) guard);
+		}
+
+		for (final Object modelTransform : usedTransforms.keySet()) {
+			size += string(strings, (String) modelTransform);
+		}
+
+		for (final Object event : events.keySet()) {
+			size += Byte.BYTES + (event instanceof Timeout ? Long.BYTES : string(strings, (String) event));
+		}
+
+		for (final State<M> state : plan.states) {
+			size += string(strings, state.getName());
+		}
+
+		size += stateCount * (Byte.BYTES + 2 * Integer.BYTES) + Integer.BYTES + transitionCount * 4 * Integer.BYTES;
+
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+		int string = 0;
+
+		buffer.position(HEADER_SIZE);
+		buffer.putInt(stateCount);
+		buffer.putInt(transitionCount);
+		buffer.putInt(plan.startOrdinal);
+		buffer.putInt(usedGuards.size());
+		buffer.putInt(usedTransforms.size());
+		buffer.putInt(events.size());
+
+		for (int i = usedGuards.size() + usedTransforms.size(); i > 0; i--) {
+			putString(buffer, strings.get(string++));
+		}
+
+		for (final Object event : events.keySet()) {
+			if (event instanceof Timeout) {
+				buffer.put(TIMEOUT_EVENT);
+				buffer.putLong(((Timeout) event).toNanos());
+			} else {
+				buffer.put(STRING_EVENT);
+				putString(buffer, strings.get(string++));
+			}
+		}
+
+		while (string < strings.size()) {
+			putString(buffer, strings.get(string++));
+		}
+
+		for (final boolean acceptState : plan.acceptStates) {
+			buffer.put((byte) (acceptState ? 1 : 0));
+		}
+
+		putInts(buffer, stateTransforms);
+		putInts(buffer, plan.firstTransition);
+		putInts(buffer, plan.targets);
+		putInts(buffer, guardColumn);
+		putInts(buffer, transformColumn);
+		putInts(buffer, eventColumn);
+
+		final CRC32 checksum = new CRC32();
+
+		buffer.flip();
+		buffer.position(HEADER_SIZE);
+		checksum.update(buffer);
+		buffer.rewind();
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		buffer.putLong(plan.fingerprint);
+		buffer.putLong(checksum.getValue());
+		buffer.putInt(size);
+		buffer.rewind();
+
+		return buffer;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <M> Machine<M> decode(final ByteBuffer buffer, final MachineLoaderImpl<M> loader,
+		final Map<String, BiPredicate<State<M>, M>> guards,
+		final Map<String, BiFunction<State<M>, M, M>> modelTransforms) {
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Buffer does not hold a machine image");
+		}
+
+		final byte version = buffer.get();
+
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported machine image version: " + version);
+		}
+
+		final long fingerprint = buffer.getLong();
+		final long expectedChecksum = buffer.getLong();
+		final int size = buffer.getInt();
+
+		if (size < 0 || size > buffer.remaining()) {
+			throw new IllegalArgumentException("Truncated machine image");
+		}
+
+		final ByteBuffer body = buffer.slice();
+		final CRC32 checksum = new CRC32();
+
+		body.limit(size);
+		checksum.update(body);
+
+		if (checksum.getValue() != expectedChecksum) {
+			throw new IllegalArgumentException("Machine image checksum does not match, the image is corrupt");
+		}
+
+		body.rewind();
+		buffer.position(buffer.position() + size);
+
+		final int stateCount = body.getInt();
+		final int transitionCount = body.getInt();
+		final int startOrdinal = body.getInt();
+		final BiPredicate<State<M>, M>[] guardTable = new BiPredicate[body.getInt()];
+		final BiFunction<State<M>, M, M>[] transformTable = new BiFunction[body.getInt()];
+		final Object[] eventTable = new Object[body.getInt()];
+		final Set<String> unknownGuards = new LinkedHashSet<>();
+		final Set<String> unknownTransforms = new LinkedHashSet<>();
+		final Set<String> errors = new LinkedHashSet<>();
+
+		for (int i = 0; i < guardTable.length; i++) {
+			final String id = getString(body);
+
+			guardTable[i] = guards.get(id);
+
+			if (guardTable[i] == null) {
+				unknownGuards.add(id);
+			}
+		}
+
+		for (int i = 0; i < transformTable.length; i++) {
+			final String id = getString(body);
+
+			transformTable[i] = modelTransforms.get(id);
+
+			if (transformTable[i] == null) {
+				unknownTransforms.add(id);
+			}
+		}
+
+		if (!unknownGuards.isEmpty()) {
+			errors.add("Unknown guards: " + String.join(", ", unknownGuards));
+		}
+
+		if (!unknownTransforms.isEmpty()) {
+			errors.add("Unknown transforms: " + String.join(", ", unknownTransforms));
+		}
+
+		if (loader.getModelSupplier() == null) {
+			errors.add("modelSupplier shall not be null");
+		}
+
+		MachineLoaderImpl.check("Image", errors);
+
+		for (int i = 0; i < eventTable.length; i++) {
+			eventTable[i] = body.get() == TIMEOUT_EVENT ? new Timeout(Duration.ofNanos(body.getLong())) : getString(body);
+		}
+
+		final State<M>[] states = new State[stateCount];
+		final String[] names = new String[stateCount];
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			names[ordinal] = getString(body);
+		}
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			states[ordinal] = State.of(names[ordinal], body.get() != 0);
+		}
+
+		final int[] stateTransforms = getInts(body, stateCount);
+		final int[] firstTransition = getInts(body, stateCount + 1);
+		final int[] targets = getInts(body, transitionCount);
+		final int[] guardColumn = getInts(body, transitionCount);
+		final int[] transformColumn = getInts(body, transitionCount);
+		final int[] eventColumn = getInts(body, transitionCount);
+		final Transition<M>[] transitions = new Transition[transitionCount];
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			if (stateTransforms[ordinal] >= 0) {
+				states[ordinal].setModelTransform(transformTable[stateTransforms[ordinal]]);
+			}
+		}
+
+		for (int i = 0; i < transitionCount; i++) {
+			final Transition<M> transition = new Transition<>();
+
+			transition.setPredicate(guardColumn[i] < 0 ? Transition.always() : guardTable[guardColumn[i]]);
+			transition.setTargetState(states[targets[i]]);
+
+			if (transformColumn[i] >= 0) {
+				transition.setModelTransform(transformTable[transformColumn[i]]);
+			}
+
+			if (eventColumn[i] >= 0) {
+				transition.setEvent(eventTable[eventColumn[i]]);
+			}
+
+			transitions[i] = transition;
+		}
+
+		final Machine<M> machine = loader.assemble(states, startOrdinal, transitions, firstTransition, false);
+
+		if (machine.getFingerprint() != fingerprint) {
+			throw new IllegalArgumentException(String.format(
+				"Machine image fingerprint %016x does not match loaded machine fingerprint %016x",
+				Long.valueOf(fingerprint), Long.valueOf(machine.getFingerprint())));
+		}
+
+		return machine;
+	}
+
+	private static Map<Object, String> ids(final Map<String, ?> registry) {
+		final Map<Object, String> ids = new IdentityHashMap<>();
+
+		registry.forEach((id, function) -> ids.putIfAbsent(function, id));
+
+		return ids;
+	}
+
+	private static int index(final Map<Object, Integer> indexes, final Object key) {
+		return key == null ? -1
+			: indexes.computeIfAbsent(key, k -> Integer.valueOf(indexes.size()))
+				.intValue();
+	}
+
+	private static int string(final List<byte[]> strings, final String value) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		strings.add(bytes);
+
+		return Integer.BYTES + bytes.length;
+	}
+
+	private static void putString(final ByteBuffer buffer, final byte[] bytes) {
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String getString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+
+		if (buffer.hasArray()) {
+			final String value =
+				new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+
+			buffer.position(buffer.position() + length);
+
+			return value;
+		}
+
+		final byte[] bytes = new byte[length];
+
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void putInts(final ByteBuffer buffer, final int[] values) {
+		buffer.asIntBuffer()
+			.put(values);
+		buffer.position(buffer.position() + values.length * Integer.BYTES);
+	}
+
+	private static int[] getInts(final ByteBuffer buffer, final int count) {
+		final int[] values = new int[count];
+		final IntBuffer view = buffer.asIntBuffer();
+
+		view.get(values);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+
+		return values;
+	}
+}
@@ -0,0 +1,140 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Loads machines from tabular definitions in time linear in the size of the table, for machines
+ * too large to declare through {@link MachineBuilder}, and writes and loads binary images of built
+ * machines. Guards and transforms are referred to by the ids they are registered under. A loader
+ * may load any number of tables and images.
+ * @param <M> Type used to represent the machine model
+ * @see Machine#loader(Class)
+ */
+public interface MachineLoader<M> {
+
+	MachineLoader<M> withModelSupplier(Supplier<M> modelSupplier);
+
+	/**
+	 * Names the start state of the loaded machines. Defaults to the first state of each table.
+	 * @param startState Name of the start state
+	 * @return This loader
+	 */
+	MachineLoader<M> withStartState(String startState);
+
+	MachineLoader<M> haltWhen(BiPredicate<State<M>, M> predicate);
+
+	/**
+	 * Registers a guard under an id.
+	 * @param id Id used by the tables
+	 * @param guard Guard
+	 * @return This loader
+	 */
+	MachineLoader<M> withGuard(String id, BiPredicate<State<M>, M> guard);
+
+	/**
+	 * Registers a model transform under an id.
+	 * @param id Id used by the tables
+	 * @param modelTransform Model transform
+	 * @return This loader
+	 */
+	MachineLoader<M> withTransform(String id, BiFunction<State<M>, M, M> modelTransform);
+
+	/**
+	 * @return This loader
+	 * @see MachineBuilder#withOptimization()
+	 */
+	MachineLoader<M> withOptimization();
+
+	/**
+	 * @return This loader
+	 * @see MachineBuilder#withCodeGeneration()
+	 */
+	MachineLoader<M> withCodeGeneration();
+
+	/**
+	 * Loads a machine from columns. States are declared by the state columns and transitions by the
+	 * transition columns, which refer to states by their index. Transitions of a state keep the
+	 * order in which they appear.
+	 * @param states Names of the states
+	 * @param acceptStates Accept flags of the states
+	 * @param sources Indexes of the states the transitions leave
+	 * @param targets Indexes of the states the transitions enter
+	 * @param guards Guard ids of the transitions, or {@code null} to take every transition
+	 *        unconditionally. A {@code null} id takes the transition unconditionally.
+	 * @param modelTransforms Model transform ids of the transitions, or {@code null} to leave every
+	 *        model unchanged. A {@code null} id leaves the model unchanged.
+	 * @return Loaded machine
+	 * @throws IllegalStateException When the table refers to unknown states, guards or transforms
+	 */
+	Machine<M> load(String[] states, boolean[] acceptStates, int[] sources, int[] targets, String[] guards,
+		String[] modelTransforms);
+
+	/**
+	 * Loads a machine from comma separated rows of the form
+	 * {@code state,accept,target,guard,transform}. Every row declares its state, and the transition
+	 * to its target when the target is not empty. The accept flag is {@code true} or {@code false},
+	 * and empty guard and transform ids take the transition unconditionally and leave the model
+	 * unchanged. Fields are trimmed and cannot be quoted. Blank rows and rows starting with
+	 * {@code #} are skipped.
+	 * @param reader Reader of the table, not closed by this method
+	 * @return Loaded machine
+	 * @throws IOException When the table cannot be read
+	 * @throws IllegalStateException When rows are malformed or refer to unknown states, guards or
+	 *         transforms
+	 */
+	Machine<M> load(Reader reader) throws IOException;
+
+	/**
+	 * Writes an image of a built machine: its states, accept flags and transitions, with guards and
+	 * transforms referred to by their ids in this loader. String and timeout events are kept.
+	 * Halt predicates, pre-evaluation transforms, facts, shared guards, listeners and metrics are
+	 * not part of the image.
+	 * @param machine Machine, built by any means
+	 * @param path Path of the image, replaced when it exists
+	 * @throws IOException When the image cannot be written
+	 * @throws IllegalStateException When the machine uses guards or transforms not registered with
+	 *         this loader, other events, or history states
+	 */
+	void writeImage(Machine<M> machine, Path path) throws IOException;
+
+	/**
+	 * Loads a machine from an image written by {@link #writeImage(Machine, Path)}, through a read only
+	 * memory mapping of the file. The model supplier, halt predicate and code generation of this
+	 * loader apply, and the start state is the one of the image.
+	 * @param path Path of the image
+	 * @return Loaded machine
+	 * @throws IOException When the image cannot be read
+	 * @see #loadImage(ByteBuffer)
+	 */
+	Machine<M> loadImage(Path path) throws IOException;
+
+	/**
+	 * Loads a machine from an image at the current position of a buffer. The structure of an image
+	 * whose checksum matches is not validated again, only its guard and transform ids are resolved.
+	 * @param buffer Buffer holding the image, positioned after it on return
+	 * @return Loaded machine
+	 * @throws IllegalArgumentException When the buffer does not hold an intact image of a supported
+	 *         version
+	 * @throws IllegalStateException When the image refers to unknown guards or transforms
+	 */
+	Machine<M> loadImage(ByteBuffer buffer);
+}
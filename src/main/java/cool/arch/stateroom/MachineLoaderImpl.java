@@ -0,0 +1,432 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+final class MachineLoaderImpl<M> implements MachineLoader<M> {
+
+	private static final int COLUMNS = 5;
+
+	private final Map<String, BiPredicate<State<M>, M>> guards = new HashMap<>();
+
+	private final Map<String, BiFunction<State<M>, M, M>> modelTransforms = new HashMap<>();
+
+	private Supplier<M> modelSupplier;
+
+	private String startState;
+
+	private BiPredicate<State<M>, M> haltPredicate;
+
+	private boolean optimizationEnabled;
+
+	private boolean codeGenerationEnabled;
+
+	@Override
+	public MachineLoader<M> withModelSupplier(final Supplier<M> modelSupplier) {
+		this.modelSupplier = requireNonNull(modelSupplier, "modelSupplier shall not be null");
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> withStartState(final String startState) {
+		this.startState = requireNonNull(startState, "startState shall not be null");
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> haltWhen(final BiPredicate<State<M>, M> predicate) {
+		haltPredicate = requireNonNull(predicate, "predicate shall not be null");
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> withGuard(final String id, final BiPredicate<State<M>, M> guard) {
+		requireNonNull(id, "id shall not be null");
+		requireNonNull(guard, "guard shall not be null");
+
+		if (guards.putIfAbsent(id, guard) != null) {
+			throw new IllegalArgumentException("Guard already registered: " + id);
+		}
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> withTransform(final String id, final BiFunction<State<M>, M, M> modelTransform) {
+		requireNonNull(id, "id shall not be null");
+		requireNonNull(modelTransform, "modelTransform shall not be null");
+
+		if (modelTransforms.putIfAbsent(id, modelTransform) != null) {
+			throw new IllegalArgumentException("Transform already registered: " + id);
+		}
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> withOptimization() {
+		optimizationEnabled = true;
+
+		return this;
+	}
+
+	@Override
+	public MachineLoader<M> withCodeGeneration() {
+		codeGenerationEnabled = true;
+
+		return this;
+	}
+
+	@Override
+	public Machine<M> load(final String[] states, final boolean[] acceptStates, final int[] sources,
+		final int[] targets, final String[] guards, final String[] modelTransforms) {
+		requireNonNull(states, "states shall not be null");
+		requireNonNull(acceptStates, "acceptStates shall not be null");
+		requireNonNull(sources, "sources shall not be null");
+		requireNonNull(targets, "targets shall not be null");
+
+		if (acceptStates.length != states.length) {
+			throw new IllegalArgumentException("acceptStates shall have as many flags as there are states");
+		}
+
+		if (targets.length != sources.length || guards != null && guards.length != sources.length
+			|| modelTransforms != null && modelTransforms.length != sources.length) {
+			throw new IllegalArgumentException("transition columns shall have the same length");
+		}
+
+		return load(states, acceptStates, sources, targets, guards, modelTransforms, new LinkedHashSet<>());
+	}
+
+	@Override
+	public Machine<M> load(final Reader reader) throws IOException {
+		requireNonNull(reader, "reader shall not be null");
+
+		final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader
+			: new BufferedReader(reader);
+		final Map<String, Integer> ordinals = new HashMap<>();
+		final List<String> states = new ArrayList<>();
+		boolean[] acceptStates = new boolean[16];
+		int[] sources = new int[16];
+		String[] targets = new String[16];
+		String[] guards = new String[16];
+		String[] modelTransforms = new String[16];
+		int transitionCount = 0;
+		final StringJoiner malformedRows = new StringJoiner(", ");
+		final Set<String> conflictingStates = new LinkedHashSet<>();
+		final String[] fields = new String[COLUMNS];
+		int row = 0;
+
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			row++;
+
+			if (line.trim()
+				.isEmpty()
+				|| line.startsWith("#")) {
+				continue;
+			}
+
+			final int fieldCount = split(line, fields);
+
+			if (fieldCount < 2 || fieldCount > COLUMNS || fields[0].isEmpty()
+				|| !"true".equals(fields[1]) && !"false".equals(fields[1])) {
+				malformedRows.add(Integer.toString(row));
+				continue;
+			}
+
+			final boolean accept = "true".equals(fields[1]);
+			final Integer known = ordinals.putIfAbsent(fields[0], Integer.valueOf(states.size()));
+			final int source = known == null ? states.size() : known.intValue();
+
+			if (known == null) {
+				states.add(fields[0]);
+
+				if (source == acceptStates.length) {
+					acceptStates = Arrays.copyOf(acceptStates, source * 2);
+				}
+
+				acceptStates[source] = accept;
+			} else if (acceptStates[source] != accept) {
+				conflictingStates.add(fields[0]);
+			}
+
+			if (fieldCount > 2 && !fields[2].isEmpty()) {
+				if (transitionCount == sources.length) {
+					sources = Arrays.copyOf(sources, transitionCount * 2);
+					targets = Arrays.copyOf(targets, transitionCount * 2);
+					guards = Arrays.copyOf(guards, transitionCount * 2);
+					modelTransforms = Arrays.copyOf(modelTransforms, transitionCount * 2);
+				}
+
+				sources[transitionCount] = source;
+				targets[transitionCount] = fields[2];
+				guards[transitionCount] = fieldCount > 3 && !fields[3].isEmpty() ? fields[3] : null;
+				modelTransforms[transitionCount] = fieldCount > 4 && !fields[4].isEmpty() ? fields[4] : null;
+				transitionCount++;
+			}
+		}
+
+		final Set<String> errors = new LinkedHashSet<>();
+		final Set<String> invalidTargets = new LinkedHashSet<>();
+		final int[] targetOrdinals = new int[transitionCount];
+
+		if (malformedRows.length() > 0) {
+			errors.add("Malformed rows: " + malformedRows);
+		}
+
+		if (!conflictingStates.isEmpty()) {
+			errors.add("States with conflicting accept flags: " + String.join(", ", conflictingStates));
+		}
+
+		for (int i = 0; i < transitionCount; i++) {
+			final Integer target = ordinals.get(targets[i]);
+
+			if (target == null) {
+				invalidTargets.add(targets[i]);
+			} else {
+				targetOrdinals[i] = target.intValue();
+			}
+		}
+
+		if (!invalidTargets.isEmpty()) {
+			errors.add("Invalid states: " + String.join(", ", invalidTargets));
+		}
+
+		return load(states.toArray(new String[states.size()]), Arrays.copyOf(acceptStates, states.size()),
+			Arrays.copyOf(sources, transitionCount), targetOrdinals, Arrays.copyOf(guards, transitionCount),
+			Arrays.copyOf(modelTransforms, transitionCount), errors);
+	}
+
+	@Override
+	public void writeImage(final Machine<M> machine, final Path path) throws IOException {
+		requireNonNull(machine, "machine shall not be null");
+		requireNonNull(path, "path shall not be null");
+
+		final ByteBuffer image = MachineImage.encode(machine, guards, modelTransforms);
+
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (image.hasRemaining()) {
+				channel.write(image);
+			}
+		}
+	}
+
+	@Override
+	public Machine<M> loadImage(final Path path) throws IOException {
+		requireNonNull(path, "path shall not be null");
+
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return loadImage(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	@Override
+	public Machine<M> loadImage(final ByteBuffer buffer) {
+		return MachineImage.decode(requireNonNull(buffer, "buffer shall not be null"), this, guards, modelTransforms);
+	}
+
+	Supplier<M> getModelSupplier() {
+		return modelSupplier;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Machine<M> load(final String[] states, final boolean[] acceptStates, final int[] sources,
+		final int[] targets, final String[] guardIds, final String[] modelTransformIds, final Set<String> errors) {
+		final int stateCount = states.length;
+		final int transitionCount = sources.length;
+		final Map<String, Integer> ordinals = new HashMap<>(Math.max(16, (int) (stateCount / 0.75f) + 1));
+		final State<M>[] built = new State[stateCount];
+		final Set<String> duplicateStates = new LinkedHashSet<>();
+		final StringJoiner unnamedStates = new StringJoiner(", ");
+
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			if (states[ordinal] == null) {
+				unnamedStates.add(Integer.toString(ordinal));
+			} else if (ordinals.putIfAbsent(states[ordinal], Integer.valueOf(ordinal)) != null) {
+				duplicateStates.add(states[ordinal]);
+			} else {
+				built[ordinal] = State.of(states[ordinal], acceptStates[ordinal]);
+			}
+		}
+
+		final BiPredicate<State<M>, M>[] predicates = new BiPredicate[transitionCount];
+		final BiFunction<State<M>, M, M>[] transforms = new BiFunction[transitionCount];
+		final int[] firstTransition = new int[stateCount + 1];
+		final StringJoiner invalidTransitions = new StringJoiner(", ");
+		final Set<String> unknownGuards = new LinkedHashSet<>();
+		final Set<String> unknownTransforms = new LinkedHashSet<>();
+
+		for (int i = 0; i < transitionCount; i++) {
+			if (sources[i] < 0 || sources[i] >= stateCount || targets[i] < 0 || targets[i] >= stateCount) {
+				invalidTransitions.add(Integer.toString(i));
+			} else {
+				firstTransition[sources[i] + 1]++;
+			}
+
+			final String guardId = guardIds == null ? null : guardIds[i];
+			final String modelTransformId = modelTransformIds == null ? null : modelTransformIds[i];
+
+			predicates[i] = guardId == null ? Transition.always() : guards.get(guardId);
+			transforms[i] = modelTransformId == null ? null : modelTransforms.get(modelTransformId);
+
+			if (predicates[i] == null) {
+				unknownGuards.add(guardId);
+			}
+
+			if (modelTransformId != null && transforms[i] == null) {
+				unknownTransforms.add(modelTransformId);
+			}
+		}
+
+		if (unnamedStates.length() > 0) {
+			errors.add("Unnamed states: " + unnamedStates);
+		}
+
+		if (!duplicateStates.isEmpty()) {
+			errors.add("Duplicate states: " + String.join(", ", duplicateStates));
+		}
+
+		if (invalidTransitions.length() > 0) {
+			errors.add("Transitions with invalid states: " + invalidTransitions);
+		}
+
+		if (!unknownGuards.isEmpty()) {
+			errors.add("Unknown guards: " + String.join(", ", unknownGuards));
+		}
+
+		if (!unknownTransforms.isEmpty()) {
+			errors.add("Unknown transforms: " + String.join(", ", unknownTransforms));
+		}
+
+		if (modelSupplier == null) {
+			errors.add("modelSupplier shall not be null");
+		}
+
+		final Integer start = startState != null ? ordinals.get(startState)
+			: stateCount > 0 ? Integer.valueOf(0) : null;
+
+		if (start == null) {
+			errors.add("Invalid start state: " + startState);
+		}
+
+		check("Table", errors);
+
+		// Transitions are grouped by state with a counting sort, keeping their order within a state
+		for (int ordinal = 0; ordinal < stateCount; ordinal++) {
+			firstTransition[ordinal + 1] += firstTransition[ordinal];
+		}
+
+		final int[] next = Arrays.copyOf(firstTransition, stateCount);
+		final Transition<M>[] ordered = new Transition[transitionCount];
+
+		for (int i = 0; i < transitionCount; i++) {
+			final Transition<M> transition = new Transition<>();
+
+			transition.setPredicate(predicates[i]);
+			transition.setTargetState(built[targets[i]]);
+
+			if (transforms[i] != null) {
+				transition.setModelTransform(transforms[i]);
+			}
+
+			ordered[next[sources[i]]++] = transition;
+		}
+
+		return assemble(built, start.intValue(), ordered, firstTransition, optimizationEnabled);
+	}
+
+	/**
+	 * Creates a machine from validated states and transitions, the transitions being grouped by
+	 * state.
+	 */
+	Machine<M> assemble(final State<M>[] states, final int startOrdinal, final Transition<M>[] ordered,
+		final int[] firstTransition, final boolean optimize) {
+		final List<Transition<M>> transitions = Arrays.asList(ordered);
+		final Machine<M> machine = new Machine<>(states.length);
+
+		for (int ordinal = 0; ordinal < states.length; ordinal++) {
+			machine.getTransitions()
+				.put(states[ordinal],
+					new Transitions<>(transitions, firstTransition[ordinal], firstTransition[ordinal + 1]));
+		}
+
+		machine.setModelSupplier(modelSupplier);
+		machine.setStartState(states[startOrdinal]);
+
+		if (haltPredicate != null) {
+			machine.setHaltPredicate(haltPredicate);
+		}
+
+		machine.setOptimizationEnabled(optimize);
+		machine.setCodeGenerationEnabled(codeGenerationEnabled);
+		machine.compile();
+
+		return machine;
+	}
+
+	static void check(final String subject, final Set<String> errors) {
+		if (!errors.isEmpty()) {
+			final StringJoiner joiner = new StringJoiner(", ", subject + " is not valid to be loaded: ", ".");
+
+			errors.forEach(joiner::add);
+
+			throw new IllegalStateException(joiner.toString());
+		}
+	}
+
+	private static int split(final String line, final String[] fields) {
+		int count = 0;
+		int from = 0;
+
+		while (true) {
+			final int to = line.indexOf(',', from);
+
+			if (count == fields.length) {
+				return count + 1;
+			}
+
+			fields[count++] = (to < 0 ? line.substring(from) : line.substring(from, to)).trim();
+
+			if (to < 0) {
+				return count;
+			}
+
+			from = to + 1;
+		}
+	}
+}
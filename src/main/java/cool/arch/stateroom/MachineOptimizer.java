@@ -0,0 +1,213 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimization pass run by {@link MachineBuilder#build()} when requested through
+ * {@link MachineBuilder#withOptimization()}.
+ * <p>
+ * The pass first drops every state that cannot be reached from the start state, then merges
+ * states that are provably equivalent. Two states are equivalent when they have the same accept
+ * flag, the same model transform instance and, in declaration order, transitions with equal events,
+ * the same predicate (or fact and fact test) and transform instances and equivalent targets.
+ * Equivalence classes are found by partition refinement, and every class is represented by the
+ * start state or else by its first state in declaration order. States are not merged in machines
+ * with history states.
+ */
+final class MachineOptimizer {
+
+	private MachineOptimizer() {
+		// Static utility
+	}
+
+	static <M> OptimizationReport<M> optimize(final Machine<M> machine) {
+		final Map<State<M>, Transitions<M>> transitions = machine.getTransitions();
+		final int stateCount = transitions.size();
+		final int transitionCount = transitions.values()
+			.stream()
+			.mapToInt(Transitions::size)
+			.sum();
+		final List<State<M>> unreachable = prune(transitions, machine.getStartState());
+		final StateHierarchy<M> hierarchy = machine.getHierarchy();
+		// Leaves resumed by history states are told apart by the history states containing them
+		final Map<State<M>, State<M>> merged = hierarchy != null && hierarchy.hasHistory() ? Collections.emptyMap()
+			: merge(transitions, machine.getStartState());
+		final int remainingTransitions = transitions.values()
+			.stream()
+			.mapToInt(Transitions::size)
+			.sum();
+
+		return new OptimizationReport<>(stateCount, transitions.size(), transitionCount, remainingTransitions,
+			unreachable, merged);
+	}
+
+	private static <M> List<State<M>> prune(final Map<State<M>, Transitions<M>> transitions, final State<M> start) {
+		final Set<State<M>> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+		final Deque<State<M>> pending = new ArrayDeque<>();
+
+		reachable.add(start);
+		pending.add(start);
+
+		while (!pending.isEmpty()) {
+			for (final Transition<M> transition : transitions.get(pending.poll())) {
+				if (reachable.add(transition.getTargetState())) {
+					pending.add(transition.getTargetState());
+				}
+			}
+		}
+
+		final List<State<M>> unreachable = new ArrayList<>();
+
+		transitions.keySet()
+			.removeIf(state -> !reachable.contains(state) && unreachable.add(state));
+
+		return unreachable;
+	}
+
+	private static <M> Map<State<M>, State<M>> merge(final Map<State<M>, Transitions<M>> transitions,
+		final State<M> start) {
+		@SuppressWarnings("unchecked")
+		final State<M>[] states = transitions.keySet()
+			.toArray(new State[transitions.size()]);
+		final Map<State<M>, Integer> ordinals = new IdentityHashMap<>();
+
+		for (int ordinal = 0; ordinal < states.length; ordinal++) {
+			ordinals.put(states[ordinal], Integer.valueOf(ordinal));
+		}
+
+		final int[][] targets = new int[states.length][];
+		final Map<Object, Integer> identities = new IdentityHashMap<>();
+		final Map<Object, Integer> events = new HashMap<>();
+		final Map<List<Integer>, Integer> signatures = new HashMap<>();
+		int[] classes = new int[states.length];
+
+		for (int ordinal = 0; ordinal < states.length; ordinal++) {
+			final List<Integer> signature = new ArrayList<>();
+			final List<Transition<M>> outgoing = new ArrayList<>();
+
+			transitions.get(states[ordinal])
+				.forEach(outgoing::add);
+			targets[ordinal] = new int[outgoing.size()];
+			signature.add(Integer.valueOf(states[ordinal].isAcceptState() ? 1 : 0));
+			signature.add(id(identities, states[ordinal].getModelTransform()));
+
+			for (int i = 0; i < outgoing.size(); i++) {
+				final Transition<M> transition = outgoing.get(i);
+				final Object event = transition.getEvent();
+
+				targets[ordinal][i] = ordinals.get(transition.getTargetState())
+					.intValue();
+				signature.add(event == null ? Integer.valueOf(-1) : id(events, event));
+				signature.add(transition.getFact() == null ? id(identities, transition.getPredicate())
+					: id(identities, transition.getFactPredicate()));
+				signature.add(transition.getFact() == null ? Integer.valueOf(-1) : id(identities, transition.getFact()));
+				signature.add(id(identities, transition.getModelTransform()));
+			}
+
+			classes[ordinal] = id(signatures, signature).intValue();
+		}
+
+		int classCount = signatures.size();
+
+		while (true) {
+			final int[] refined = new int[states.length];
+
+			signatures.clear();
+
+			for (int ordinal = 0; ordinal < states.length; ordinal++) {
+				final List<Integer> signature = new ArrayList<>(targets[ordinal].length + 1);
+
+				signature.add(Integer.valueOf(classes[ordinal]));
+
+				for (final int target : targets[ordinal]) {
+					signature.add(Integer.valueOf(classes[target]));
+				}
+
+				refined[ordinal] = id(signatures, signature).intValue();
+			}
+
+			classes = refined;
+
+			if (signatures.size() == classCount) {
+				break;
+			}
+
+			classCount = signatures.size();
+		}
+
+		if (classCount == states.length) {
+			return new LinkedHashMap<>();
+		}
+
+		final int[] representatives = new int[classCount];
+		final Map<State<M>, State<M>> merged = new LinkedHashMap<>();
+
+		Arrays.fill(representatives, -1);
+		representatives[classes[ordinals.get(start)
+			.intValue()]] = ordinals.get(start)
+				.intValue();
+
+		for (int ordinal = 0; ordinal < states.length; ordinal++) {
+			if (representatives[classes[ordinal]] < 0) {
+				representatives[classes[ordinal]] = ordinal;
+			} else if (representatives[classes[ordinal]] != ordinal) {
+				merged.put(states[ordinal], states[representatives[classes[ordinal]]]);
+			}
+		}
+
+		transitions.keySet()
+			.removeAll(merged.keySet());
+
+		// Transitions may be shared with other machines, so retargeted ones are replaced by copies
+		for (final Map.Entry<State<M>, Transitions<M>> entry : transitions.entrySet()) {
+			final List<Transition<M>> retargeted = new ArrayList<>(entry.getValue()
+				.size());
+			boolean changed = false;
+
+			for (final Transition<M> transition : entry.getValue()) {
+				final State<M> representative = merged.get(transition.getTargetState());
+
+				if (representative == null) {
+					retargeted.add(transition);
+				} else {
+					retargeted.add(transition.derive(representative, transition.getModelTransform(),
+						transition.getHistorySlot()));
+					changed = true;
+				}
+			}
+
+			if (changed) {
+				entry.setValue(new Transitions<>(retargeted));
+			}
+		}
+
+		return merged;
+	}
+
+	private static <K> Integer id(final Map<K, Integer> ids, final K key) {
+		return ids.computeIfAbsent(key, k -> Integer.valueOf(ids.size()));
+	}
+}
@@ -0,0 +1,273 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Hosts a population of long lived machine instances keyed by id and evaluates them as model
+ * mutations are submitted.
+ * <p>
+ * Every submission applies its mutation to the model of the instance and then performs a single
+ * evaluation cycle. Submissions to the same instance are applied one at a time in submission
+ * order; submissions to different instances run concurrently on a small pool of carrier threads.
+ * Each instance is a {@link ContextMailbox} that only occupies a carrier thread while it has
+ * pending submissions, so idle instances cost no more than their current context and a few
+ * bookkeeping fields.
+ * <p>
+ * Timed transitions declared through {@link StateBuilderFacade#after(Duration, State)} are
+ * scheduled on a hashed hierarchical timing wheel whenever an instance enters a state that has one, and fired
+ * through the mailbox of the instance once due, so idle instances are never polled. Unless a clock
+ * is given, the wheel is advanced by a timer thread of the runtime every {@value #DEFAULT_TICK_MILLIS}
+ * milliseconds.
+ * @param <K> Type of the instance ids
+ * @param <M> Type used to represent the machine model
+ */
+public final class MachineRuntime<K, M> implements AutoCloseable {
+
+	public static final long DEFAULT_TICK_MILLIS = 10;
+
+	private final Machine<M> machine;
+
+	private final Executor executor;
+
+	private final ExecutorService ownedExecutor;
+
+	private final ConcurrentMap<K, ContextMailbox<M>> instances = new ConcurrentHashMap<>();
+
+	/**
+	 * Wheel scheduling timed transitions, or {@code null} when the machine has none.
+	 */
+	private final TimingWheel<ContextMailbox<M>> timers;
+
+	/**
+	 * Thread advancing the wheel, or {@code null} when the wheel is advanced by the caller.
+	 */
+	private final ScheduledExecutorService ticker;
+
+	/**
+	 * Creates a runtime evaluating on its own pool with one carrier thread per available processor.
+	 * The pool is shut down by {@link #close()}.
+	 * @param machine Machine evaluating the instances
+	 */
+	public MachineRuntime(final Machine<M> machine) {
+		this(machine, Executors.newFixedThreadPool(Runtime.getRuntime()
+			.availableProcessors(), new CarrierThreadFactory("stateroom-carrier-")), true);
+	}
+
+	/**
+	 * Creates a runtime evaluating on the given executor, which remains owned by the caller.
+	 * @param machine Machine evaluating the instances
+	 * @param executor Executor providing the carrier threads
+	 */
+	public MachineRuntime(final Machine<M> machine, final Executor executor) {
+		this(machine, executor, false);
+	}
+
+	/**
+	 * Creates a runtime evaluating on the given executor whose timed transitions are measured with
+	 * the given clock and only fire when the caller invokes {@link #advanceTimers()}.
+	 * @param machine Machine evaluating the instances
+	 * @param executor Executor providing the carrier threads
+	 * @param clock Clock in nanoseconds, such as {@link System#nanoTime()}
+	 * @param tick Resolution of timed transitions
+	 */
+	public MachineRuntime(final Machine<M> machine, final Executor executor, final LongSupplier clock,
+		final Duration tick) {
+		this(machine, executor, false, requireNonNull(clock, "clock shall not be null"),
+			requireNonNull(tick, "tick shall not be null").toNanos(), false);
+	}
+
+	private MachineRuntime(final Machine<M> machine, final Executor executor, final boolean owned) {
+		this(machine, executor, owned, System::nanoTime, TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_MILLIS), true);
+	}
+
+	private MachineRuntime(final Machine<M> machine, final Executor executor, final boolean owned,
+		final LongSupplier clock, final long tickNanos, final boolean ticking) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.executor = requireNonNull(executor, "executor shall not be null");
+		this.ownedExecutor = owned ? (ExecutorService) executor : null;
+
+		if (machine.getPlan().timeouts == null) {
+			timers = null;
+			ticker = null;
+		} else {
+			timers = new TimingWheel<>(clock, tickNanos);
+			ticker = ticking
+				? Executors.newSingleThreadScheduledExecutor(new CarrierThreadFactory("stateroom-timer-")) : null;
+
+			if (ticker != null) {
+				ticker.scheduleAtFixedRate(this::advanceTimers, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Starts a new instance at the start state of the machine.
+	 * @param id Id of the new instance
+	 * @return Initial context of the instance
+	 */
+	public Context<M> start(final K id) {
+		final Context<M> context = machine.create();
+
+		start(id, context);
+
+		return context;
+	}
+
+	/**
+	 * Starts a new instance, or resumes a previously persisted one, at the given context.
+	 * @param id Id of the new instance
+	 * @param context Context to resume from
+	 */
+	public void start(final K id, final Context<M> context) {
+		requireNonNull(id, "id shall not be null");
+		requireNonNull(context, "context shall not be null");
+
+		final ContextMailbox<M> instance = new ContextMailbox<>(machine, context, executor, timers);
+
+		if (instances.putIfAbsent(id, instance) != null) {
+			instance.close();
+
+			throw new IllegalArgumentException("An instance is already running with id: " + id);
+		}
+	}
+
+	/**
+	 * Submits a model mutation to an instance. The mutation is applied and followed by a single
+	 * evaluation cycle once all previously submitted mutations of the instance have completed.
+	 * @param id Id of the instance
+	 * @param mutation Mutation to apply to the model before evaluating
+	 * @return Future completed with the context resulting from the evaluation cycle
+	 */
+	public CompletableFuture<Context<M>> submit(final K id, final UnaryOperator<M> mutation) {
+		return instance(id).submit(mutation);
+	}
+
+	/**
+	 * Gets the context of an instance after its most recently drained batch of submissions.
+	 * @param id Id of the instance
+	 * @return Current context of the instance
+	 */
+	public Context<M> get(final K id) {
+		return instance(id).getContext();
+	}
+
+	/**
+	 * Removes an instance. Submissions that are already pending still complete.
+	 * @param id Id of the instance
+	 * @return Context of the instance at the time of removal, or {@code null} when unknown
+	 */
+	public Context<M> remove(final K id) {
+		final ContextMailbox<M> instance = instances.remove(id);
+
+		if (instance == null) {
+			return null;
+		}
+
+		instance.close();
+
+		return instance.getContext();
+	}
+
+	/**
+	 * Fires the timed transitions that are due. Invoked by the timer thread of the runtime, or by
+	 * the caller when the runtime was created with a clock of its own.
+	 * @return Number of timers that expired
+	 */
+	public int advanceTimers() {
+		if (timers == null) {
+			return 0;
+		}
+
+		final List<TimingWheel.Timer<ContextMailbox<M>>> expired = timers.advance();
+
+		for (final TimingWheel.Timer<ContextMailbox<M>> timer : expired) {
+			timer.payload.expire(timer);
+		}
+
+		return expired.size();
+	}
+
+	/**
+	 * Gets the number of timed transitions waiting for their instance to stay long enough.
+	 * @return Number of pending timers
+	 */
+	public int getPendingTimers() {
+		return timers == null ? 0 : timers.size();
+	}
+
+	/**
+	 * Gets the number of hosted instances.
+	 * @return Number of instances
+	 */
+	public int size() {
+		return instances.size();
+	}
+
+	@Override
+	public void close() {
+		if (ticker != null) {
+			ticker.shutdown();
+		}
+
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdown();
+		}
+	}
+
+	private ContextMailbox<M> instance(final K id) {
+		final ContextMailbox<M> instance = instances.get(requireNonNull(id, "id shall not be null"));
+
+		if (instance == null) {
+			throw new IllegalArgumentException("No instance running with id: " + id);
+		}
+
+		return instance;
+	}
+
+	private static final class CarrierThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger COUNTER = new AtomicInteger();
+
+		private final String prefix;
+
+		CarrierThreadFactory(final String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, prefix + COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
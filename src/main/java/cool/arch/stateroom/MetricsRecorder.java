@@ -0,0 +1,66 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Striped counters and histograms collected by a machine built with
+ * {@link MachineBuilder#withMetrics()}. Counters are indexed by the ordinals of the owning
+ * {@link ExecutionPlan}, so recording never hashes and never blocks concurrent evaluations.
+ */
+final class MetricsRecorder {
+
+	final LongAdder steps = new LongAdder();
+
+	final LongAdder[] stateEntries;
+
+	final LongAdder[] transitionFires;
+
+	final LongAdder[] halts;
+
+	final Histogram stepsPerRun = new Histogram();
+
+	final Histogram guardLatency = new Histogram();
+
+	final Histogram transformLatency = new Histogram();
+
+	MetricsRecorder(final int stateCount, final int transitionCount) {
+		stateEntries = adders(stateCount);
+		transitionFires = adders(transitionCount);
+		halts = adders(Status.values().length);
+	}
+
+	private static LongAdder[] adders(final int count) {
+		final LongAdder[] adders = new LongAdder[count];
+
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+
+		return adders;
+	}
+
+	static long[] sums(final LongAdder[] adders) {
+		final long[] sums = new long[adders.length];
+
+		for (int i = 0; i < adders.length; i++) {
+			sums[i] = adders[i].sum();
+		}
+
+		return sums;
+	}
+}
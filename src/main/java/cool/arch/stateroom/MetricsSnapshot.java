@@ -0,0 +1,148 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Point in time copy of the runtime metrics of a {@link Machine}. Counters recorded by concurrent
+ * evaluations while the snapshot is taken may or may not be included.
+ * @param <M> Type used to represent the machine model
+ */
+public final class MetricsSnapshot<M> {
+
+	private final long steps;
+
+	private final Map<State<M>, Long> stateEntries;
+
+	private final Map<Transition<M>, Long> transitionFires;
+
+	private final Map<Status, Long> halts;
+
+	private final HistogramSnapshot stepsPerRun;
+
+	private final HistogramSnapshot guardLatency;
+
+	private final HistogramSnapshot transformLatency;
+
+	MetricsSnapshot(final ExecutionPlan<M> plan, final MetricsRecorder recorder) {
+		final long[] entries = MetricsRecorder.sums(recorder.stateEntries);
+		final long[] fires = MetricsRecorder.sums(recorder.transitionFires);
+		final Map<State<M>, Long> stateEntries = new LinkedHashMap<>();
+		final Map<Transition<M>, Long> transitionFires = new IdentityHashMap<>();
+		final Map<Status, Long> halts = new EnumMap<>(Status.class);
+
+		for (int ordinal = 0; ordinal < entries.length; ordinal++) {
+			stateEntries.put(plan.states[ordinal], Long.valueOf(entries[ordinal]));
+		}
+
+		for (int index = 0; index < fires.length; index++) {
+			transitionFires.put(plan.transitions[index], Long.valueOf(fires[index]));
+		}
+
+		for (final Status status : Status.values()) {
+			halts.put(status, Long.valueOf(recorder.halts[status.ordinal()].sum()));
+		}
+
+		this.steps = recorder.steps.sum();
+		this.stateEntries = Collections.unmodifiableMap(stateEntries);
+		this.transitionFires = Collections.unmodifiableMap(transitionFires);
+		this.halts = Collections.unmodifiableMap(halts);
+		this.stepsPerRun = recorder.stepsPerRun.snapshot();
+		this.guardLatency = recorder.guardLatency.snapshot();
+		this.transformLatency = recorder.transformLatency.snapshot();
+	}
+
+	/**
+	 * Gets the number of evaluation cycles performed.
+	 * @return Number of evaluation cycles
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Gets the number of times each state has been entered through a transition, in declaration
+	 * order of the states.
+	 * @return Entries per state
+	 */
+	public Map<State<M>, Long> getStateEntries() {
+		return stateEntries;
+	}
+
+	/**
+	 * Gets the number of times each transition has been taken.
+	 * @return Fires per transition
+	 */
+	public Map<Transition<M>, Long> getTransitionFires() {
+		return transitionFires;
+	}
+
+	/**
+	 * Gets the number of runs that halted with each status.
+	 * @return Halts per status
+	 */
+	public Map<Status, Long> getHalts() {
+		return halts;
+	}
+
+	/**
+	 * Gets the distribution of evaluation cycles per run for runs evaluated until halted.
+	 * @return Steps per run
+	 */
+	public HistogramSnapshot getStepsPerRun() {
+		return stepsPerRun;
+	}
+
+	/**
+	 * Gets the distribution of guard execution times in nanoseconds.
+	 * @return Guard latency
+	 */
+	public HistogramSnapshot getGuardLatency() {
+		return guardLatency;
+	}
+
+	/**
+	 * Gets the distribution of model transform execution times in nanoseconds, covering the
+	 * transform of the transition taken and of the state entered.
+	 * @return Transform latency
+	 */
+	public HistogramSnapshot getTransformLatency() {
+		return transformLatency;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{'steps':");
+		sb.append(steps);
+		sb.append(", 'halts':");
+		sb.append(halts);
+		sb.append(", 'stepsPerRun':");
+		sb.append(stepsPerRun);
+		sb.append(", 'guardLatency':");
+		sb.append(guardLatency);
+		sb.append(", 'transformLatency':");
+		sb.append(transformLatency);
+		sb.append("}");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,38 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of a machine model, supplied to a {@link ContextCodec}.
+ * @param <M> Type used to represent the machine model
+ */
+public interface ModelCodec<M> {
+
+	/**
+	 * Writes the model at the current position of the buffer.
+	 * @param model Model to write, possibly {@code null}
+	 * @param buffer Buffer to write to
+	 */
+	void encode(M model, ByteBuffer buffer);
+
+	/**
+	 * Reads a model written by {@link #encode(Object, ByteBuffer)} from the current position of the
+	 * buffer.
+	 * @param buffer Buffer to read from
+	 * @return Decoded model
+	 */
+	M decode(ByteBuffer buffer);
+}
@@ -0,0 +1,109 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of the optimization pass requested through {@link MachineBuilder#withOptimization()}.
+ * @param <M> Type used to represent the machine model
+ */
+public final class OptimizationReport<M> {
+
+	private final int statesBefore;
+
+	private final int statesAfter;
+
+	private final int transitionsBefore;
+
+	private final int transitionsAfter;
+
+	private final List<State<M>> unreachableStates;
+
+	private final Map<State<M>, State<M>> mergedStates;
+
+	OptimizationReport(final int statesBefore, final int statesAfter, final int transitionsBefore,
+		final int transitionsAfter, final List<State<M>> unreachableStates, final Map<State<M>, State<M>> mergedStates) {
+		this.statesBefore = statesBefore;
+		this.statesAfter = statesAfter;
+		this.transitionsBefore = transitionsBefore;
+		this.transitionsAfter = transitionsAfter;
+		this.unreachableStates = Collections.unmodifiableList(unreachableStates);
+		this.mergedStates = Collections.unmodifiableMap(mergedStates);
+	}
+
+	public int getStatesBefore() {
+		return statesBefore;
+	}
+
+	public int getStatesAfter() {
+		return statesAfter;
+	}
+
+	public int getTransitionsBefore() {
+		return transitionsBefore;
+	}
+
+	public int getTransitionsAfter() {
+		return transitionsAfter;
+	}
+
+	/**
+	 * Gets the states dropped because they cannot be reached from the start state. Contexts in one
+	 * of these states are no longer evaluated by the machine.
+	 * @return Unreachable states in declaration order
+	 */
+	public List<State<M>> getUnreachableStates() {
+		return unreachableStates;
+	}
+
+	/**
+	 * Gets the states merged into an equivalent state. Contexts in a merged state are evaluated as if
+	 * they were in its representative.
+	 * @return Representative of every merged state, in declaration order of the merged states
+	 */
+	public Map<State<M>, State<M>> getMergedStates() {
+		return mergedStates;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{'states':");
+		sb.append(statesBefore);
+		sb.append("->");
+		sb.append(statesAfter);
+		sb.append(", 'transitions':");
+		sb.append(transitionsBefore);
+		sb.append("->");
+		sb.append(transitionsAfter);
+		sb.append(", 'unreachable':[");
+		sb.append(unreachableStates.stream()
+			.map(state -> "'" + state.getName() + "'")
+			.collect(Collectors.joining(",")));
+		sb.append("], 'merged':{");
+		sb.append(mergedStates.entrySet()
+			.stream()
+			.map(e -> String.format("'%s':'%s'", e.getKey()
+				.getName(), e.getValue()
+					.getName()))
+			.collect(Collectors.joining(",")));
+		sb.append("}}");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,241 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a machine over a long sequence of events in parallel. The sequence is split into chunks,
+ * every chunk but the first is run speculatively from all states at once to map each possible
+ * start state onto its end state, and the mappings are then composed in order to obtain the exact
+ * end state. Runs from different start states usually converge within a few events, after which
+ * they are advanced as one.
+ * <p>
+ * Speculation is only sound when the next state depends on the current state and event alone, so
+ * every transition of the machine has to be an unguarded event transition as declared by
+ * {@link StateBuilderFacade#on(Object, State)}. Only states are tracked: models, transforms and
+ * the halt predicate are not evaluated, and events without a transition leave the state unchanged
+ * as with {@link Machine#fire(Context, Object)}.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ * @param <M> Type used to represent the machine model
+ */
+public final class SpeculativeRunner<M> {
+
+	private static final int MINIMUM_CHUNK_SIZE = 4096;
+
+	private final ExecutionPlan<M> plan;
+
+	SpeculativeRunner(final Machine<M> machine) {
+		plan = requireNonNull(machine, "machine shall not be null").getPlan();
+
+		if (plan.historySlots != null) {
+			throw new IllegalStateException("Machines with history states cannot be run speculatively");
+		}
+
+		final List<String> guarded = new ArrayList<>();
+
+		for (int ordinal = 0; ordinal < plan.size(); ordinal++) {
+			for (int index = plan.firstTransition[ordinal]; index < plan.firstTransition[ordinal + 1]; index++) {
+				final Transition<M> transition = plan.transitions[index];
+
+				if (transition.getEvent() == null || !transition.isUnguarded()) {
+					guarded.add(plan.states[ordinal].getName());
+					break;
+				}
+			}
+		}
+
+		if (!guarded.isEmpty()) {
+			throw new IllegalStateException("States with transitions other than unguarded event transitions: "
+				+ String.join(", ", guarded));
+		}
+	}
+
+	/**
+	 * Runs the events from the given state, splitting them into chunks sized for the common
+	 * fork-join pool.
+	 * @param start State to start from
+	 * @param events Events to dispatch in order, none of which shall be {@code null}
+	 * @return End state
+	 */
+	public State<M> run(final State<M> start, final List<?> events) {
+		requireNonNull(events, "events shall not be null");
+
+		return run(start, events,
+			Math.max(MINIMUM_CHUNK_SIZE, events.size() / (ForkJoinPool.getCommonPoolParallelism() << 2)));
+	}
+
+	/**
+	 * Runs the events from the given state, splitting them into chunks of the given size.
+	 * @param start State to start from
+	 * @param events Events to dispatch in order, none of which shall be {@code null}
+	 * @param chunkSize Number of events per chunk
+	 * @return End state
+	 */
+	public State<M> run(final State<M> start, final List<?> events, final int chunkSize) {
+		requireNonNull(events, "events shall not be null");
+
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize shall be positive");
+		}
+
+		final int ordinal = ordinalOf(start);
+		// Copied once, so that every lane of every chunk reads events in constant time whatever the list
+		final Object[] sequence = events.toArray();
+		final int size = sequence.length;
+
+		if (size <= chunkSize) {
+			return plan.states[advance(ordinal, sequence, 0, size)];
+		}
+
+		final int stateCount = plan.size();
+		final int[] all = new int[stateCount];
+
+		for (int s = 0; s < stateCount; s++) {
+			all[s] = s;
+		}
+
+		final int chunks = (size + chunkSize - 1) / chunkSize;
+		final int[][] mappings = new int[chunks][];
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks - 1);
+
+		for (int chunk = 1; chunk < chunks; chunk++) {
+			final int index = chunk;
+			final int from = chunk * chunkSize;
+
+			final int to = Math.min(size, from + chunkSize);
+
+			tasks.add(ForkJoinTask.adapt(() -> mappings[index] = speculate(all, sequence, from, to))
+				.fork());
+		}
+
+		int current = advance(ordinal, sequence, 0, chunkSize);
+
+		for (int chunk = 1; chunk < chunks; chunk++) {
+			tasks.get(chunk - 1)
+				.join();
+			current = mappings[chunk][current];
+		}
+
+		return plan.states[current];
+	}
+
+	/**
+	 * Runs the events from the given state on the calling thread.
+	 * @param start State to start from
+	 * @param events Events to dispatch in order, none of which shall be {@code null}
+	 * @return End state
+	 */
+	public State<M> runSequentially(final State<M> start, final List<?> events) {
+		requireNonNull(events, "events shall not be null");
+
+		final Object[] sequence = events.toArray();
+
+		return plan.states[advance(ordinalOf(start), sequence, 0, sequence.length)];
+	}
+
+	private int ordinalOf(final State<M> start) {
+		final int ordinal = plan.ordinalOf(requireNonNull(start, "start shall not be null"));
+
+		if (ordinal == ExecutionPlan.UNKNOWN_STATE) {
+			throw new IllegalArgumentException("start shall be a state of the machine");
+		}
+
+		return ordinal;
+	}
+
+	private int advance(final int ordinal, final Object[] events, final int from, final int to) {
+		int current = ordinal;
+
+		for (int index = from; index < to; index++) {
+			current = next(current, events[index]);
+		}
+
+		return current;
+	}
+
+	/**
+	 * Runs a range of events from each of the given start states. Runs that reach the same state
+	 * are merged into a single lane, so the cost drops to that of a single run once all of them
+	 * have converged.
+	 * @param starts Distinct start ordinals
+	 * @param events Events to dispatch
+	 * @param from First event of the range, inclusive
+	 * @param to Last event of the range, exclusive
+	 * @return End ordinal for each start ordinal
+	 */
+	private int[] speculate(final int[] starts, final Object[] events, final int from, final int to) {
+		final int[] lanes = starts.clone();
+		final int[] laneOfStart = new int[starts.length];
+		final int[] owner = new int[plan.size()];
+		final int[] stamps = new int[plan.size()];
+		final int[] remap = new int[starts.length];
+		int count = lanes.length;
+
+		for (int s = 0; s < starts.length; s++) {
+			laneOfStart[s] = s;
+		}
+
+		for (int index = from; index < to; index++) {
+			final Object event = events[index];
+			final int stamp = index - from + 1;
+			int merged = 0;
+
+			for (int lane = 0; lane < count; lane++) {
+				final int target = next(lanes[lane], event);
+
+				if (stamps[target] == stamp) {
+					remap[lane] = owner[target];
+					merged++;
+				} else {
+					final int kept = lane - merged;
+
+					stamps[target] = stamp;
+					owner[target] = kept;
+					remap[lane] = kept;
+					lanes[kept] = target;
+				}
+			}
+
+			if (merged > 0) {
+				count -= merged;
+
+				for (int s = 0; s < laneOfStart.length; s++) {
+					laneOfStart[s] = remap[laneOfStart[s]];
+				}
+			}
+		}
+
+		final int[] ends = new int[starts.length];
+
+		for (int s = 0; s < starts.length; s++) {
+			ends[s] = lanes[laneOfStart[s]];
+		}
+
+		return ends;
+	}
+
+	private int next(final int ordinal, final Object event) {
+		final EventTable table = plan.eventTables[ordinal];
+		final int slot = table == null ? -1 : table.find(event);
+
+		return slot < 0 ? ordinal : plan.targets[table.start(slot)];
+	}
+}
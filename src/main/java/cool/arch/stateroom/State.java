@@ -1,7 +1,5 @@
 package cool.arch.stateroom;
 
-import java.lang.invoke.MethodHandles;
-
 /*
  * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
  * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
@@ -17,17 +15,14 @@ import java.lang.invoke.MethodHandles;
 
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class State<M> {
 
-	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup()
-		.lookupClass()
-		.toString());
-
 	private static final AtomicLong COUNTER = new AtomicLong(-1);
 
+	@SuppressWarnings("rawtypes")
+	private static final BiFunction IDENTITY = (state, model) -> model;
+
 	private String name = "State " + COUNTER.incrementAndGet();
 
 	private boolean acceptState = false;
@@ -40,14 +35,11 @@ public class State<M> {
 	/**
 	 * 
 	 */
-	private BiFunction<State<M>, M, M> modelTransform = (state, model) -> model;
+	@SuppressWarnings("unchecked")
+	private BiFunction<State<M>, M, M> modelTransform = IDENTITY;
 
 	public M onEnter(final M model) {
-		LOGGER.log(Level.FINE, () -> String.format("Entering State: %s, Model before state: %s", State.this, model));
-		final M resultingModel = modelTransform.apply(this, model);
-		LOGGER.log(Level.FINE, () -> "Model after state: " + resultingModel);
-
-		return resultingModel;
+		return modelTransform.apply(this, model);
 	}
 
 	public String getName() {
@@ -62,6 +54,13 @@ public class State<M> {
 		return modelTransform;
 	}
 
+	/**
+	 * @return Whether a model transform other than the identity has been set
+	 */
+	boolean hasModelTransform() {
+		return modelTransform != IDENTITY;
+	}
+
 	void setName(String name) {
 		this.name = name;
 	}
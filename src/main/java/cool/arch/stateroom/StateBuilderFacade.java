@@ -13,8 +13,11 @@ package cool.arch.stateroom;
  * #L%
  */
 
+import java.time.Duration;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public interface StateBuilderFacade<M> {
 
@@ -23,6 +26,59 @@ public interface StateBuilderFacade<M> {
 	StateBuilderFacade<M> to(State<M> targetState, BiPredicate<State<M>, M> predicate,
 		BiFunction<State<M>, M, M> modelTransform);
 
+	<V> StateBuilderFacade<M> to(State<M> targetState, Fact<M, V> fact, Predicate<? super V> predicate);
+
+	<V> StateBuilderFacade<M> to(State<M> targetState, Fact<M, V> fact, Predicate<? super V> predicate,
+		BiFunction<State<M>, M, M> modelTransform);
+
+	StateBuilderFacade<M> on(Object event, State<M> targetState);
+
+	StateBuilderFacade<M> on(Object event, State<M> targetState, BiPredicate<State<M>, M> guard);
+
+	StateBuilderFacade<M> on(Object event, State<M> targetState, BiPredicate<State<M>, M> guard,
+		BiFunction<State<M>, M, M> modelTransform);
+
+	/**
+	 * Declares a transition taken once an instance hosted by a {@link MachineRuntime} has stayed in
+	 * the state being declared for the given duration. The first timed transition declared or
+	 * inherited by a state applies; its timer starts whenever the instance enters the state from a
+	 * different state.
+	 * @param duration Time to stay in the state
+	 * @param targetState Target state
+	 * @return This facade
+	 */
+	StateBuilderFacade<M> after(Duration duration, State<M> targetState);
+
+	StateBuilderFacade<M> after(Duration duration, State<M> targetState, BiFunction<State<M>, M, M> modelTransform);
+
+	/**
+	 * Nests the state being declared within a composite state, whose transitions it inherits after
+	 * its own. The first substate declared within a composite state is entered when the composite
+	 * state is.
+	 * @param parent Composite state
+	 * @return This facade
+	 */
+	StateBuilderFacade<M> within(State<M> parent);
+
+	/**
+	 * Declares the guards of the transitions leaving the state being declared without an event as
+	 * pure functions of a key extracted from the model, so that the transition they select is cached
+	 * per state and key. Transforms still run on every step. Has no effect on composite states.
+	 * @param keyExtractor Function extracting from the model everything the guards depend on, with
+	 *        keys suitable for hashing
+	 * @return This facade
+	 * @see MachineBuilder#withDecisionCache(int)
+	 * @see Machine#getDecisionCacheStats()
+	 */
+	StateBuilderFacade<M> withPureGuards(Function<? super M, ?> keyExtractor);
+
+	/**
+	 * Sets the transform applied to the model when a transition leaves the state being declared.
+	 * @param exitTransform Exit transform
+	 * @return This facade
+	 */
+	StateBuilderFacade<M> onExit(BiFunction<State<M>, M, M> exitTransform);
+
 	StateBuilderFacade<M> withState(State<M> state);
 
 	Machine<M> build();
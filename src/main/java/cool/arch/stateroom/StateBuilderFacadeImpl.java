@@ -13,10 +13,15 @@ package cool.arch.stateroom;
  * #L%
  */
 
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 final class StateBuilderFacadeImpl<M> implements StateBuilderFacade<M> {
 
@@ -43,6 +48,38 @@ final class StateBuilderFacadeImpl<M> implements StateBuilderFacade<M> {
 		return new StateBuilderFacadeImpl<>(builder, state);
 	}
 
+	@Override
+	public StateBuilderFacade<M> after(Duration duration, State<M> targetState) {
+		return on(timeout(duration), targetState, Transition.always());
+	}
+
+	@Override
+	public StateBuilderFacade<M> after(Duration duration, State<M> targetState,
+		BiFunction<State<M>, M, M> modelTransform) {
+		return on(timeout(duration), targetState, Transition.always(), modelTransform);
+	}
+
+	@Override
+	public StateBuilderFacade<M> within(State<M> parent) {
+		builder.withParent(state, requireNonNull(parent, "parent shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public StateBuilderFacade<M> withPureGuards(Function<? super M, ?> keyExtractor) {
+		builder.withDecisionKey(state, requireNonNull(keyExtractor, "keyExtractor shall not be null"));
+
+		return this;
+	}
+
+	@Override
+	public StateBuilderFacade<M> onExit(BiFunction<State<M>, M, M> exitTransform) {
+		builder.withExitTransform(state, requireNonNull(exitTransform, "exitTransform shall not be null"));
+
+		return this;
+	}
+
 	@Override
 	public Machine<M> build() {
 		builder.withState(state, new Transitions<>(builtTransitions));
@@ -75,4 +112,73 @@ final class StateBuilderFacadeImpl<M> implements StateBuilderFacade<M> {
 
 		return this;
 	}
+
+	@Override
+	public <V> StateBuilderFacade<M> to(State<M> targetState, Fact<M, V> fact, Predicate<? super V> predicate) {
+		final Transition<M> transition = Transition.<M> builder()
+			.to(targetState)
+			.when(fact, predicate)
+			.build();
+
+		builtTransitions.add(transition);
+
+		return this;
+	}
+
+	@Override
+	public <V> StateBuilderFacade<M> to(State<M> targetState, Fact<M, V> fact, Predicate<? super V> predicate,
+		BiFunction<State<M>, M, M> modelTransform) {
+		final Transition<M> transition = Transition.<M> builder()
+			.to(targetState)
+			.when(fact, predicate)
+			.transformModelWith(modelTransform)
+			.build();
+
+		builtTransitions.add(transition);
+
+		return this;
+	}
+
+	@Override
+	public StateBuilderFacade<M> on(Object event, State<M> targetState) {
+		return on(event, targetState, Transition.always());
+	}
+
+	@Override
+	public StateBuilderFacade<M> on(Object event, State<M> targetState, BiPredicate<State<M>, M> guard) {
+		final Transition<M> transition = Transition.<M> builder()
+			.on(event)
+			.to(targetState)
+			.when(guard)
+			.build();
+
+		builtTransitions.add(transition);
+
+		return this;
+	}
+
+	@Override
+	public StateBuilderFacade<M> on(Object event, State<M> targetState, BiPredicate<State<M>, M> guard,
+		BiFunction<State<M>, M, M> modelTransform) {
+		final Transition<M> transition = Transition.<M> builder()
+			.on(event)
+			.to(targetState)
+			.when(guard)
+			.transformModelWith(modelTransform)
+			.build();
+
+		builtTransitions.add(transition);
+
+		return this;
+	}
+
+	private static Timeout timeout(final Duration duration) {
+		requireNonNull(duration, "duration shall not be null");
+
+		if (duration.isNegative()) {
+			throw new IllegalArgumentException("duration shall not be negative");
+		}
+
+		return new Timeout(duration);
+	}
 }
@@ -0,0 +1,287 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Nesting of the states of a {@link Machine}, flattened away by {@link MachineBuilder#build()}.
+ * <p>
+ * A state with substates is composite and is never current itself: entering it enters its first
+ * declared substate, recursively, or for a history state the leaf that was last active within it.
+ * Every leaf inherits the transitions of its ancestors after its own, so that the innermost
+ * matching transition wins. All transitions are external: a transition declared on a state exits
+ * the current leaf and its ancestors up to, excluding, the innermost state containing both the
+ * declaring state and the target, applying exit transforms from the inside out, then applies its
+ * own transform, then enters the states down to the target leaf, applying entry transforms from
+ * the outside in.
+ * <p>
+ * Flattening replaces the transitions of the machine by the transitions of its leaves, each with
+ * the exit and entry transforms along its path composed into its own transform, so evaluation
+ * costs the same as for a flat machine. Only history states need run specific data, the last active
+ * leaf of each of them, which is kept by contexts and cursors.
+ * @param <M> Type used to represent the machine model
+ */
+final class StateHierarchy<M> {
+
+	private final Map<State<M>, State<M>> parents;
+
+	private final Map<State<M>, BiFunction<State<M>, M, M>> exitTransforms;
+
+	private final List<State<M>> historyStates;
+
+	private final Map<State<M>, State<M>> initialSubstates = new IdentityHashMap<>();
+
+	/**
+	 * For every history state and every leaf within it, the states strictly between the two that
+	 * have an entry transform, from the outside in.
+	 */
+	private final Map<State<M>, Map<State<M>, State<M>[]>> descents = new IdentityHashMap<>();
+
+	private StateHierarchy(final Machine<M> machine) {
+		parents = machine.getParents();
+		exitTransforms = machine.getExitTransforms();
+		historyStates = machine.getHistoryStates();
+
+		for (final State<M> state : machine.getTransitions()
+			.keySet()) {
+			final State<M> parent = parents.get(state);
+
+			if (parent != null) {
+				initialSubstates.putIfAbsent(parent, state);
+			}
+		}
+
+		for (final State<M> state : historyStates) {
+			descents.put(state, new IdentityHashMap<>());
+		}
+	}
+
+	/**
+	 * Replaces the transitions of the machine by those of its leaves and moves its start state onto
+	 * the leaf it enters.
+	 * @param machine Machine to flatten
+	 * @param <M> Type used to represent the machine model
+	 * @return Hierarchy of the machine
+	 */
+	static <M> StateHierarchy<M> flatten(final Machine<M> machine) {
+		final StateHierarchy<M> hierarchy = new StateHierarchy<>(machine);
+		final Map<State<M>, Transitions<M>> transitions = machine.getTransitions();
+		final Map<State<M>, Transitions<M>> declared = new LinkedHashMap<>(transitions);
+
+		transitions.clear();
+
+		for (final State<M> leaf : declared.keySet()) {
+			if (!hierarchy.initialSubstates.containsKey(leaf)) {
+				final List<Transition<M>> flattened = new ArrayList<>();
+
+				for (State<M> source = leaf; source != null; source = hierarchy.parents.get(source)) {
+					for (final Transition<M> transition : declared.get(source)) {
+						flattened.add(hierarchy.flatten(leaf, source, transition));
+					}
+				}
+
+				transitions.put(leaf, new Transitions<>(flattened));
+				hierarchy.addDescents(leaf);
+			}
+		}
+
+		machine.setStartState(hierarchy.initialLeaf(machine.getStartState()));
+
+		return hierarchy;
+	}
+
+	boolean hasHistory() {
+		return !historyStates.isEmpty();
+	}
+
+	int getHistoryCount() {
+		return historyStates.size();
+	}
+
+	/**
+	 * Gets the slots of the history states containing a leaf.
+	 * @param leaf Leaf to look up
+	 * @return Slots of the history states containing the leaf
+	 */
+	int[] historySlotsOf(final State<M> leaf) {
+		return historyStates.stream()
+			.filter(state -> contains(state, leaf))
+			.mapToInt(historyStates::indexOf)
+			.toArray();
+	}
+
+	State<M> initialLeaf(final State<M> state) {
+		State<M> leaf = state;
+
+		while (initialSubstates.containsKey(leaf)) {
+			leaf = initialSubstates.get(leaf);
+		}
+
+		return leaf;
+	}
+
+	private Transition<M> flatten(final State<M> leaf, final State<M> source, final Transition<M> transition) {
+		final State<M> target = transition.getTargetState();
+		final State<M> domain = domainOf(source, target);
+		final int historySlot = historyStates.indexOf(target);
+		final List<State<M>> exited = new ArrayList<>();
+		final Deque<State<M>> path = new ArrayDeque<>();
+
+		for (State<M> state = leaf; state != domain; state = parents.get(state)) {
+			if (exitTransforms.containsKey(state)) {
+				exited.add(state);
+			}
+		}
+
+		for (State<M> state = target; state != domain; state = parents.get(state)) {
+			path.push(state);
+		}
+
+		if (historySlot < 0) {
+			for (State<M> state = initialSubstates.get(target); state != null; state = initialSubstates.get(state)) {
+				path.add(state);
+			}
+
+			// The entry transform of the leaf is applied by the execution plan
+			path.removeLast();
+		}
+
+		path.removeIf(state -> !state.hasModelTransform());
+
+		final State<M> leafTarget = initialLeaf(target);
+
+		if (source == leaf && target == leafTarget && exited.isEmpty() && path.isEmpty()) {
+			return transition;
+		}
+
+		return transition.derive(leafTarget, compose(exited, transition.getModelTransform(), path,
+			historySlot < 0 ? null : descents.get(target)), historySlot);
+	}
+
+	@SuppressWarnings("unchecked")
+	private BiFunction<State<M>, M, M> compose(final List<State<M>> exited,
+		final BiFunction<State<M>, M, M> transform, final Deque<State<M>> entered,
+		final Map<State<M>, State<M>[]> descent) {
+		final State<M>[] exitStates = exited.toArray(new State[exited.size()]);
+		final BiFunction<State<M>, M, M>[] exits = exited.stream()
+			.map(exitTransforms::get)
+			.toArray(BiFunction[]::new);
+		final State<M>[] entryStates = entered.toArray(new State[entered.size()]);
+
+		return (state, model) -> {
+			M result = model;
+
+			for (int i = 0; i < exits.length; i++) {
+				result = exits[i].apply(exitStates[i], result);
+			}
+
+			result = transform.apply(state, result);
+
+			for (final State<M> entry : entryStates) {
+				result = entry.onEnter(result);
+			}
+
+			if (descent != null) {
+				for (final State<M> entry : descent.get(state)) {
+					result = entry.onEnter(result);
+				}
+			}
+
+			return result;
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addDescents(final State<M> leaf) {
+		final Deque<State<M>> between = new ArrayDeque<>();
+
+		for (State<M> state = parents.get(leaf); state != null; state = parents.get(state)) {
+			final Map<State<M>, State<M>[]> descent = descents.get(state);
+
+			if (descent != null) {
+				descent.put(leaf, between.toArray(new State[between.size()]));
+			}
+
+			if (state.hasModelTransform()) {
+				between.push(state);
+			}
+		}
+	}
+
+	/**
+	 * Finds the innermost state that strictly contains both the declaring state and the target of a
+	 * transition.
+	 * @param source State declaring the transition
+	 * @param target Target of the transition
+	 * @return Innermost common proper ancestor, or {@code null} when there is none
+	 */
+	private State<M> domainOf(final State<M> source, final State<M> target) {
+		State<M> domain = parents.get(source);
+
+		while (domain != null && !contains(domain, target)) {
+			domain = parents.get(domain);
+		}
+
+		return domain;
+	}
+
+	/**
+	 * Tells whether a state is a proper ancestor of another.
+	 * @param ancestor Candidate ancestor
+	 * @param state State to look up
+	 * @return {@code true} when the candidate strictly contains the state
+	 */
+	private boolean contains(final State<M> ancestor, final State<M> state) {
+		for (State<M> parent = parents.get(state); parent != null; parent = parents.get(parent)) {
+			if (parent == ancestor) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds the states nested within themselves.
+	 * @param parents Parent of every nested state
+	 * @param <M> Type used to represent the machine model
+	 * @return States on a nesting cycle
+	 */
+	static <M> List<State<M>> findCycles(final Map<State<M>, State<M>> parents) {
+		final List<State<M>> cyclic = new ArrayList<>();
+
+		for (final State<M> state : parents.keySet()) {
+			State<M> parent = parents.get(state);
+
+			for (int depth = 0; parent != null && parent != state && depth < parents.size(); depth++) {
+				parent = parents.get(parent);
+			}
+
+			if (parent == state) {
+				cyclic.add(state);
+			}
+		}
+
+		return Collections.unmodifiableList(cyclic);
+	}
+}
@@ -0,0 +1,217 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed hierarchical timing wheel. Time is divided into ticks and timers are kept in
+ * {@value #LEVELS} wheels of {@value #SLOTS} slots each, the wheel of level {@code n} spanning
+ * {@code SLOTS^(n + 1)} ticks. A timer is placed in the lowest level that covers its deadline and
+ * moves down a level whenever the slot it sits in comes around, so that every timer is touched at
+ * most {@value #LEVELS} times before it expires.
+ * <p>
+ * Slots are intrusive doubly linked lists, which makes scheduling and cancelling constant time,
+ * and advancing costs one slot visit per elapsed tick plus the work for the timers that are due or
+ * move down a level. Deadlines beyond the span of the top level are clamped onto it and
+ * rescheduled when they come around.
+ * <p>
+ * All operations are synchronized on the wheel.
+ * @param <T> Type of the payload of the timers
+ */
+final class TimingWheel<T> {
+
+	private static final int SLOT_BITS = 8;
+
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	private static final int LEVELS = 4;
+
+	private final LongSupplier clock;
+
+	private final long tickNanos;
+
+	private final long origin;
+
+	private final Timer<T>[][] slots;
+
+	/**
+	 * Last tick that has been processed.
+	 */
+	private long tick;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	TimingWheel(final LongSupplier clock, final long tickNanos) {
+		this.clock = requireNonNull(clock, "clock shall not be null");
+
+		if (tickNanos < 1) {
+			throw new IllegalArgumentException("tickNanos shall be positive");
+		}
+
+		this.tickNanos = tickNanos;
+		origin = clock.getAsLong();
+		slots = new Timer[LEVELS][SLOTS];
+
+		for (final Timer<T>[] level : slots) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				level[slot] = new Timer<>(null);
+				level[slot].prev = level[slot];
+				level[slot].next = level[slot];
+			}
+		}
+	}
+
+	/**
+	 * Schedules a timer. The timer expires on the first {@link #advance()} at least the given delay
+	 * after now, rounded up to whole ticks.
+	 * @param payload Payload of the timer
+	 * @param delayNanos Delay in nanoseconds
+	 * @return New timer
+	 */
+	synchronized Timer<T> schedule(final T payload, final long delayNanos) {
+		final Timer<T> timer = new Timer<>(payload);
+		final long elapsed = clock.getAsLong() - origin + Math.max(0, delayNanos);
+
+		timer.deadline = Math.max(tick + 1, (elapsed + tickNanos - 1) / tickNanos);
+		place(timer);
+		size++;
+
+		return timer;
+	}
+
+	/**
+	 * Cancels a timer that has not expired yet.
+	 * @param timer Timer to cancel
+	 * @return {@code true} when the timer was pending
+	 */
+	synchronized boolean cancel(final Timer<T> timer) {
+		if (timer.next == null) {
+			return false;
+		}
+
+		unlink(timer);
+		size--;
+
+		return true;
+	}
+
+	/**
+	 * Processes all ticks up to the current time.
+	 * @return Timers that expired, in deadline order
+	 */
+	synchronized List<Timer<T>> advance() {
+		final long now = (clock.getAsLong() - origin) / tickNanos;
+		final List<Timer<T>> expired = new ArrayList<>();
+
+		while (tick < now) {
+			if (size == expired.size()) {
+				// Nothing left to cascade or expire
+				tick = now;
+				break;
+			}
+
+			tick++;
+
+			for (int level = 1; level < LEVELS && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+				cascade(slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK]);
+			}
+
+			final Timer<T> head = slots[0][(int) tick & SLOT_MASK];
+
+			while (head.next != head) {
+				final Timer<T> timer = head.next;
+
+				unlink(timer);
+				expired.add(timer);
+			}
+		}
+
+		size -= expired.size();
+
+		return expired;
+	}
+
+	/**
+	 * Gets the number of pending timers.
+	 * @return Number of pending timers
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	private void cascade(final Timer<T> head) {
+		Timer<T> timer = head.next;
+
+		head.next = head;
+		head.prev = head;
+
+		while (timer != head) {
+			final Timer<T> next = timer.next;
+
+			place(timer);
+			timer = next;
+		}
+	}
+
+	private void place(final Timer<T> timer) {
+		final long delta = timer.deadline - tick;
+		int level = 0;
+
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+
+		final long deadline = Math.min(timer.deadline, tick + (1L << (SLOT_BITS * LEVELS)) - 1);
+		final Timer<T> head = slots[level][(int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK];
+
+		timer.prev = head.prev;
+		timer.next = head;
+		head.prev.next = timer;
+		head.prev = timer;
+	}
+
+	private static <T> void unlink(final Timer<T> timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+	}
+
+	/**
+	 * Pending or expired timer. A timer is pending while it is linked into a slot.
+	 * @param <T> Type of the payload
+	 */
+	static final class Timer<T> {
+
+		final T payload;
+
+		long deadline;
+
+		Timer<T> prev;
+
+		Timer<T> next;
+
+		Timer(final T payload) {
+			this.payload = payload;
+		}
+	}
+}
@@ -1,7 +1,5 @@
 package cool.arch.stateroom;
 
-import java.lang.invoke.MethodHandles;
-
 /*
  * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
  * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
@@ -17,28 +15,37 @@ import java.lang.invoke.MethodHandles;
 
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.Predicate;
 
 public class Transition<M> {
 
-	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup()
-		.lookupClass()
-		.toString());
+	@SuppressWarnings("rawtypes")
+	private static final BiPredicate ALWAYS = (state, model) -> true;
+
+	@SuppressWarnings("rawtypes")
+	private static final BiFunction IDENTITY = (state, model) -> model;
 
 	private BiPredicate<State<M>, M> predicate;
 
+	private Object event;
+
+	private Fact<M, ?> fact;
+
+	private Predicate<?> factPredicate;
+
 	private State<M> targetState;
 
-	private BiFunction<State<M>, M, M> modelTransform = (state, model) -> model;
+	@SuppressWarnings("unchecked")
+	private BiFunction<State<M>, M, M> modelTransform = IDENTITY;
 
-	public M onEnter(final State<M> state, final M model) {
-		LOGGER.log(Level.FINE,
-			() -> String.format("Entering Transition: %s, Model before state: %s", Transition.this, model));
-		final M resultingModel = modelTransform.apply(state, model);
-		LOGGER.log(Level.FINE, () -> "Model after state: " + resultingModel);
+	/**
+	 * Slot of the history state whose last active leaf this transition resumes, or a negative value
+	 * when it does not target a history state.
+	 */
+	private int historySlot = -1;
 
-		return resultingModel;
+	public M onEnter(final State<M> state, final M model) {
+		return modelTransform.apply(state, model);
 	}
 
 	public BiFunction<State<M>, M, M> getModelTransform() {
@@ -49,14 +56,68 @@ public class Transition<M> {
 		return predicate;
 	}
 
+	/**
+	 * Tells whether this transition is taken regardless of the state and model, as declared by
+	 * {@link StateBuilderFacade#on(Object, State)}.
+	 * @return {@code true} when the transition has no guard
+	 */
+	boolean isUnguarded() {
+		return predicate == ALWAYS && fact == null;
+	}
+
+	/**
+	 * @return Whether a model transform other than the identity has been set
+	 */
+	boolean hasModelTransform() {
+		return modelTransform != IDENTITY;
+	}
+
 	public State<M> getTargetState() {
 		return targetState;
 	}
 
+	/**
+	 * Gets the event this transition is dispatched on.
+	 * @return Event of the transition, or {@code null} when it is selected by its predicate only
+	 */
+	public Object getEvent() {
+		return event;
+	}
+
+	/**
+	 * Gets the fact the guard of this transition reads.
+	 * @return Fact read by the guard, or {@code null} when the transition is guarded by its predicate
+	 *         alone
+	 */
+	public Fact<M, ?> getFact() {
+		return fact;
+	}
+
+	/**
+	 * Gets the test applied to the value of {@link #getFact()}.
+	 * @return Test of the fact value, or {@code null} when the transition does not read a fact
+	 */
+	public Predicate<?> getFactPredicate() {
+		return factPredicate;
+	}
+
+	int getHistorySlot() {
+		return historySlot;
+	}
+
 	void setPredicate(BiPredicate<State<M>, M> predicate) {
 		this.predicate = predicate;
 	}
 
+	void setFact(Fact<M, ?> fact, Predicate<?> factPredicate) {
+		this.fact = fact;
+		this.factPredicate = factPredicate;
+	}
+
+	void setEvent(Object event) {
+		this.event = event;
+	}
+
 	void setTargetState(State<M> targetState) {
 		this.targetState = targetState;
 	}
@@ -65,9 +126,40 @@ public class Transition<M> {
 		this.modelTransform = modelTransform;
 	}
 
+	/**
+	 * Creates a copy of this transition with the same event and guard.
+	 * @param targetState Target state of the copy
+	 * @param modelTransform Model transform of the copy
+	 * @param historySlot History slot of the copy
+	 * @return Copy of this transition
+	 */
+	Transition<M> derive(final State<M> targetState, final BiFunction<State<M>, M, M> modelTransform,
+		final int historySlot) {
+		final Transition<M> copy = new Transition<>();
+
+		copy.predicate = predicate;
+		copy.event = event;
+		copy.fact = fact;
+		copy.factPredicate = factPredicate;
+		copy.targetState = targetState;
+		copy.modelTransform = modelTransform;
+		copy.historySlot = historySlot;
+
+		return copy;
+	}
+
 	@Override
 	public String toString() {
-		return String.format("{'targetState':%s}", targetState);
+		if (event == null) {
+			return String.format("{'targetState':%s}", targetState);
+		}
+
+		return String.format("{'event':'%s', 'targetState':%s}", event, targetState);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> BiPredicate<State<T>, T> always() {
+		return ALWAYS;
 	}
 
 	public static <T> TransitionBuilder<T> builder() {
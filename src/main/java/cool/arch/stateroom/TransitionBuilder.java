@@ -15,11 +15,16 @@ package cool.arch.stateroom;
 
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 public interface TransitionBuilder<M> extends AbstractBuilder<Transition<M>> {
 
 	TransitionBuilder<M> when(BiPredicate<State<M>, M> predicate);
 
+	<V> TransitionBuilder<M> when(Fact<M, V> fact, Predicate<? super V> predicate);
+
+	TransitionBuilder<M> on(Object event);
+
 	TransitionBuilder<M> to(State<M> targetState);
 
 	TransitionBuilder<M> transformModelWith(BiFunction<State<M>, M, M> modelTransform);
@@ -18,6 +18,7 @@ import static java.util.Objects.requireNonNull;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 final class TransitionBuilderImpl<M> extends AbstractBuilderImpl<Transition<M>> implements TransitionBuilder<M> {
 
@@ -45,6 +46,26 @@ final class TransitionBuilderImpl<M> extends AbstractBuilderImpl<Transition<M>>
 		return this;
 	}
 
+	@Override
+	public <V> TransitionBuilder<M> when(Fact<M, V> fact, Predicate<? super V> predicate) {
+		requireNonNull(fact, "fact shall not be null");
+		requireNonNull(predicate, "predicate shall not be null");
+
+		final BiFunction<State<M>, M, V> function = fact.getFunction();
+
+		getInstance().setPredicate((state, model) -> predicate.test(function.apply(state, model)));
+		getInstance().setFact(fact, predicate);
+
+		return this;
+	}
+
+	@Override
+	public TransitionBuilder<M> on(Object event) {
+		getInstance().setEvent(requireNonNull(event, "event shall not be null"));
+
+		return this;
+	}
+
 	@Override
 	public TransitionBuilder<M> to(State<M> targetState) {
 		getInstance().setTargetState(targetState);
@@ -0,0 +1,494 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * Append only log of the transitions taken by the contexts of a single {@link Machine}, from
+ * which the contexts can be rebuilt after a restart.
+ * <p>
+ * The journal is a directory of fixed size, memory mapped segment files. Every entry records the
+ * id of the context, the state ordinals and statuses before and after an evaluation and, when a
+ * {@link ModelCodec} is supplied, the model after the evaluation. Appending an entry is a copy into
+ * the mapped segment; when a segment is full the journal rotates to a new one.
+ * <p>
+ * Appended entries become durable through {@link #sync(long)}, which uses group commit: a single
+ * flush of the mapped segments covers every entry appended before it started, and callers arriving
+ * while a flush is in progress wait for it and are usually covered by the next one, so the rate of
+ * appends is not bounded by the latency of a flush.
+ * <p>
+ * Journal positions are opaque, strictly increasing {@code long} values. A checkpoint pairs a
+ * snapshot written by {@link ContextCodec} with the {@link #position()} of the journal at the time
+ * it was taken; recovery decodes the snapshot and {@link #replay(long, Map) replays} the journal
+ * from that position.
+ * <p>
+ * Machines with history states are not supported, as entries do not record the last active
+ * leaves of their history states.
+ * <p>
+ * Instances are safe for concurrent use.
+ * @param <M> Type used to represent the machine model
+ */
+public final class TransitionJournal<M> implements AutoCloseable {
+
+	/**
+	 * Segment size used when none is given.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	/**
+	 * Size of an entry body without the model: context id, both ordinals, both statuses and the
+	 * model length.
+	 */
+	static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES + Byte.BYTES + Byte.BYTES + Integer.BYTES;
+
+	private static final int NO_MODEL = -1;
+
+	private static final Status[] STATUSES = Status.values();
+
+	private final Machine<M> machine;
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final ModelCodec<M> modelCodec;
+
+	private final Object syncLock = new Object();
+
+	private final List<JournalSegment> unsynced = new ArrayList<>();
+
+	private JournalSegment segment;
+
+	private ByteBuffer writer;
+
+	private int offset;
+
+	private boolean closed;
+
+	private volatile long position;
+
+	private volatile long syncedPosition;
+
+	/**
+	 * Opens the journal in the given directory, continuing after its last entry, or starts a new
+	 * one. Models are not recorded.
+	 * @param machine Machine evaluating the journaled contexts
+	 * @param directory Existing directory holding the segment files
+	 */
+	public TransitionJournal(final Machine<M> machine, final Path directory) {
+		this(machine, directory, DEFAULT_SEGMENT_SIZE, null);
+	}
+
+	/**
+	 * Opens the journal in the given directory, continuing after its last entry, or starts a new
+	 * one.
+	 * @param machine Machine evaluating the journaled contexts
+	 * @param directory Existing directory holding the segment files
+	 * @param segmentSize Size in bytes of newly created segment files
+	 * @param modelCodec Codec used to record the model after every evaluation, or {@code null} to
+	 *        record transitions only
+	 */
+	public TransitionJournal(final Machine<M> machine, final Path directory, final int segmentSize,
+		final ModelCodec<M> modelCodec) {
+		this.machine = requireNonNull(machine, "machine shall not be null");
+		this.directory = requireNonNull(directory, "directory shall not be null");
+		this.modelCodec = modelCodec;
+
+		if (machine.getPlan().historySlots != null) {
+			throw new IllegalStateException("Machines with history states cannot be journaled");
+		}
+
+		if (segmentSize < JournalSegment.HEADER_SIZE + Integer.BYTES + ENTRY_SIZE) {
+			throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+		}
+
+		this.segmentSize = segmentSize;
+
+		final TreeMap<Long, Path> segments = segments();
+
+		if (segments.isEmpty()) {
+			open(JournalSegment.create(directory, 0, segmentSize, fingerprint()));
+		} else {
+			final Map.Entry<Long, Path> last = segments.lastEntry();
+
+			open(JournalSegment.open(last.getValue(), last.getKey()
+				.longValue(), fingerprint(), true));
+		}
+
+		syncedPosition = position;
+	}
+
+	/**
+	 * Evaluates a single cycle of a context and records it.
+	 * @param contextId Id of the context
+	 * @param context Context to evaluate
+	 * @return Resulting context
+	 */
+	public Context<M> evaluate(final long contextId, final Context<M> context) {
+		final Context<M> result = machine.evaluate(context);
+
+		record(contextId, context, result);
+
+		return result;
+	}
+
+	/**
+	 * Evaluates a context until it halts, recording every cycle.
+	 * @param contextId Id of the context
+	 * @param context Context to evaluate
+	 * @return Resulting context
+	 */
+	public Context<M> evaluateUntilHalted(final long contextId, final Context<M> context) {
+		final ExecutionCursor<M> cursor = machine.cursor(context);
+
+		while (cursor.status == Status.READY) {
+			final int fromOrdinal = cursor.ordinal;
+			final M model = cursor.model;
+
+			machine.step(cursor);
+			record(contextId, fromOrdinal, cursor.ordinal, Status.READY, cursor.status, model, cursor.model);
+		}
+
+		return cursor.snapshot();
+	}
+
+	/**
+	 * Records an evaluation performed elsewhere, for instance by {@link Machine#fire(Context, Object)}
+	 * or a {@link MachineRuntime}. Nothing is appended when the evaluation left the state and status
+	 * unchanged and, if models are recorded, returned the same model instance.
+	 * @param contextId Id of the context
+	 * @param before Context before the evaluation
+	 * @param after Context after the evaluation
+	 * @return Journal position after the entry
+	 */
+	public long record(final long contextId, final Context<M> before, final Context<M> after) {
+		final ExecutionPlan<M> plan = machine.getPlan();
+
+		return record(contextId, plan.ordinalOf(before), plan.ordinalOf(after), before.getStatus(),
+			after.getStatus(), before.getModel(), after.getModel());
+	}
+
+	private long record(final long contextId, final int fromOrdinal, final int toOrdinal, final Status statusBefore,
+		final Status statusAfter, final M modelBefore, final M modelAfter) {
+		if (fromOrdinal == ExecutionPlan.UNKNOWN_STATE || toOrdinal == ExecutionPlan.UNKNOWN_STATE) {
+			throw new IllegalArgumentException("State is not part of the machine");
+		}
+
+		if (fromOrdinal == toOrdinal && statusBefore == statusAfter
+			&& (modelCodec == null || modelBefore == modelAfter)) {
+			return position;
+		}
+
+		return append(contextId, fromOrdinal, toOrdinal, statusBefore, statusAfter, modelAfter);
+	}
+
+	private synchronized long append(final long contextId, final int fromOrdinal, final int toOrdinal,
+		final Status statusBefore, final Status statusAfter, final M model) {
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+
+		if (!write(contextId, fromOrdinal, toOrdinal, statusBefore, statusAfter, model)) {
+			open(JournalSegment.create(directory, segment.index + 1, segmentSize, fingerprint()));
+
+			if (!write(contextId, fromOrdinal, toOrdinal, statusBefore, statusAfter, model)) {
+				throw new IllegalArgumentException("Journal entry does not fit into a segment of " + segmentSize
+					+ " bytes");
+			}
+		}
+
+		return position;
+	}
+
+	/**
+	 * Writes an entry at the current offset. The length prefix is written last, so an entry that
+	 * does not fit leaves the segment unchanged.
+	 */
+	private boolean write(final long contextId, final int fromOrdinal, final int toOrdinal, final Status statusBefore,
+		final Status statusAfter, final M model) {
+		final ByteBuffer buffer = writer;
+		final int body = offset + Integer.BYTES;
+		final int modelStart = body + ENTRY_SIZE;
+
+		if (modelStart > buffer.capacity()) {
+			return false;
+		}
+
+		int modelLength = NO_MODEL;
+
+		if (modelCodec != null) {
+			buffer.limit(buffer.capacity())
+				.position(modelStart);
+
+			try {
+				modelCodec.encode(model, buffer);
+			} catch (final BufferOverflowException e) {
+				return false;
+			}
+
+			modelLength = buffer.position() - modelStart;
+		}
+
+		buffer.putLong(body, contextId);
+		buffer.putInt(body + 8, fromOrdinal);
+		buffer.putInt(body + 12, toOrdinal);
+		buffer.put(body + 16, (byte) statusBefore.ordinal());
+		buffer.put(body + 17, (byte) statusAfter.ordinal());
+		buffer.putInt(body + 18, modelLength);
+
+		final int length = ENTRY_SIZE + Math.max(modelLength, 0);
+
+		buffer.putInt(offset, length);
+		offset = body + length;
+		position = position(segment.index, offset);
+
+		return true;
+	}
+
+	private void open(final JournalSegment segment) {
+		this.segment = segment;
+		writer = segment.buffer.duplicate();
+		offset = segment.end();
+		position = position(segment.index, offset);
+		unsynced.add(segment);
+	}
+
+	/**
+	 * @return Position right after the last appended entry
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * @return Position up to which appended entries are known to be durable
+	 */
+	public long syncedPosition() {
+		return syncedPosition;
+	}
+
+	/**
+	 * Makes every entry appended before the given position durable, flushing the mapped segments
+	 * unless a concurrent flush already covered it.
+	 * @param upTo Position returned by an append operation or by {@link #position()}
+	 */
+	public void sync(final long upTo) {
+		if (syncedPosition >= upTo) {
+			return;
+		}
+
+		synchronized (syncLock) {
+			if (syncedPosition >= upTo) {
+				return;
+			}
+
+			final long target;
+			final JournalSegment[] segments;
+
+			synchronized (this) {
+				target = position;
+				segments = unsynced.toArray(new JournalSegment[unsynced.size()]);
+				unsynced.clear();
+				unsynced.add(segment);
+			}
+
+			for (final JournalSegment dirty : segments) {
+				dirty.force();
+			}
+
+			syncedPosition = target;
+		}
+	}
+
+	/**
+	 * Makes every entry appended so far durable.
+	 */
+	public void sync() {
+		sync(position);
+	}
+
+	/**
+	 * Visits every entry at or after the given position in append order.
+	 * @param fromPosition Position to start at, typically the position recorded with a checkpoint
+	 * @param visitor Visitor receiving the entries
+	 */
+	public void replay(final long fromPosition, final JournalVisitor visitor) {
+		requireNonNull(visitor, "visitor shall not be null");
+
+		final long fingerprint = fingerprint();
+
+		for (final Map.Entry<Long, Path> entry : segments().tailMap(Long.valueOf(fromPosition >>> 32))
+			.entrySet()) {
+			final long index = entry.getKey()
+				.longValue();
+			final ByteBuffer buffer = JournalSegment.open(entry.getValue(), index, fingerprint, false).buffer;
+			final ByteBuffer model = buffer.asReadOnlyBuffer();
+			int offset = JournalSegment.HEADER_SIZE;
+			int length;
+
+			while (offset + Integer.BYTES <= buffer.capacity() && (length = buffer.getInt(offset)) > 0) {
+				final long entryPosition = position(index, offset);
+				final int body = offset + Integer.BYTES;
+
+				if (length < ENTRY_SIZE || length > buffer.capacity() - body) {
+					throw new IllegalStateException("Corrupt journal entry at position " + entryPosition);
+				}
+
+				offset = body + length;
+
+				if (entryPosition < fromPosition) {
+					continue;
+				}
+
+				final int statusBefore = buffer.get(body + 16);
+				final int statusAfter = buffer.get(body + 17);
+				final int modelLength = buffer.getInt(body + 18);
+
+				if (statusBefore < 0 || statusBefore >= STATUSES.length || statusAfter < 0
+					|| statusAfter >= STATUSES.length || modelLength > length - ENTRY_SIZE
+					|| modelLength < 0 && modelLength != NO_MODEL) {
+					throw new IllegalStateException("Corrupt journal entry at position " + entryPosition);
+				}
+
+				if (modelLength != NO_MODEL) {
+					model.limit(body + ENTRY_SIZE + modelLength)
+						.position(body + ENTRY_SIZE);
+				}
+
+				visitor.visit(entryPosition, buffer.getLong(body), buffer.getInt(body + 8), buffer.getInt(body + 12),
+					STATUSES[statusBefore], STATUSES[statusAfter], modelLength == NO_MODEL ? null : model);
+				model.clear();
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds contexts by applying every entry at or after the given position on top of a
+	 * checkpoint. When models are not recorded, replayed contexts keep the model of the checkpoint,
+	 * or a model from the model supplier of the machine for contexts started after the checkpoint.
+	 * @param fromPosition Position recorded with the checkpoint
+	 * @param contexts Contexts of the checkpoint keyed by context id, updated in place
+	 */
+	public void replay(final long fromPosition, final Map<Long, Context<M>> contexts) {
+		requireNonNull(contexts, "contexts shall not be null");
+
+		final ExecutionPlan<M> plan = machine.getPlan();
+
+		replay(fromPosition, (entryPosition, contextId, fromOrdinal, toOrdinal, statusBefore, statusAfter, model) -> {
+			if (toOrdinal < 0 || toOrdinal >= plan.size()) {
+				throw new IllegalStateException("Corrupt journal entry at position " + entryPosition);
+			}
+
+			final Long id = Long.valueOf(contextId);
+			final Context<M> current = contexts.get(id);
+			final M value;
+
+			if (model != null) {
+				if (modelCodec == null) {
+					throw new IllegalStateException(
+						"Journal entry at position " + entryPosition + " records a model, but no model codec was given");
+				}
+
+				value = modelCodec.decode(model);
+			} else if (current != null) {
+				value = current.getModel();
+			} else {
+				value = plan.modelSupplier.get();
+			}
+
+			contexts.put(id, new Context<>(plan.states[toOrdinal], toOrdinal, statusAfter, value));
+		});
+	}
+
+	/**
+	 * Deletes the segment files holding only entries before the given position, typically once a
+	 * checkpoint at that position has been written.
+	 * @param upTo Position of the checkpoint
+	 * @return Number of deleted segment files
+	 */
+	public int truncate(final long upTo) {
+		final long current;
+
+		synchronized (this) {
+			current = segment.index;
+		}
+
+		int deleted = 0;
+
+		for (final Path path : segments().headMap(Long.valueOf(Math.min(upTo >>> 32, current)))
+			.values()) {
+			try {
+				Files.delete(path);
+				deleted++;
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		return deleted;
+	}
+
+	/**
+	 * Makes every appended entry durable and rejects further appends.
+	 */
+	@Override
+	public void close() {
+		sync();
+
+		synchronized (this) {
+			closed = true;
+		}
+	}
+
+	private long fingerprint() {
+		return machine.getPlan().fingerprint;
+	}
+
+	private TreeMap<Long, Path> segments() {
+		final TreeMap<Long, Path> segments = new TreeMap<>();
+
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (final Path path : stream) {
+				final long index = JournalSegment.indexOf(path);
+
+				if (index >= 0) {
+					segments.put(Long.valueOf(index), path);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return segments;
+	}
+
+	static long position(final long index, final int offset) {
+		return index << 32 | offset;
+	}
+}
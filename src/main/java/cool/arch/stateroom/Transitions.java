@@ -56,6 +56,17 @@ public final class Transitions<M> implements Iterable<Transition<M>> {
 		this.transitions = new LinkedList<>(transitions);
 	}
 
+	/**
+	 * Creates a view of a range of transitions, without copying them.
+	 */
+	Transitions(final List<Transition<M>> transitions, final int fromIndex, final int toIndex) {
+		this.transitions = transitions.subList(fromIndex, toIndex);
+	}
+
+	public int size() {
+		return transitions.size();
+	}
+
 	public Set<String> findInvalidStateNames(final Set<State<M>> states) {
 		return transitions.stream()
 			.map(transition -> transition.getTargetState())
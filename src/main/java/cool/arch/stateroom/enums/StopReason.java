@@ -0,0 +1,37 @@
+package cool.arch.stateroom.enums;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+/**
+ * Reason a bounded evaluation stopped.
+ */
+public enum StopReason {
+
+		/**
+		 * Indicates that the machine halted, the status of the context tells how.
+		 */
+		HALTED,
+		/**
+		 * Indicates that the maximum number of evaluation cycles has been performed.
+		 */
+		STEP_BUDGET_EXHAUSTED,
+		/**
+		 * Indicates that the deadline passed before the machine halted.
+		 */
+		DEADLINE_EXCEEDED,
+		/**
+		 * Indicates that the machine returned to a state and model fingerprint it had already been in.
+		 */
+		LIVELOCK
+}
@@ -0,0 +1,135 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * 
+ */
+public class CharClassMachineTest {
+
+	private final State<Void> start = State.of("Start");
+
+	private final State<Void> integer = State.of("Integer", true);
+
+	private final State<Void> point = State.of("Point");
+
+	private final State<Void> fraction = State.of("Fraction", true);
+
+	private final State<Void> error = State.of("Error");
+
+	private final CharClassMachine machine = CharClassMachine.builder()
+		.withStartState(start)
+		.withHaltState(error)
+		.withState(start)
+		.onAnyOf("+-", start)
+		.on('0', '9', integer)
+		.otherwise(error)
+		.withState(integer)
+		.on('0', '9', integer)
+		.on('.', point)
+		.otherwise(error)
+		.withState(point)
+		.on('0', '9', fraction)
+		.otherwise(error)
+		.withState(fraction)
+		.on('0', '9', fraction)
+		.otherwise(error)
+		.withState(error)
+		.build();
+
+	@Test
+	public final void testScanCharSequence() {
+		assertEquals(Status.ACCEPTED, machine.scan("-12.50")
+			.getStatus());
+		assertEquals(Status.ACCEPTED, machine.scan("7")
+			.getStatus());
+		assertSame(point, machine.scan("7.")
+			.getState());
+		assertEquals(Status.CRASHED, machine.scan("7.")
+			.getStatus());
+		assertSame(error, machine.scan("1x2")
+			.getState());
+		assertEquals(Status.CRASHED, machine.scan("€1")
+			.getStatus());
+	}
+
+	@Test
+	public final void testScanByteBuffers() {
+		final byte[] bytes = "3.14159 rest".getBytes(StandardCharsets.US_ASCII);
+		final ByteBuffer heap = ByteBuffer.wrap(bytes);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+
+		direct.put(bytes)
+			.flip();
+
+		for (final ByteBuffer buffer : new ByteBuffer[] { heap, direct, heap.duplicate()
+			.asReadOnlyBuffer() }) {
+			buffer.position(0);
+
+			final Context<Void> context = machine.scan(buffer);
+
+			assertSame(error, context.getState());
+			assertEquals(Status.CRASHED, context.getStatus());
+			assertEquals(8, buffer.position());
+		}
+
+		final ByteBuffer slice = ByteBuffer.wrap(bytes, 0, 7)
+			.slice();
+
+		assertEquals(Status.ACCEPTED, machine.scan(slice)
+			.getStatus());
+		assertFalse(slice.hasRemaining());
+		assertEquals(Status.CRASHED, machine.scan(ByteBuffer.wrap(new byte[] { '1', (byte) 0xB9 }))
+			.getStatus());
+	}
+
+	@Test
+	public final void testFeedInPieces() {
+		final CharClassCursor cursor = machine.cursor();
+
+		assertTrue(cursor.feed("12"));
+		assertTrue(cursor.feed(ByteBuffer.wrap(".".getBytes(StandardCharsets.US_ASCII))));
+		assertSame(point, cursor.getState());
+		assertTrue(cursor.feed("5"));
+		assertEquals(4, cursor.getOffset());
+		assertEquals(Status.ACCEPTED, cursor.finish()
+			.getStatus());
+		assertFalse(cursor.feed("9"));
+		assertEquals(4, cursor.getOffset());
+
+		cursor.reset();
+
+		assertFalse(cursor.feed("1-"));
+		assertEquals(2, cursor.getOffset());
+	}
+
+	@Test
+	public final void testClassCompression() {
+		// Signs, digits, the point, and everything else
+		assertEquals(4, machine.getClassCount());
+		assertEquals(5, machine.size());
+	}
+}
@@ -0,0 +1,176 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.ACCEPTED;
+import static cool.arch.stateroom.enums.Status.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class ContextCodecTest {
+
+	private static final ModelCodec<Long> LONG_CODEC = new ModelCodec<Long>() {
+
+		@Override
+		public void encode(final Long model, final ByteBuffer buffer) {
+			buffer.putLong(model.longValue());
+		}
+
+		@Override
+		public Long decode(final ByteBuffer buffer) {
+			return Long.valueOf(buffer.getLong());
+		}
+	};
+
+	private final State<Long> first = State.of("First");
+
+	private final State<Long> second = State.of("Second", true);
+
+	private final Machine<Long> machine = build(first, second);
+
+	private static Machine<Long> build(final State<Long> first, final State<Long> second) {
+		return Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withStartState(first)
+			.withState(first)
+			.to(second, (state, model) -> model > 0)
+			.withState(second)
+			.build();
+	}
+
+	private Machine<Long> build(final Object event) {
+		return Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withStartState(first)
+			.withState(first)
+			.on(event, second)
+			.withState(second)
+			.build();
+	}
+
+	@Test
+	public final void testRoundTrip() {
+		final ContextCodec<Long> codec = new ContextCodec<>(machine, LONG_CODEC);
+		final List<Context<Long>> contexts = new ArrayList<>();
+
+		for (long i = 0; i < 1000; i++) {
+			contexts.add(new Context<>(i % 2 == 0 ? first : second, i % 3 == 0 ? ACCEPTED : READY, i));
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(ContextCodec.HEADER_SIZE + contexts.size() * 10);
+
+		codec.encodeAll(contexts, buffer);
+		buffer.flip();
+
+		final List<Context<Long>> decoded = codec.decodeAll(buffer);
+
+		assertEquals(contexts.size(), decoded.size());
+		assertEquals(0, buffer.remaining());
+
+		for (int i = 0; i < contexts.size(); i++) {
+			assertSame(contexts.get(i)
+				.getState(), decoded.get(i)
+					.getState());
+			assertEquals(contexts.get(i)
+				.getStatus(), decoded.get(i)
+					.getStatus());
+			assertEquals(contexts.get(i)
+				.getModel(), decoded.get(i)
+					.getModel());
+		}
+	}
+
+	@Test
+	public final void testFingerprint() {
+		assertEquals(machine.getFingerprint(), build(State.of("First"), State.of("Second", true)).getFingerprint());
+		assertNotEquals(machine.getFingerprint(), build(State.of("First"), State.of("Second")).getFingerprint());
+	}
+
+	@Test
+	public final void testFingerprintIgnoresEventIdentity() {
+		assertEquals(build(new Object()).getFingerprint(), build(new Object()).getFingerprint());
+		assertEquals(build(READY).getFingerprint(), build(READY).getFingerprint());
+		assertNotEquals(build(READY).getFingerprint(), build(ACCEPTED).getFingerprint());
+		assertNotEquals(build("reset").getFingerprint(), build("restart").getFingerprint());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testFingerprintMismatch() {
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+		new ContextCodec<>(machine, LONG_CODEC).encodeAll(new ArrayList<>(), buffer);
+		buffer.flip();
+		new ContextCodec<>(build(State.of("Other"), second), LONG_CODEC).decodeAll(buffer);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testNegativeOrdinal() {
+		final ContextCodec<Long> codec = new ContextCodec<>(machine, LONG_CODEC);
+		final ByteBuffer encoded = ByteBuffer.allocate(64);
+
+		codec.encodeAll(Collections.singletonList(new Context<>(first, READY, 0L)), encoded);
+
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+		buffer.put(encoded.array(), 0, ContextCodec.HEADER_SIZE);
+		// Five byte varint of -1 in place of the ordinal
+		buffer.put(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F });
+		buffer.put((byte) READY.ordinal());
+		buffer.putLong(0L);
+		buffer.flip();
+		codec.decodeAll(buffer);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testCountExceedingBuffer() {
+		final ContextCodec<Long> codec = new ContextCodec<>(machine, LONG_CODEC);
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+		codec.encodeAll(Collections.singletonList(new Context<>(first, READY, 0L)), buffer);
+		buffer.putInt(ContextCodec.HEADER_SIZE - Integer.BYTES, Integer.MAX_VALUE);
+		buffer.flip();
+		codec.decodeAll(buffer);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testHistoryRejected() {
+		final State<Long> active = State.of("Active");
+
+		new ContextCodec<>(Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withStartState(first)
+			.withHistory(active)
+			.withState(active)
+			.withState(first)
+			.within(active)
+			.build(), LONG_CODEC);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testUnknownState() {
+		new ContextCodec<>(machine, LONG_CODEC).encode(new Context<>(State.of("Unknown"), READY, 0L),
+			ByteBuffer.allocate(64));
+	}
+}
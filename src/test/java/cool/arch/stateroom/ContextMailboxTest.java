@@ -0,0 +1,194 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class ContextMailboxTest {
+
+	private final State<Integer> even = State.of("Even", true);
+
+	private final State<Integer> odd = State.of("Odd");
+
+	private final Machine<Integer> machine = Machine.builder(Integer.class)
+		.withModelSupplier(() -> 0)
+		.withStartState(even)
+		.withState(even)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.withState(odd)
+		.to(even, (state, model) -> model % 2 == 0)
+		.build();
+
+	/**
+	 * Runs of the consumer, executed only when the test asks for them.
+	 */
+	private final Queue<Runnable> pending = new ArrayDeque<>();
+
+	private final ContextMailbox<Integer> mailbox = new ContextMailbox<>(machine, machine.create(), pending::add);
+
+	@Test
+	public final void testOrdering() throws Exception {
+		final List<CompletableFuture<Context<Integer>>> futures = new ArrayList<>();
+
+		for (int i = 0; i < 10; i++) {
+			futures.add(mailbox.submit(model -> model + 1));
+		}
+
+		assertEquals(1, pending.size());
+		drain();
+
+		for (int i = 0; i < futures.size(); i++) {
+			final Context<Integer> context = futures.get(i)
+				.get();
+
+			assertEquals(Integer.valueOf(i + 1), context.getModel());
+			assertSame(i % 2 == 0 ? odd : even, context.getState());
+		}
+
+		assertSame(futures.get(futures.size() - 1)
+			.get(), mailbox.getContext());
+	}
+
+	@Test
+	public final void testFailureRollback() throws Exception {
+		final CompletableFuture<Context<Integer>> before = mailbox.submit(model -> model + 1);
+		final CompletableFuture<Context<Integer>> failed = mailbox.submit(model -> {
+			throw new IllegalStateException("Rejected");
+		});
+		final CompletableFuture<Context<Integer>> after = mailbox.submit(model -> model + 1);
+
+		drain();
+
+		assertSame(odd, before.get()
+			.getState());
+
+		try {
+			failed.get();
+			fail("Failed mutation completed normally");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		assertEquals(Integer.valueOf(2), after.get()
+			.getModel());
+		assertSame(even, after.get()
+			.getState());
+	}
+
+	@Test
+	public final void testFailureRestoresHistory() throws Exception {
+		final State<Integer> active = State.of("Active");
+		final State<Integer> first = State.of("First");
+		final State<Integer> second = State.of("Second");
+		final State<Integer> paused = State.of("Paused");
+		final Machine<Integer> machine = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(first)
+			.withHistory(active)
+			.withState(active)
+			.withState(first)
+			.within(active)
+			.to(second, (state, model) -> model == 1)
+			.withState(second)
+			.within(active)
+			.to(paused, (state, model) -> model == 2)
+			.withState(paused)
+			.to(first, (state, model) -> model == 3, (state, model) -> {
+				throw new IllegalStateException("Rejected");
+			})
+			.to(active, (state, model) -> model == 4)
+			.build();
+		final ContextMailbox<Integer> mailbox = new ContextMailbox<>(machine, machine.create(), pending::add);
+
+		mailbox.submit(model -> 1);
+		mailbox.submit(model -> 2);
+
+		// Entering First records it as the last active leaf before the transform fails
+		final CompletableFuture<Context<Integer>> failed = mailbox.submit(model -> 3);
+		final CompletableFuture<Context<Integer>> resumed = mailbox.submit(model -> 4);
+
+		drain();
+
+		assertTrue(failed.isCompletedExceptionally());
+		assertSame(second, resumed.get()
+			.getState());
+	}
+
+	@Test
+	public final void testCompletionUnderContinuousSubmission() throws Exception {
+		final int total = ContextMailbox.BATCH_SIZE * 10;
+		final List<CompletableFuture<Context<Integer>>> futures = new ArrayList<>();
+
+		// Every mutation submits the next one, so the queue never runs empty while draining
+		futures.add(mailbox.submit(new UnaryOperator<Integer>() {
+
+			@Override
+			public Integer apply(final Integer model) {
+				if (futures.size() < total) {
+					futures.add(mailbox.submit(this));
+				}
+
+				return model + 1;
+			}
+		}));
+
+		pending.poll()
+			.run();
+
+		for (int i = 0; i < ContextMailbox.BATCH_SIZE; i++) {
+			assertTrue(futures.get(i)
+				.isDone());
+		}
+
+		assertFalse(futures.get(ContextMailbox.BATCH_SIZE)
+			.isDone());
+		assertEquals(Integer.valueOf(ContextMailbox.BATCH_SIZE), mailbox.getContext()
+			.getModel());
+		assertEquals(1, pending.size());
+
+		drain();
+
+		assertEquals(total, futures.size());
+		assertEquals(Integer.valueOf(total), mailbox.getContext()
+			.getModel());
+
+		for (final CompletableFuture<Context<Integer>> future : futures) {
+			assertTrue(future.isDone());
+		}
+	}
+
+	private void drain() {
+		Runnable run;
+
+		while ((run = pending.poll()) != null) {
+			run.run();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * 
+ */
+public class ContextStoreTest {
+
+	private final State<Long> odd = State.of("Odd");
+
+	private final State<Long> even = State.of("Even", true);
+
+	private final Machine<Long> machine = Machine.builder(Long.class)
+		.withModelSupplier(() -> 0L)
+		.withStartState(even)
+		.withPreEvaluationTransform((state, model) -> model + 1)
+		.haltWhen((state, model) -> model >= 9)
+		.withState(even)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.on("reset", even, (state, model) -> true, (state, model) -> 0L)
+		.withState(odd)
+		.to(even, (state, model) -> model % 2 == 0)
+		.build();
+
+	@Test
+	public final void testStepAll() {
+		final ContextStore<Long> store = new ContextStore<>(machine, 0);
+		final Context<Long>[] expected = contexts(100);
+
+		for (final Context<Long> context : expected) {
+			assertEquals(store.size(), store.add(context));
+		}
+
+		int ready;
+
+		do {
+			ready = store.stepAll();
+
+			for (int id = 0; id < expected.length; id++) {
+				if (expected[id].getStatus() == Status.READY) {
+					expected[id] = machine.evaluate(expected[id]);
+				}
+
+				assertSame(expected[id].getState(), store.getState(id));
+				assertEquals(expected[id].getStatus(), store.getStatus(id));
+				assertEquals(expected[id].getModel(), store.getModel(id));
+			}
+		} while (ready > 0);
+
+		assertEquals(expected.length, store.count(Status.ACCEPTED) + store.count(Status.CRASHED));
+	}
+
+	@Test
+	public final void testRunAll() {
+		final ContextStore<Long> store = new ContextStore<>(machine, 4);
+		final Context<Long>[] contexts = contexts(10);
+
+		for (final Context<Long> context : contexts) {
+			store.add(context);
+		}
+
+		store.runAll();
+
+		for (int id = 0; id < contexts.length; id++) {
+			final Context<Long> expected = machine.evaluateUntilHalted(contexts[id]);
+			final Context<Long> actual = store.get(id);
+
+			assertSame(expected.getState(), actual.getState());
+			assertEquals(expected.getStatus(), actual.getStatus());
+			assertEquals(expected.getModel(), actual.getModel());
+		}
+	}
+
+	@Test
+	public final void testStepAndFire() {
+		final ContextStore<Long> store = new ContextStore<>(machine, 1);
+		final int id = store.add();
+
+		assertTrue(store.step(id));
+		assertSame(odd, store.getState(id));
+		assertTrue(store.step(id));
+		assertSame(even, store.getState(id));
+		assertTrue(store.fire(id, "reset"));
+		assertEquals(Long.valueOf(0), store.getModel(id));
+
+		store.set(id, new Context<>(odd, Status.CRASHED, 3L));
+		assertFalse(store.step(id));
+		assertEquals(Long.valueOf(3), store.getModel(id));
+	}
+
+	@Test
+	public final void testSteppingLeavesModelSupplierAlone() {
+		final AtomicInteger supplied = new AtomicInteger();
+		final Machine<Long> counted = Machine.builder(Long.class)
+			.withModelSupplier(() -> Long.valueOf(supplied.incrementAndGet()))
+			.withStartState(even)
+			.withState(even)
+			.to(odd, (state, model) -> true)
+			.on("reset", even)
+			.withState(odd)
+			.to(even, (state, model) -> true)
+			.build();
+		final ContextStore<Long> store = new ContextStore<>(counted, 2);
+		final int id = store.add();
+
+		store.add();
+		store.step(id);
+		store.fire(id, "reset");
+		store.stepAll();
+
+		assertEquals(2, supplied.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testHistoryRejected() {
+		final State<Integer> active = State.of("Active");
+		final State<Integer> first = State.of("First");
+
+		new ContextStore<>(Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(first)
+			.withHistory(active)
+			.withState(active)
+			.withState(first)
+			.within(active)
+			.build(), 1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public final void testUnknownId() {
+		new ContextStore<>(machine, 16).get(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testUnknownState() {
+		new ContextStore<>(machine, 16).add(new Context<>(State.of("Unknown"), Status.READY, 0L));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Context<Long>[] contexts(final int count) {
+		final Context<Long>[] contexts = new Context[count];
+
+		for (int i = 0; i < count; i++) {
+			contexts[i] = new Context<>(i % 2 == 0 ? even : odd, Status.READY, Long.valueOf(i % 9));
+		}
+
+		return contexts;
+	}
+}
@@ -0,0 +1,134 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class DecisionCacheTest {
+
+	private final AtomicInteger guardCalls = new AtomicInteger();
+
+	private final AtomicInteger customers = new AtomicInteger();
+
+	private final State<Integer> quote = State.of("Quote");
+
+	private final State<Integer> gold = State.of("Gold", true);
+
+	private final State<Integer> silver = State.of("Silver", true);
+
+	private final State<Integer> bronze = State.of("Bronze", true);
+
+	@Test
+	public final void testCachedSelection() {
+		final Machine<Integer> machine = machine(3, 100);
+
+		for (int i = 0; i < 30; i++) {
+			final Context<Integer> context = machine.evaluate(machine.create());
+
+			assertSame(expected(context.getModel()), context.getState());
+		}
+
+		final DecisionCacheStats stats = machine.getDecisionCacheStats();
+
+		// Guards only run for the first customer of every tier: 1 call for gold, 2 for silver and bronze
+		assertEquals(5, guardCalls.get());
+		assertEquals(27, stats.getHits());
+		assertEquals(3, stats.getMisses());
+		assertEquals(3, stats.getSize());
+		assertEquals(0, stats.getEvictions());
+	}
+
+	@Test
+	public final void testBoundedSize() {
+		final Machine<Integer> machine = machine(1000, 16);
+
+		for (int i = 0; i < 2000; i++) {
+			final Context<Integer> context = machine.evaluate(machine.create());
+
+			assertSame(expected(context.getModel()), context.getState());
+		}
+
+		final DecisionCacheStats stats = machine.getDecisionCacheStats();
+
+		assertEquals(16, stats.getCapacity());
+		assertTrue(stats.getSize() <= 16);
+		assertTrue(stats.getEvictions() > 0);
+		assertEquals(2000, stats.getHits() + stats.getMisses());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public final void testConcurrentEvaluation() {
+		final Machine<Integer> machine = machine(50, 32);
+		final Context<Integer>[] contexts = new Context[20_000];
+
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = machine.create();
+		}
+
+		machine.evaluateAll(contexts, 64);
+
+		for (final Context<Integer> context : contexts) {
+			assertSame(expected(context.getModel()), context.getState());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testNotEnabled() {
+		Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(quote)
+			.withState(quote)
+			.build()
+			.getDecisionCacheStats();
+	}
+
+	private Machine<Integer> machine(final int customerKinds, final int cacheSize) {
+		return Machine.builder(Integer.class)
+			.withModelSupplier(() -> customers.getAndIncrement() % customerKinds)
+			.withStartState(quote)
+			.withDecisionCache(cacheSize)
+			.withState(quote)
+			.withPureGuards(model -> model)
+			.to(gold, tier(2))
+			.to(silver, tier(1))
+			.to(bronze, (state, model) -> true)
+			.withState(gold)
+			.withState(silver)
+			.withState(bronze)
+			.build();
+	}
+
+	private BiPredicate<State<Integer>, Integer> tier(final int tier) {
+		return (state, model) -> {
+			guardCalls.incrementAndGet();
+
+			return model % 3 == tier;
+		};
+	}
+
+	private State<Integer> expected(final int model) {
+		return model % 3 == 2 ? gold : model % 3 == 1 ? silver : bronze;
+	}
+}
@@ -0,0 +1,117 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import cool.arch.stateroom.enums.Status;
+import cool.arch.stateroom.enums.StopReason;
+
+/**
+ * 
+ */
+public class EvaluationLimitsTest {
+
+	private final State<Long> a = State.of("A");
+
+	private final State<Long> b = State.of("B");
+
+	private final State<Long> c = State.of("C", true);
+
+	/**
+	 * Counts up to 100 and then cycles through A, B and C without halting, unless the model starts
+	 * above 900 in which case it counts up to a halt at 1000.
+	 */
+	private final Machine<Long> machine = Machine.builder(Long.class)
+		.withModelSupplier(() -> 0L)
+		.withStartState(a)
+		.haltWhen((state, model) -> model == 1_000L)
+		.withState(a)
+		.to(a, (state, model) -> model < 100 || model > 900, (state, model) -> model + 1)
+		.to(b, (state, model) -> true)
+		.withState(b)
+		.to(c, (state, model) -> true)
+		.withState(c)
+		.to(a, (state, model) -> true)
+		.build();
+
+	@Test
+	public final void testHalted() {
+		final EvaluationResult<Long> result = machine.evaluateUntilHalted(context(990L), EvaluationLimits.<Long> none()
+			.withMaxSteps(100)
+			.withLivelockDetection(Long::longValue));
+
+		assertEquals(StopReason.HALTED, result.getReason());
+		assertEquals(Status.CRASHED, result.getContext()
+			.getStatus());
+		assertEquals(10, result.getSteps());
+	}
+
+	@Test
+	public final void testStepBudget() {
+		final EvaluationResult<Long> result = machine.cursor()
+			.run(EvaluationLimits.<Long> none()
+				.withMaxSteps(250));
+
+		assertEquals(StopReason.STEP_BUDGET_EXHAUSTED, result.getReason());
+		assertEquals(Status.READY, result.getContext()
+			.getStatus());
+		assertEquals(250, result.getSteps());
+	}
+
+	@Test
+	public final void testDeadline() {
+		final long start = System.nanoTime();
+		final EvaluationResult<Long> result = machine.evaluateUntilHalted(machine.create(), EvaluationLimits.none()
+			.withTimeout(Duration.ofMillis(20)));
+
+		assertEquals(StopReason.DEADLINE_EXCEEDED, result.getReason());
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(20)
+			.toNanos());
+		assertEquals(0, result.getSteps() % EvaluationLimits.CLOCK_INTERVAL);
+	}
+
+	@Test
+	public final void testLivelock() {
+		final EvaluationResult<Long> result = machine.evaluateUntilHalted(machine.create(), EvaluationLimits.<Long> none()
+			.withLivelockDetection(Long::longValue));
+
+		assertEquals(StopReason.LIVELOCK, result.getReason());
+		assertEquals(Long.valueOf(100), result.getContext()
+			.getModel());
+		assertTrue(result.getSteps() < 2 * (100 + 3));
+	}
+
+	@Test
+	public final void testZeroBudget() {
+		final EvaluationResult<Long> result = machine.evaluateUntilHalted(context(5L), EvaluationLimits.<Long> none()
+			.withMaxSteps(0));
+
+		assertEquals(StopReason.STEP_BUDGET_EXHAUSTED, result.getReason());
+		assertSame(a, result.getContext()
+			.getState());
+		assertEquals(Long.valueOf(5), result.getContext()
+			.getModel());
+	}
+
+	private Context<Long> context(final long model) {
+		return new Context<>(a, Status.READY, Long.valueOf(model));
+	}
+}
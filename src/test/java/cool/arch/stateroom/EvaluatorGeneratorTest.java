@@ -0,0 +1,163 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class EvaluatorGeneratorTest {
+
+	private final State<Integer> start = State.of("Start");
+
+	private final State<Integer> even = State.of("Even", true);
+
+	private final State<Integer> odd = State.of("Odd", false, (state, model) -> model + 1);
+
+	private Machine<Integer> build(final boolean generated) {
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.haltWhen((state, model) -> model > 60);
+
+		if (generated) {
+			builder.withCodeGeneration();
+		}
+
+		return builder.withState(start)
+			.to(odd, (state, model) -> model % 2 == 1)
+			.to(even, (state, model) -> model % 2 == 0)
+			.withState(odd)
+			.on("reset", start, (state, model) -> true, (state, model) -> 0)
+			.to(even, (state, model) -> true, (state, model) -> model * 2)
+			.withState(even)
+			.to(odd, (state, model) -> model % 3 == 0)
+			.build();
+	}
+
+	@Test
+	public final void testSameResultsAsInterpreter() {
+		final Machine<Integer> interpreted = build(false);
+		final Machine<Integer> generated = build(true);
+
+		assertFalse(interpreted.isCodeGenerated());
+		assertTrue(generated.isCodeGenerated());
+
+		for (final State<Integer> state : new State[] { start, odd, even }) {
+			for (int model = 0; model < 50; model++) {
+				final Context<Integer> expected = interpreted.evaluateUntilHalted(new Context<>(state, READY, model));
+				final Context<Integer> actual = generated.evaluateUntilHalted(new Context<>(state, READY, model));
+
+				assertSame(expected.getState(), actual.getState());
+				assertEquals(expected.getStatus(), actual.getStatus());
+				assertEquals(expected.getModel(), actual.getModel());
+			}
+		}
+
+		final Context<Integer> reset = generated.fire(new Context<>(odd, READY, 5), "reset");
+
+		assertSame(start, reset.getState());
+		assertEquals(Integer.valueOf(0), reset.getModel());
+	}
+
+	@Test
+	public final void testLargeMachine() {
+		final int size = 2000;
+		@SuppressWarnings("unchecked")
+		final State<Integer>[] states = new State[size];
+
+		for (int i = 0; i < size; i++) {
+			states[i] = State.of("S" + i, i == size - 1);
+		}
+
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(states[0])
+			.withCodeGeneration()
+			.haltWhen((state, model) -> state.isAcceptState());
+		StateBuilderFacade<Integer> facade = null;
+
+		for (int i = 0; i < size; i++) {
+			facade = facade == null ? builder.withState(states[i]) : facade.withState(states[i]);
+
+			for (int j = 0; j < 20 && i < size - 1; j++) {
+				final int value = j;
+
+				facade = facade.to(states[i + 1], (state, model) -> model % 20 == value, (state, model) -> model + 7);
+			}
+		}
+
+		final Machine<Integer> machine = facade.build();
+		final Context<Integer> result = machine.evaluateUntilHalted(machine.create());
+
+		assertTrue(machine.isCodeGenerated());
+		assertSame(states[size - 1], result.getState());
+		assertEquals(Integer.valueOf((size - 1) * 7), result.getModel());
+	}
+
+	@Test
+	public final void testFallbackBeyondClassFileLimits() {
+		final int size = 25_000;
+		@SuppressWarnings("unchecked")
+		final State<Integer>[] states = new State[size];
+
+		for (int i = 0; i < size; i++) {
+			states[i] = State.of("S" + i, i == size - 1);
+		}
+
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(states[0])
+			.withCodeGeneration()
+			.haltWhen((state, model) -> state.isAcceptState());
+		StateBuilderFacade<Integer> facade = null;
+
+		for (int i = 0; i < size; i++) {
+			facade = facade == null ? builder.withState(states[i]) : facade.withState(states[i]);
+
+			if (i < size - 1) {
+				facade = facade.to(states[i + 1], (state, model) -> true, (state, model) -> model + 1);
+			}
+		}
+
+		final Machine<Integer> machine = facade.build();
+		final Context<Integer> result = machine.evaluateUntilHalted(machine.create());
+
+		// One method per state overflows the constant pool of the generated class
+		assertFalse(machine.isCodeGenerated());
+		assertSame(states[size - 1], result.getState());
+		assertEquals(Integer.valueOf(size - 1), result.getModel());
+	}
+
+	@Test
+	public final void testFallbackWithMetrics() {
+		final Machine<Integer> machine = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withCodeGeneration()
+			.withMetrics()
+			.withState(start)
+			.build();
+
+		assertFalse(machine.isCodeGenerated());
+	}
+}
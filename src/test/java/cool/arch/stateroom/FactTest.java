@@ -0,0 +1,116 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class FactTest {
+
+	private final AtomicInteger computations = new AtomicInteger();
+
+	private final State<Integer> start = State.of("Start");
+
+	private final State<Integer> low = State.of("Low");
+
+	private final State<Integer> medium = State.of("Medium");
+
+	private final State<Integer> high = State.of("High");
+
+	private final Fact<Integer, Integer> score = Fact.of("score", (state, model) -> {
+		computations.incrementAndGet();
+
+		return Integer.valueOf(model * 10);
+	});
+
+	@Test
+	public final void testFactComputedOncePerStep() {
+		final Machine<Integer> machine = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withFact(score)
+			.withState(start)
+			.to(high, score, value -> value > 50)
+			.to(medium, score, value -> value > 20)
+			.to(low, score, value -> value > 0)
+			.withState(low)
+			.withState(medium)
+			.withState(high)
+			.build();
+
+		final ExecutionCursor<Integer> cursor = machine.cursor(new Context<>(start, READY, 1));
+
+		cursor.step();
+		assertSame(low, cursor.getState());
+		assertEquals(1, computations.get());
+
+		cursor.reset(new Context<>(start, READY, 0));
+		cursor.step();
+		assertSame(start, cursor.getState());
+		assertEquals(2, computations.get());
+
+		assertSame(medium, machine.evaluate(new Context<>(start, READY, 3))
+			.getState());
+		assertEquals(3, computations.get());
+	}
+
+	@Test
+	public final void testSharedGuard() {
+		final BiPredicate<State<Integer>, Integer> expensive = (state, model) -> {
+			computations.incrementAndGet();
+
+			return model > 0;
+		};
+		final Machine<Integer> machine = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withSharedGuard(expensive)
+			.withState(start)
+			.on("a", low, expensive)
+			.to(medium, expensive.and((state, model) -> model > 5))
+			.to(high, expensive)
+			.withState(low)
+			.withState(medium)
+			.withState(high)
+			.build();
+
+		assertSame(high, machine.evaluate(new Context<>(start, READY, 1))
+			.getState());
+		assertEquals(2, computations.get());
+
+		assertSame(low, machine.fire(new Context<>(start, READY, 1), "a")
+			.getState());
+		assertEquals(3, computations.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testUndeclaredFact() {
+		Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withState(start)
+			.to(low, score, value -> value > 0)
+			.withState(low)
+			.build();
+	}
+}
@@ -0,0 +1,123 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * 
+ */
+public class InputDriverTest {
+
+	private final State<Long> low = State.of("Low");
+
+	private final State<Long> high = State.of("High");
+
+	private final State<Long> done = State.of("Done", true);
+
+	private final Machine<Long> machine = Machine.builder(Long.class)
+		.withModelSupplier(() -> 0L)
+		.withStartState(low)
+		.haltWhen((state, model) -> state == done)
+		.withState(low)
+		.to(high, (state, model) -> model >= 10)
+		.on("stop", done, (state, model) -> true)
+		.withState(high)
+		.to(low, (state, model) -> model < 10)
+		.on("stop", done, (state, model) -> true)
+		.withState(done)
+		.build();
+
+	private final InputDriver<Long, Integer> driver = machine.driver((model, input) -> model + input);
+
+	@Test
+	public final void testRun() {
+		final Context<Long> context = driver.run(machine.create(), Stream.of(4, 4, 4, -5));
+
+		assertSame(low, context.getState());
+		assertEquals(Long.valueOf(7), context.getModel());
+		assertEquals(context.getModel(), driver.run(machine.create(), Arrays.asList(4, 4, 4, -5)
+			.iterator())
+			.getModel());
+	}
+
+	@Test
+	public final void testContexts() {
+		final List<State<Long>> states = driver.contexts(machine.create(), IntStream.of(5, 5, 5, -10)
+			.boxed())
+			.map(Context::getState)
+			.collect(Collectors.toList());
+
+		assertEquals(Arrays.asList(low, high, high, low), states);
+
+		final Spliterator<Context<Long>> spliterator = driver.contexts(machine.create(), Stream.of(1, 2, 3))
+			.spliterator();
+
+		assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+		assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+		assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+	}
+
+	@Test
+	public final void testStopsConsumingWhenHalted() {
+		final AtomicInteger pulled = new AtomicInteger();
+		final Iterator<Object> events = Stream.iterate((Object) "tick", event -> event)
+			.map(event -> pulled.incrementAndGet() == 3 ? "stop" : event)
+			.iterator();
+		final InputDriver<Long, Object> eventDriver = machine.eventDriver();
+
+		final Context<Long> context = eventDriver.run(machine.create(), events);
+
+		assertSame(done, context.getState());
+		assertEquals(Status.ACCEPTED, context.getStatus());
+		assertEquals(3, pulled.get());
+
+		pulled.set(0);
+
+		assertEquals(3, eventDriver.contexts(machine.create(), Stream.iterate((Object) "tick", event -> event)
+			.peek(event -> pulled.incrementAndGet())
+			.map(event -> pulled.get() == 3 ? "stop" : event))
+			.count());
+		assertEquals(3, pulled.get());
+	}
+
+	@Test
+	public final void testSink() {
+		final ExecutionCursor<Long> cursor = machine.cursor();
+		final Consumer<Integer> sink = driver.sink(cursor);
+
+		sink.accept(6);
+		sink.accept(6);
+
+		assertSame(high, cursor.getState());
+		assertEquals(Long.valueOf(12), cursor.getModel());
+	}
+}
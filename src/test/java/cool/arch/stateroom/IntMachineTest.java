@@ -0,0 +1,127 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.ACCEPTED;
+import static cool.arch.stateroom.enums.Status.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class IntMachineTest {
+
+	private final State<Integer> start = State.of("Start");
+
+	private final State<Integer> even = State.of("Even", true);
+
+	private final State<Integer> odd = State.of("Odd");
+
+	private final IntMachine machine = IntMachine.builder()
+		.withModelSupplier(() -> 0)
+		.withStartState(start)
+		.withPreEvaluationTransform((state, model) -> model + 1)
+		.haltWhen((state, model) -> model > 6)
+		.withState(start)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.to(even, (state, model) -> model % 2 == 0)
+		.withState(odd, (state, model) -> model + 1)
+		.to(even, (state, model) -> true, (state, model) -> model * 2)
+		.withState(even)
+		.to(odd, (state, model) -> model % 3 == 0)
+		.build();
+
+	@Test
+	public final void testCursor() {
+		final IntCursor cursor = machine.cursor();
+
+		assertSame(start, cursor.getState());
+		assertEquals(0, cursor.getModel());
+
+		assertTrue(cursor.step());
+		assertSame(odd, cursor.getState());
+		assertEquals(2, cursor.getModel());
+
+		assertTrue(cursor.step());
+		assertSame(even, cursor.getState());
+		assertEquals(6, cursor.getModel());
+
+		assertFalse(cursor.step());
+		assertSame(even, cursor.getState());
+		assertEquals(ACCEPTED, cursor.getStatus());
+		assertEquals(7, cursor.getModel());
+	}
+
+	@Test
+	public final void testMatchesGenericMachine() {
+		final State<Integer> genericStart = State.of("Start");
+		final State<Integer> genericEven = State.of("Even", true);
+		final State<Integer> genericOdd = State.of("Odd", false, (state, model) -> model + 1);
+		final Machine<Integer> generic = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(genericStart)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.haltWhen((state, model) -> model > 6)
+			.withState(genericStart)
+			.to(genericOdd, (state, model) -> model % 2 == 1)
+			.to(genericEven, (state, model) -> model % 2 == 0)
+			.withState(genericOdd)
+			.to(genericEven, (state, model) -> true, (state, model) -> model * 2)
+			.withState(genericEven)
+			.to(genericOdd, (state, model) -> model % 3 == 0)
+			.build();
+
+		for (int model = 0; model < 20; model++) {
+			final Context<Integer> expected = generic.evaluate(new Context<>(genericEven, READY, Integer.valueOf(model)));
+			final Context<Integer> actual = machine.evaluate(new Context<>(even, READY, Integer.valueOf(model)));
+
+			assertEquals(expected.getState()
+				.getName(), actual.getState()
+					.getName());
+			assertEquals(expected.getStatus(), actual.getStatus());
+			assertEquals(expected.getModel(), actual.getModel());
+		}
+	}
+
+	@Test
+	public final void testEvaluateUntilHalted() {
+		final Context<Integer> context = machine.evaluateUntilHalted(machine.create());
+
+		assertSame(even, context.getState());
+		assertEquals(ACCEPTED, context.getStatus());
+		assertEquals(Integer.valueOf(7), context.getModel());
+	}
+
+	@Test
+	public final void testOrdinals() {
+		assertEquals(3, machine.size());
+		assertEquals(1, machine.ordinalOf(odd));
+		assertSame(odd, machine.getState(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testGenericStateTransform() {
+		final State<Integer> state = State.of("Boxing", false, (s, model) -> model + 1);
+
+		IntMachine.builder()
+			.withStartState(state)
+			.withState(state)
+			.build();
+	}
+}
@@ -0,0 +1,63 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.CRASHED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class LongMachineTest {
+
+	private final State<Long> low = State.of("Low");
+
+	private final State<Long> high = State.of("High");
+
+	private final LongMachine machine = LongMachine.builder()
+		.withModelSupplier(() -> 1L)
+		.withStartState(low)
+		.withPreEvaluationTransform((state, model) -> model << 1)
+		.haltWhen((state, model) -> model == 0)
+		.withState(low)
+		.to(high, (state, model) -> model >= 1L << 32)
+		.withState(high, (state, model) -> model | 1)
+		.to(low, (state, model) -> model < 0, (state, model) -> 0)
+		.build();
+
+	@Test
+	public final void testRun() {
+		final LongCursor cursor = machine.cursor();
+		final Context<Long> context = cursor.run();
+
+		assertSame(low, context.getState());
+		assertEquals(CRASHED, context.getStatus());
+		assertEquals(Long.valueOf(0), context.getModel());
+	}
+
+	@Test
+	public final void testEntryTransform() {
+		final LongCursor cursor = machine.cursor();
+
+		for (int i = 0; i < 32; i++) {
+			cursor.step();
+		}
+
+		assertSame(high, cursor.getState());
+		assertEquals((1L << 32) | 1, cursor.getModel());
+	}
+}
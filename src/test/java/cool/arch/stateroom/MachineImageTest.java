@@ -0,0 +1,145 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ */
+public class MachineImageTest {
+
+	private static final BiPredicate<State<Integer>, Integer> BELOW_5 = (state, model) -> model < 5;
+
+	private static final BiPredicate<State<Integer>, Integer> AT_LEAST_5 = (state, model) -> model >= 5;
+
+	private static final BiFunction<State<Integer>, Integer, Integer> INCREMENT = (state, model) -> model + 1;
+
+	private static final BiFunction<State<Integer>, Integer, Integer> DOUBLE = (state, model) -> model * 2;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final State<Integer> idle = State.of("Idle");
+
+	private final State<Integer> counting = State.of("Counting");
+
+	private final State<Integer> done = State.of("Done", true, DOUBLE);
+
+	private final Machine<Integer> machine = Machine.builder(Integer.class)
+		.withModelSupplier(() -> 0)
+		.withStartState(idle)
+		.haltWhen((state, model) -> state.isAcceptState())
+		.withState(idle)
+		.on("start", counting)
+		.after(Duration.ofSeconds(5), done)
+		.withState(counting)
+		.to(counting, BELOW_5, INCREMENT)
+		.to(done, AT_LEAST_5)
+		.withState(done)
+		.build();
+
+	private final MachineLoader<Integer> loader = Machine.loader(Integer.class)
+		.withModelSupplier(() -> 0)
+		.haltWhen((state, model) -> state.isAcceptState())
+		.withGuard("below5", BELOW_5)
+		.withGuard("atLeast5", AT_LEAST_5)
+		.withTransform("increment", INCREMENT)
+		.withTransform("double", DOUBLE);
+
+	@Test
+	public final void testRoundTrip() throws IOException {
+		final Path path = folder.newFile()
+			.toPath();
+
+		loader.writeImage(machine, path);
+
+		final Machine<Integer> loaded = loader.loadImage(path);
+		final Context<Integer> context = loaded.evaluateUntilHalted(loaded.fire(loaded.create(), "start"));
+
+		assertEquals(machine.getFingerprint(), loaded.getFingerprint());
+		assertEquals("Done", context.getState()
+			.getName());
+		assertEquals(Integer.valueOf(10), context.getModel());
+		assertNotNull(loaded.getPlan().timeouts);
+	}
+
+	@Test
+	public final void testCorruptImage() throws IOException {
+		final Path path = folder.newFile()
+			.toPath();
+
+		loader.writeImage(machine, path);
+
+		final byte[] bytes = Files.readAllBytes(path);
+
+		bytes[bytes.length - 1] ^= 1;
+
+		try {
+			loader.loadImage(ByteBuffer.wrap(bytes));
+			fail("Expected IllegalArgumentException");
+		} catch (final IllegalArgumentException e) {
+			assertTrue(e.getMessage()
+				.contains("checksum"));
+		}
+	}
+
+	@Test
+	public final void testUnknownIds() throws IOException {
+		final Path path = folder.newFile()
+			.toPath();
+
+		loader.writeImage(machine, path);
+
+		try {
+			Machine.loader(Integer.class)
+				.withModelSupplier(() -> 0)
+				.withGuard("below5", BELOW_5)
+				.loadImage(path);
+			fail("Expected IllegalStateException");
+		} catch (final IllegalStateException e) {
+			assertEquals("Image is not valid to be loaded: Unknown guards: atLeast5, "
+				+ "Unknown transforms: increment, double.", e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testUnregisteredGuard() throws IOException {
+		final Machine<Integer> unregistered = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(idle)
+			.withState(idle)
+			.to(done, (state, model) -> model > 0)
+			.withState(done)
+			.build();
+
+		loader.writeImage(unregistered, folder.newFile()
+			.toPath());
+	}
+}
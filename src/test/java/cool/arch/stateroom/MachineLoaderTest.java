@@ -0,0 +1,112 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class MachineLoaderTest {
+
+	private final MachineLoader<Integer> loader = Machine.loader(Integer.class)
+		.withModelSupplier(() -> 0)
+		.haltWhen((state, model) -> state.isAcceptState())
+		.withGuard("below3", (state, model) -> model < 3)
+		.withGuard("atLeast3", (state, model) -> model >= 3)
+		.withTransform("increment", (state, model) -> model + 1);
+
+	@Test
+	public final void testLoadTable() throws IOException {
+		final Machine<Integer> machine = loader.load(new StringReader(String.join("\n", //
+			"# state,accept,target,guard,transform", //
+			"Counting, false, Counting, below3, increment", //
+			"", //
+			"Counting,false,Done,atLeast3", //
+			"Done,true")));
+		final Context<Integer> context = machine.evaluateUntilHalted(machine.create());
+
+		assertEquals("Done", context.getState()
+			.getName());
+		assertTrue(context.getState()
+			.isAcceptState());
+		assertEquals(Integer.valueOf(3), context.getModel());
+	}
+
+	@Test
+	public final void testLoadColumns() {
+		final int size = 10_000;
+		final String[] states = new String[size];
+		final boolean[] acceptStates = new boolean[size];
+		final int[] sources = new int[size - 1];
+		final int[] targets = new int[size - 1];
+		final String[] modelTransforms = new String[size - 1];
+
+		for (int i = 0; i < size; i++) {
+			states[i] = "S" + i;
+		}
+
+		// Chain listed from its end
+		for (int i = 0; i < size - 1; i++) {
+			sources[i] = size - 2 - i;
+			targets[i] = size - 1 - i;
+			modelTransforms[i] = "increment";
+		}
+
+		acceptStates[size - 1] = true;
+
+		final Machine<Integer> machine = loader.withStartState("S1")
+			.load(states, acceptStates, sources, targets, null, modelTransforms);
+		final Context<Integer> context = machine.evaluateUntilHalted(machine.create());
+
+		assertEquals(size, machine.getPlan()
+			.size());
+		assertEquals("S" + (size - 1), context.getState()
+			.getName());
+		assertEquals(Integer.valueOf(size - 2), context.getModel());
+	}
+
+	@Test
+	public final void testTransitionOrder() {
+		final Machine<Integer> machine = loader.load(new String[] { "A", "B", "C" }, new boolean[] { false, true, true },
+			new int[] { 1, 0, 0 }, new int[] { 0, 2, 1 }, null, null);
+
+		assertEquals("C", machine.evaluate(machine.create())
+			.getState()
+			.getName());
+	}
+
+	@Test
+	public final void testInvalidTable() throws IOException {
+		try {
+			loader.load(new StringReader(String.join("\n", //
+				"A,false,B,unknownGuard", //
+				"A,true,C,,unknownTransform", //
+				"B,maybe", //
+				"B,false,A,,,extra")));
+			fail("Expected IllegalStateException");
+		} catch (final IllegalStateException e) {
+			assertEquals("Table is not valid to be loaded: Malformed rows: 3, 4, "
+				+ "States with conflicting accept flags: A, Invalid states: B, C, Unknown guards: unknownGuard, "
+				+ "Unknown transforms: unknownTransform.", e.getMessage());
+		}
+	}
+}
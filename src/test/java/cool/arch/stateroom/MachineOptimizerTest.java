@@ -0,0 +1,134 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static cool.arch.stateroom.enums.Status.ACCEPTED;
+import static cool.arch.stateroom.enums.Status.READY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class MachineOptimizerTest {
+
+	private static final BiPredicate<State<Integer>, Integer> SMALL = (state, model) -> model < 3;
+
+	private static final BiPredicate<State<Integer>, Integer> LARGE = (state, model) -> model >= 3;
+
+	private static final BiFunction<State<Integer>, Integer, Integer> INCREMENT = (state, model) -> model + 1;
+
+	private final State<Integer> start = State.of("Start");
+
+	private final State<Integer> left = State.of("Left");
+
+	private final State<Integer> right = State.of("Right");
+
+	private final State<Integer> done = State.of("Done", true);
+
+	private final State<Integer> orphan = State.of("Orphan");
+
+	private Machine<Integer> build(final boolean optimized) {
+		final MachineBuilder<Integer> builder = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.haltWhen((state, model) -> state.isAcceptState());
+
+		if (optimized) {
+			builder.withOptimization();
+		}
+
+		return builder.withState(start)
+			.to(left, SMALL, INCREMENT)
+			.to(right, LARGE, INCREMENT)
+			.withState(left)
+			.to(right, SMALL, INCREMENT)
+			.to(done, LARGE)
+			.withState(right)
+			.to(left, SMALL, INCREMENT)
+			.to(done, LARGE)
+			.withState(done)
+			.withState(orphan)
+			.to(done, SMALL)
+			.build();
+	}
+
+	@Test
+	public final void testReport() {
+		final OptimizationReport<Integer> report = build(true).getOptimizationReport();
+
+		assertEquals(5, report.getStatesBefore());
+		assertEquals(3, report.getStatesAfter());
+		assertEquals(7, report.getTransitionsBefore());
+		assertEquals(4, report.getTransitionsAfter());
+		assertEquals(Arrays.asList(orphan), report.getUnreachableStates());
+		assertEquals(Collections.singletonMap(right, left), report.getMergedStates());
+	}
+
+	@Test
+	public final void testSameResults() {
+		final Machine<Integer> plain = build(false);
+		final Machine<Integer> optimized = build(true);
+		final Context<Integer> expected = plain.evaluateUntilHalted(plain.create());
+		final Context<Integer> actual = optimized.evaluateUntilHalted(optimized.create());
+
+		assertSame(done, actual.getState());
+		assertSame(expected.getState(), actual.getState());
+		assertEquals(ACCEPTED, actual.getStatus());
+		assertEquals(expected.getModel(), actual.getModel());
+	}
+
+	@Test
+	public final void testMergedStateContext() {
+		final Machine<Integer> optimized = build(true);
+		final Context<Integer> context = optimized.evaluate(new Context<>(right, READY, 5));
+
+		assertSame(done, context.getState());
+	}
+
+	@Test
+	public final void testTransitionsLeftUnchanged() {
+		final Machine<Integer> plain = build(false);
+		final Map<Transition<Integer>, State<Integer>> targets = new IdentityHashMap<>();
+
+		for (final Transitions<Integer> transitions : plain.getTransitions()
+			.values()) {
+			for (final Transition<Integer> transition : transitions) {
+				targets.put(transition, transition.getTargetState());
+			}
+		}
+
+		assertEquals(Collections.singletonMap(right, left), MachineOptimizer.optimize(plain)
+			.getMergedStates());
+
+		for (final Map.Entry<Transition<Integer>, State<Integer>> entry : targets.entrySet()) {
+			assertSame(entry.getValue(), entry.getKey()
+				.getTargetState());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testReportNotEnabled() {
+		build(false).getOptimizationReport();
+	}
+}
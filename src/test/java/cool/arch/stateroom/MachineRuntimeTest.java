@@ -0,0 +1,153 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class MachineRuntimeTest {
+
+	private final State<Integer> even = State.of("Even", true);
+
+	private final State<Integer> odd = State.of("Odd");
+
+	private final Machine<Integer> machine = Machine.builder(Integer.class)
+		.withModelSupplier(() -> 0)
+		.withStartState(even)
+		.withState(even)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.withState(odd)
+		.to(even, (state, model) -> model % 2 == 0)
+		.build();
+
+	private final MachineRuntime<String, Integer> runtime = new MachineRuntime<>(machine);
+
+	@After
+	public void tearDown() {
+		runtime.close();
+	}
+
+	@Test
+	public final void testSubmit() throws Exception {
+		runtime.start("first");
+
+		final Context<Integer> context = runtime.submit("first", model -> model + 1)
+			.get(10, TimeUnit.SECONDS);
+
+		assertSame(odd, context.getState());
+		assertEquals(Integer.valueOf(1), context.getModel());
+		assertSame(context, runtime.get("first"));
+	}
+
+	@Test
+	public final void testConcurrentSubmissions() throws Exception {
+		final int instances = 100;
+		final int producers = 4;
+		final int submissions = 250;
+		final ExecutorService pool = Executors.newFixedThreadPool(producers);
+
+		for (int i = 0; i < instances; i++) {
+			runtime.start("instance-" + i);
+		}
+
+		try {
+			final List<CompletableFuture<Context<Integer>>> futures = new ArrayList<>();
+			final List<Future<?>> producing = new ArrayList<>();
+
+			for (int p = 0; p < producers; p++) {
+				producing.add(pool.submit(() -> {
+					for (int s = 0; s < submissions; s++) {
+						for (int i = 0; i < instances; i++) {
+							final CompletableFuture<Context<Integer>> future =
+								runtime.submit("instance-" + i, model -> model + 1);
+
+							synchronized (futures) {
+								futures.add(future);
+							}
+						}
+					}
+				}));
+			}
+
+			for (final Future<?> future : producing) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+				.get(30, TimeUnit.SECONDS);
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int i = 0; i < instances; i++) {
+			final Context<Integer> context = runtime.get("instance-" + i);
+
+			assertEquals(Integer.valueOf(producers * submissions), context.getModel());
+			assertSame(even, context.getState());
+		}
+	}
+
+	@Test
+	public final void testFailedSubmission() throws Exception {
+		runtime.start("failing");
+
+		final CompletableFuture<Context<Integer>> failed = runtime.submit("failing", model -> {
+			throw new IllegalStateException("rejected");
+		});
+		final Context<Integer> context = runtime.submit("failing", model -> model + 1)
+			.get(10, TimeUnit.SECONDS);
+
+		assertTrue(failed.isCompletedExceptionally());
+		assertSame(odd, context.getState());
+		assertEquals(Integer.valueOf(1), context.getModel());
+	}
+
+	@Test
+	public final void testRemove() {
+		runtime.start("removed");
+
+		assertEquals(1, runtime.size());
+		assertEquals(Integer.valueOf(0), runtime.remove("removed")
+			.getModel());
+		assertNull(runtime.remove("removed"));
+		assertEquals(0, runtime.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testSubmitUnknown() {
+		runtime.submit("unknown", model -> model);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public final void testStartTwice() {
+		runtime.start("twice");
+		runtime.start("twice");
+	}
+}
@@ -16,16 +16,45 @@ package cool.arch.stateroom;
  * #L%
  */
 
+import static cool.arch.stateroom.enums.Status.ACCEPTED;
+import static cool.arch.stateroom.enums.Status.CRASHED;
+import static cool.arch.stateroom.enums.Status.READY;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Ignore;
 import org.junit.Test;
 
+import cool.arch.stateroom.enums.Status;
+
 /**
  * 
  */
 public class MachineTest {
 
+	private final State<Integer> start = State.of("Start");
+
+	private final State<Integer> even = State.of("Even", true);
+
+	private final State<Integer> odd = State.of("Odd", false, (state, model) -> model + 1);
+
+	private final Machine<Integer> machine = Machine.builder(Integer.class)
+		.withModelSupplier(() -> 0)
+		.withStartState(start)
+		.withPreEvaluationTransform((state, model) -> model + 1)
+		.haltWhen((state, model) -> model > 6)
+		.withState(start)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.to(even, (state, model) -> model % 2 == 0)
+		.withState(odd)
+		.to(even, (state, model) -> true, (state, model) -> model * 2)
+		.withState(even)
+		.to(odd, (state, model) -> model % 3 == 0)
+		.build();
+
 	/**
 	 * Test method for {@link cool.arch.stateroom.Machine#toString()}.
 	 */
@@ -38,29 +67,262 @@ public class MachineTest {
 	/**
 	 * Test method for {@link cool.arch.stateroom.Machine#create()}.
 	 */
-	@Ignore
 	@Test
 	public final void testCreate() {
-		fail("Not yet implemented"); // TODO
+		final Context<Integer> context = machine.create();
+
+		assertSame(start, context.getState());
+		assertEquals(READY, context.getStatus());
+		assertEquals(Integer.valueOf(0), context.getModel());
 	}
 
 	/**
 	 * Test method for
 	 * {@link cool.arch.stateroom.Machine#evaluate(cool.arch.stateroom.Context)}.
 	 */
-	@Ignore
 	@Test
 	public final void testEvaluate() {
-		fail("Not yet implemented"); // TODO
+		final Context<Integer> first = machine.evaluate(machine.create());
+
+		assertSame(odd, first.getState());
+		assertEquals(READY, first.getStatus());
+		assertEquals(Integer.valueOf(2), first.getModel());
+
+		final Context<Integer> second = machine.evaluate(first);
+
+		assertSame(even, second.getState());
+		assertEquals(Integer.valueOf(6), second.getModel());
+
+		final Context<Integer> third = machine.evaluate(second);
+
+		assertSame(even, third.getState());
+		assertEquals(ACCEPTED, third.getStatus());
+		assertEquals(Integer.valueOf(7), third.getModel());
+	}
+
+	@Test
+	public final void testEvaluateContextWithoutOrdinal() {
+		final Context<Integer> context = machine.evaluate(new Context<>(even, READY, 2));
+
+		assertSame(odd, context.getState());
+		assertEquals(Integer.valueOf(4), context.getModel());
+	}
+
+	@Test
+	public final void testEvaluateUnknownState() {
+		final State<Integer> unknown = State.of("Unknown");
+		final Context<Integer> context = machine.evaluate(new Context<>(unknown, READY, 6));
+
+		assertSame(unknown, context.getState());
+		assertEquals(CRASHED, context.getStatus());
 	}
 
 	/**
 	 * Test method for
 	 * {@link cool.arch.stateroom.Machine#evaluateUntilHalted(cool.arch.stateroom.Context)}.
 	 */
-	@Ignore
 	@Test
 	public final void testEvaluateUntilHalted() {
-		fail("Not yet implemented"); // TODO
+		final Context<Integer> context = machine.evaluateUntilHalted(machine.create());
+
+		assertSame(even, context.getState());
+		assertEquals(ACCEPTED, context.getStatus());
+		assertEquals(Integer.valueOf(7), context.getModel());
+	}
+
+	/**
+	 * Test method for
+	 * {@link cool.arch.stateroom.Machine#evaluateAll(cool.arch.stateroom.Context[], int)}.
+	 */
+	@Test
+	public final void testEvaluateAll() {
+		@SuppressWarnings("unchecked")
+		final Context<Integer>[] contexts = new Context[1000];
+
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = new Context<>(i % 2 == 0 ? even : odd, READY, i);
+		}
+
+		final Context<Integer>[] expected = contexts.clone();
+
+		machine.evaluateAll(contexts, 7);
+
+		for (int i = 0; i < contexts.length; i++) {
+			final Context<Integer> context = machine.evaluate(expected[i]);
+
+			assertSame(context.getState(), contexts[i].getState());
+			assertEquals(context.getStatus(), contexts[i].getStatus());
+			assertEquals(context.getModel(), contexts[i].getModel());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link cool.arch.stateroom.Machine#evaluateAllUntilHalted(java.util.Collection)}.
+	 */
+	@Test
+	public final void testEvaluateAllUntilHalted() {
+		final List<Context<Integer>> contexts =
+			machine.evaluateAllUntilHalted(Arrays.asList(machine.create(), machine.create()));
+
+		assertEquals(2, contexts.size());
+
+		for (final Context<Integer> context : contexts) {
+			assertSame(even, context.getState());
+			assertEquals(ACCEPTED, context.getStatus());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link cool.arch.stateroom.Machine#fire(cool.arch.stateroom.Context, java.lang.Object)}.
+	 */
+	@Test
+	public final void testFire() {
+		final State<Integer> idle = State.of("Idle");
+		final State<Integer> running = State.of("Running");
+		final State<Integer> done = State.of("Done", true);
+		final Machine<Integer> events = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(idle)
+			.haltWhen((state, model) -> model < 0)
+			.withState(idle)
+			.to(done, (state, model) -> true)
+			.on("start", running, (state, model) -> model > 0)
+			.on("start", done)
+			.withState(running)
+			.on("tick", running, (state, model) -> true, (state, model) -> model + 1)
+			.on("stop", done, (state, model) -> true, (state, model) -> -1)
+			.withState(done)
+			.build();
+
+		assertSame(done, events.fire(events.create(), "start")
+			.getState());
+		assertSame(idle, events.fire(events.create(), "unknown")
+			.getState());
+		assertSame(done, events.evaluate(events.create())
+			.getState());
+
+		final ExecutionCursor<Integer> cursor = events.cursor(new Context<>(idle, READY, 1));
+
+		assertTrue(cursor.fire("start"));
+		assertSame(running, cursor.getState());
+		assertTrue(cursor.fire("tick"));
+		assertTrue(cursor.fire("tick"));
+		assertEquals(Integer.valueOf(3), cursor.getModel());
+		assertFalse(cursor.fire("stop"));
+		assertSame(done, cursor.getState());
+		assertEquals(ACCEPTED, cursor.getStatus());
+	}
+
+	@Test
+	public final void testListener() {
+		final List<String> calls = new ArrayList<>();
+		final Machine<Integer> listened = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.haltWhen((state, model) -> model > 0)
+			.withListener(new ExecutionListener<Integer>() {
+
+				@Override
+				public void onStep(final State<Integer> state, final Status status, final Integer model) {
+					calls.add("step " + state.getName());
+				}
+
+				@Override
+				public void onTransitionTaken(final State<Integer> source, final Transition<Integer> transition,
+					final Integer model) {
+					calls.add("transition " + transition.getTargetState()
+						.getName());
+				}
+
+				@Override
+				public void onStateEntered(final State<Integer> state, final Integer model) {
+					calls.add("entered " + state.getName() + " " + model);
+				}
+
+				@Override
+				public void onHalt(final State<Integer> state, final Status status, final Integer model) {
+					calls.add("halt " + status);
+				}
+			})
+			.withListener(new LoggingExecutionListener<>())
+			.withState(start)
+			.to(odd, (state, model) -> true)
+			.withState(odd)
+			.build();
+
+		listened.evaluateUntilHalted(listened.create());
+
+		assertEquals(Arrays.asList("step Start", "transition Odd", "entered Odd 1", "halt CRASHED"), calls);
+	}
+
+	@Test
+	public final void testMetrics() {
+		final Machine<Integer> measured = Machine.builder(Integer.class)
+			.withModelSupplier(() -> 0)
+			.withStartState(start)
+			.withPreEvaluationTransform((state, model) -> model + 1)
+			.haltWhen((state, model) -> model > 6)
+			.withMetrics()
+			.withState(start)
+			.to(odd, (state, model) -> model % 2 == 1)
+			.withState(odd)
+			.to(even, (state, model) -> true)
+			.withState(even)
+			.build();
+
+		measured.evaluateUntilHalted(measured.create());
+		measured.evaluateUntilHalted(measured.create());
+
+		final MetricsSnapshot<Integer> metrics = measured.getMetrics();
+
+		assertEquals(12, metrics.getSteps());
+		assertEquals(Long.valueOf(2), metrics.getStateEntries()
+			.get(odd));
+		assertEquals(Long.valueOf(0), metrics.getStateEntries()
+			.get(start));
+		assertEquals(Long.valueOf(2), metrics.getHalts()
+			.get(ACCEPTED));
+		assertEquals(2, metrics.getStepsPerRun()
+			.getCount());
+		assertEquals(12, metrics.getStepsPerRun()
+			.getSum());
+		assertEquals(4, metrics.getTransformLatency()
+			.getCount());
+		assertEquals(4, metrics.getGuardLatency()
+			.getCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testMetricsNotEnabled() {
+		machine.getMetrics();
+	}
+
+	/**
+	 * Test method for {@link cool.arch.stateroom.Machine#cursor()}.
+	 */
+	@Test
+	public final void testCursor() {
+		final ExecutionCursor<Integer> cursor = machine.cursor();
+
+		assertTrue(cursor.step());
+		assertSame(odd, cursor.getState());
+		assertEquals(Integer.valueOf(2), cursor.getModel());
+
+		final Context<Integer> snapshot = cursor.snapshot();
+
+		assertTrue(cursor.step());
+		assertFalse(cursor.step());
+		assertEquals(ACCEPTED, cursor.getStatus());
+		assertSame(odd, snapshot.getState());
+		assertEquals(READY, snapshot.getStatus());
+
+		final Context<Integer> halted = cursor.reset(snapshot)
+			.run();
+
+		assertSame(even, halted.getState());
+		assertEquals(ACCEPTED, halted.getStatus());
+		assertEquals(Integer.valueOf(7), halted.getModel());
 	}
 }
@@ -0,0 +1,101 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class SpeculativeRunnerTest {
+
+	private final List<State<Object>> states = new ArrayList<>();
+
+	private final Machine<Object> machine;
+
+	public SpeculativeRunnerTest() {
+		for (int i = 0; i < 7; i++) {
+			states.add(State.of("S" + i));
+		}
+
+		final MachineBuilder<Object> builder = Machine.builder(Object.class)
+			.withModelSupplier(Object::new)
+			.withStartState(states.get(0));
+
+		StateBuilderFacade<Object> facade = null;
+
+		for (int i = 0; i < states.size(); i++) {
+			facade = (facade == null ? builder.withState(states.get(i)) : facade.withState(states.get(i)))
+				.on('a', states.get((i + 1) % states.size()))
+				.on('b', states.get(i * 2 % states.size()))
+				.on('c', states.get(0));
+		}
+
+		machine = facade.build();
+	}
+
+	@Test
+	public final void testMatchesSequentialRun() {
+		final SpeculativeRunner<Object> runner = machine.speculativeRunner();
+		final Random random = new Random(42);
+		final List<Character> events = new ArrayList<>();
+
+		for (int i = 0; i < 20000; i++) {
+			final int draw = random.nextInt(100);
+
+			events.add(draw < 60 ? 'a' : draw < 99 ? 'b' : 'c');
+
+			if (i % 1000 == 0) {
+				events.add('d');
+			}
+		}
+
+		Context<Object> context = machine.create();
+
+		for (final Character event : events) {
+			context = machine.fire(context, event);
+		}
+
+		for (final State<Object> start : states) {
+			final State<Object> expected = runner.runSequentially(start, events);
+
+			for (final int chunkSize : new int[] { 1, 7, 1000, 4096, 50000 }) {
+				assertSame(expected, runner.run(start, events, chunkSize));
+			}
+		}
+
+		assertSame(context.getState(), runner.run(states.get(0), events));
+		assertSame(context.getState(), runner.run(states.get(0), new LinkedList<>(events), 1000));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testRejectsGuardedTransitions() {
+		final State<Object> start = State.of("Start");
+
+		Machine.builder(Object.class)
+			.withModelSupplier(Object::new)
+			.withStartState(start)
+			.withState(start)
+			.on('a', start, (state, model) -> model != null)
+			.build()
+			.speculativeRunner();
+	}
+}
@@ -0,0 +1,166 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import cool.arch.stateroom.enums.StopReason;
+
+/**
+ * 
+ */
+public class StateHierarchyTest {
+
+	private final State<String> active = State.of("Active", false, (state, model) -> model + "+A");
+
+	private final State<String> placed = State.of("Placed", false, (state, model) -> model + "+P");
+
+	private final State<String> paid = State.of("Paid", false, (state, model) -> model + "+Y");
+
+	private final State<String> shipped = State.of("Shipped", true);
+
+	private final State<String> suspended = State.of("Suspended");
+
+	private final State<String> cancelled = State.of("Cancelled", false, (state, model) -> model + "+C");
+
+	@Test
+	public final void testInheritedTransitions() {
+		final Machine<String> machine = machine(false);
+		Context<String> context = machine.create();
+
+		assertSame(placed, context.getState());
+
+		context = machine.fire(context, "pay");
+		context = machine.fire(context, "ship");
+
+		assertSame(shipped, context.getState());
+		assertSame(cancelled, machine.fire(context, "cancel")
+			.getState());
+		assertSame(shipped, machine.fire(context, "pay")
+			.getState());
+		// Only leaves remain in the flattened plan
+		assertEquals(5, machine.getPlan()
+			.size());
+	}
+
+	@Test
+	public final void testEntryAndExitOrder() {
+		final Machine<String> machine = machine(false);
+		Context<String> context = machine.create();
+
+		context = machine.fire(context, "pay");
+
+		assertEquals("-Pt+Y", context.getModel());
+
+		context = machine.fire(context, "cancel");
+
+		assertEquals("-Pt+Y-Y-A+C", context.getModel());
+
+		context = machine.fire(machine.create(), "restart");
+
+		assertSame(placed, context.getState());
+		assertEquals("-P-A+A+P", context.getModel());
+	}
+
+	@Test
+	public final void testHistory() {
+		final Machine<String> withHistory = machine(true);
+		final Machine<String> withoutHistory = machine(false);
+
+		for (final Machine<String> machine : new Machine[] { withHistory, withoutHistory }) {
+			Context<String> context = machine.fire(machine.create(), "pay");
+
+			context = machine.fire(context, "suspend");
+
+			assertSame(suspended, context.getState());
+
+			context = machine.fire(new Context<>(context.getState(), context.getOrdinal(), context.getStatus(), "",
+				context.getHistory()), "resume");
+
+			if (machine == withHistory) {
+				assertSame(paid, context.getState());
+				assertEquals("+A+Y", context.getModel());
+			} else {
+				assertSame(placed, context.getState());
+				assertEquals("+A+P", context.getModel());
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testRejectsHistoryOnLeaf() {
+		Machine.builder(String.class)
+			.withModelSupplier(() -> "")
+			.withStartState(placed)
+			.withHistory(placed)
+			.withState(placed)
+			.build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testRejectsNestingCycle() {
+		Machine.builder(String.class)
+			.withModelSupplier(() -> "")
+			.withStartState(placed)
+			.withState(active)
+			.within(placed)
+			.withState(placed)
+			.within(active)
+			.build();
+	}
+
+	@Test
+	public final void testLivelockWithHistory() {
+		final Machine<String> machine = machine(true);
+		final EvaluationResult<String> result = machine.evaluateUntilHalted(machine.fire(machine.create(), "pay"),
+			EvaluationLimits.<String> none()
+				.withMaxSteps(100)
+				.withLivelockDetection(String::hashCode));
+
+		assertEquals(StopReason.LIVELOCK, result.getReason());
+	}
+
+	private Machine<String> machine(final boolean history) {
+		final MachineBuilder<String> builder = Machine.builder(String.class)
+			.withModelSupplier(() -> "")
+			.withStartState(active);
+
+		if (history) {
+			builder.withHistory(active);
+		}
+
+		return builder.withState(active)
+			.onExit((state, model) -> model + "-A")
+			.on("cancel", cancelled)
+			.on("suspend", suspended)
+			.on("restart", active)
+			.withState(placed)
+			.within(active)
+			.onExit((state, model) -> model + "-P")
+			.on("pay", paid, (state, model) -> true, (state, model) -> model + "t")
+			.withState(paid)
+			.within(active)
+			.onExit((state, model) -> model + "-Y")
+			.on("ship", shipped)
+			.withState(shipped)
+			.within(active)
+			.withState(suspended)
+			.on("resume", active)
+			.withState(cancelled)
+			.build();
+	}
+}
@@ -57,6 +57,7 @@ public class StateTest {
 			.withStartState(evenEven)
 			.withPreEvaluationTransform((s, m) -> input.poll())
 			.haltWhen((state, model) -> model == null)
+			.withListener(new LoggingExecutionListener<>())
 			.withState(evenEven)
 			.to(oddEven, is(A))
 			.to(evenOdd, is(B))
@@ -0,0 +1,160 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class TimingWheelTest {
+
+	private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+	private final State<Integer> waiting = State.of("Waiting");
+
+	private final State<Integer> reminded = State.of("Reminded");
+
+	private final State<Integer> expired = State.of("Expired", true);
+
+	private final Machine<Integer> machine = Machine.builder(Integer.class)
+		.withModelSupplier(() -> 0)
+		.withStartState(waiting)
+		.withState(waiting)
+		.after(Duration.ofSeconds(30), reminded)
+		.withState(reminded)
+		.to(waiting, (state, model) -> model > 0, (state, model) -> 0)
+		.after(Duration.ofSeconds(60), expired, (state, model) -> -1)
+		.withState(expired)
+		.build();
+
+	@Test
+	public final void testExpiresInDeadlineOrder() {
+		final TimingWheel<Long> wheel = new TimingWheel<>(clock::get, 1000);
+		final Random random = new Random(3);
+		final List<Long> delays = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			// Spread over all levels, including beyond the span of the top one
+			final long delay = random.nextInt(4) == 0 ? random.nextInt(300_000) : (long) Math.pow(2, random.nextInt(36));
+
+			delays.add(delay);
+			wheel.schedule(delay, delay);
+		}
+
+		assertEquals(delays.size(), wheel.size());
+
+		final List<Long> fired = new ArrayList<>();
+		long elapsed = 0;
+
+		for (final long step : new long[] { 0, 1000, 255_000, 256_000, 65_535_000, 1L << 30, 1L << 33, 1L << 36 }) {
+			clock.addAndGet(step - elapsed);
+			elapsed = step;
+
+			for (final TimingWheel.Timer<Long> timer : wheel.advance()) {
+				assertTrue(timer.payload.longValue() <= elapsed + 999);
+				fired.add(timer.payload);
+			}
+
+			// Timers expire on tick boundaries, and never on the tick they were scheduled in
+			assertEquals(delays.stream()
+				.filter(delay -> Math.max((delay.longValue() + 999) / 1000, 1) > step / 1000)
+				.count(), wheel.size());
+		}
+
+		assertEquals(delays.stream()
+			.sorted()
+			.collect(Collectors.toList()), fired.stream()
+				.sorted()
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	public final void testCancel() {
+		final TimingWheel<String> wheel = new TimingWheel<>(clock::get, 10);
+		final TimingWheel.Timer<String> kept = wheel.schedule("kept", 100_000);
+		final TimingWheel.Timer<String> cancelled = wheel.schedule("cancelled", 100_000);
+
+		assertTrue(wheel.cancel(cancelled));
+		assertFalse(wheel.cancel(cancelled));
+
+		clock.addAndGet(100_000);
+
+		final List<TimingWheel.Timer<String>> fired = wheel.advance();
+
+		assertEquals(1, fired.size());
+		assertSame(kept, fired.get(0));
+		assertFalse(wheel.cancel(kept));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public final void testTimedTransitions() {
+		try (final MachineRuntime<String, Integer> runtime = new MachineRuntime<>(machine, Runnable::run, clock::get,
+			Duration.ofMillis(100))) {
+			runtime.start("idle");
+			runtime.start("active");
+
+			assertEquals(2, runtime.getPendingTimers());
+
+			advance(runtime, 35);
+
+			assertSame(reminded, runtime.get("active")
+				.getState());
+
+			runtime.submit("active", model -> 1);
+			advance(runtime, 25);
+
+			assertSame(waiting, runtime.get("active")
+				.getState());
+
+			advance(runtime, 10);
+
+			assertSame(reminded, runtime.get("active")
+				.getState());
+
+			advance(runtime, 25);
+
+			assertSame(expired, runtime.get("idle")
+				.getState());
+			assertEquals(Integer.valueOf(-1), runtime.get("idle")
+				.getModel());
+			assertSame(reminded, runtime.get("active")
+				.getState());
+			assertEquals(1, runtime.getPendingTimers());
+
+			runtime.remove("active");
+
+			assertEquals(0, runtime.getPendingTimers());
+		}
+	}
+
+	private void advance(final MachineRuntime<?, ?> runtime, final long seconds) {
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+		runtime.advanceTimers();
+	}
+}
@@ -0,0 +1,303 @@
+package cool.arch.stateroom;
+
+/*
+ * #%L cool.arch.stateroom:stateroom %% Copyright (C) 2015 CoolArch %% Licensed to the Apache
+ * Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or
+ * agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cool.arch.stateroom.enums.Status;
+
+/**
+ * 
+ */
+public class TransitionJournalTest {
+
+	private static final ModelCodec<Long> LONG_CODEC = new ModelCodec<Long>() {
+
+		@Override
+		public void encode(final Long model, final ByteBuffer buffer) {
+			buffer.putLong(model.longValue());
+		}
+
+		@Override
+		public Long decode(final ByteBuffer buffer) {
+			return Long.valueOf(buffer.getLong());
+		}
+	};
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final State<Long> odd = State.of("Odd");
+
+	private final State<Long> even = State.of("Even", true);
+
+	private final Machine<Long> machine = Machine.builder(Long.class)
+		.withModelSupplier(() -> 0L)
+		.withStartState(even)
+		.withPreEvaluationTransform((state, model) -> model + 1)
+		.haltWhen((state, model) -> model >= 9)
+		.withState(even)
+		.to(odd, (state, model) -> model % 2 == 1)
+		.withState(odd)
+		.to(even, (state, model) -> model % 2 == 0)
+		.build();
+
+	@Test
+	public final void testReplayWithModels() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+		final Map<Long, Context<Long>> expected = new HashMap<>();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 256, LONG_CODEC)) {
+			for (long id = 0; id < 10; id++) {
+				expected.put(Long.valueOf(id), journal.evaluateUntilHalted(id, new Context<>(even, Status.READY, id)));
+			}
+		}
+
+		assertTrue(count(directory) > 1);
+
+		final Map<Long, Context<Long>> replayed = new HashMap<>();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 256, LONG_CODEC)) {
+			journal.replay(0, replayed);
+		}
+
+		assertEquals(expected.size(), replayed.size());
+
+		for (final Map.Entry<Long, Context<Long>> entry : expected.entrySet()) {
+			final Context<Long> context = replayed.get(entry.getKey());
+
+			assertSame(entry.getValue()
+				.getState(), context.getState());
+			assertEquals(entry.getValue()
+				.getStatus(), context.getStatus());
+			assertEquals(entry.getValue()
+				.getModel(), context.getModel());
+		}
+	}
+
+	@Test
+	public final void testReplayFromCheckpoint() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+		final Map<Long, Context<Long>> checkpoint = new HashMap<>();
+		final long checkpointPosition;
+		Context<Long> context = new Context<>(even, Status.READY, 0L);
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			context = journal.evaluate(7, context);
+			checkpoint.put(Long.valueOf(7), context);
+			checkpointPosition = journal.position();
+			context = journal.evaluate(7, context);
+			journal.sync();
+			assertEquals(journal.position(), journal.syncedPosition());
+		}
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			final AtomicInteger entries = new AtomicInteger();
+
+			journal.replay(checkpointPosition, (position, id, from, to, before, after, model) -> entries.incrementAndGet());
+			assertEquals(1, entries.get());
+
+			journal.replay(checkpointPosition, checkpoint);
+		}
+
+		assertSame(context.getState(), checkpoint.get(Long.valueOf(7))
+			.getState());
+		assertEquals(Long.valueOf(1), checkpoint.get(Long.valueOf(7))
+			.getModel());
+	}
+
+	@Test
+	public final void testAppendAfterReopen() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+		final long position;
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			journal.evaluate(1, new Context<>(even, Status.READY, 0L));
+			position = journal.position();
+		}
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			assertEquals(position, journal.position());
+			journal.evaluate(2, new Context<>(even, Status.READY, 0L));
+
+			final Map<Long, Context<Long>> replayed = new HashMap<>();
+
+			journal.replay(0, replayed);
+			assertEquals(2, replayed.size());
+		}
+	}
+
+	@Test
+	public final void testTruncate() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 128, LONG_CODEC)) {
+			for (long id = 0; id < 10; id++) {
+				journal.evaluateUntilHalted(id, new Context<>(even, Status.READY, id));
+			}
+
+			final int segments = count(directory);
+
+			assertEquals(segments - 1, journal.truncate(journal.position()));
+			assertEquals(1, count(directory));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testReplayModelsWithoutCodec() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 256, LONG_CODEC)) {
+			journal.evaluate(1, new Context<>(even, Status.READY, 0L));
+		}
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			journal.replay(0, new HashMap<>());
+		}
+	}
+
+	@Test
+	public final void testNegativeModelLength() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			journal.evaluate(1, new Context<>(even, Status.READY, 0L));
+		}
+
+		try (final Stream<Path> files = Files.list(directory);
+			final RandomAccessFile file = new RandomAccessFile(files.findFirst()
+				.get()
+				.toFile(), "rw")) {
+			// Model length of the first entry, following its length, id, ordinals and statuses
+			file.seek(JournalSegment.HEADER_SIZE + Integer.BYTES + 18);
+			file.writeInt(-2);
+		}
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory)) {
+			journal.replay(0, (position, id, from, to, before, after, model) -> {
+				// Entries are never visited
+			});
+			fail("Corrupt entry was replayed");
+		} catch (final IllegalStateException e) {
+			assertTrue(e.getMessage()
+				.startsWith("Corrupt journal entry"));
+		}
+	}
+
+	@Test
+	public final void testCorruptEntryLength() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 256, LONG_CODEC)) {
+			for (long id = 0; id < 10; id++) {
+				journal.evaluateUntilHalted(id, new Context<>(even, Status.READY, id));
+			}
+		}
+
+		final List<Path> segments;
+
+		try (final Stream<Path> files = Files.list(directory)) {
+			segments = files.sorted()
+				.collect(Collectors.toList());
+		}
+
+		assertTrue(segments.size() > 1);
+		corruptLength(segments.get(0));
+
+		try (final TransitionJournal<Long> journal = new TransitionJournal<>(machine, directory, 256, LONG_CODEC)) {
+			journal.replay(0, new HashMap<>());
+			fail("Corrupt entry was replayed");
+		} catch (final IllegalStateException e) {
+			assertTrue(e.getMessage()
+				.startsWith("Corrupt journal entry"));
+		}
+
+		corruptLength(segments.get(segments.size() - 1));
+
+		try {
+			new TransitionJournal<>(machine, directory, 256, LONG_CODEC).close();
+			fail("Corrupt segment was reopened for appending");
+		} catch (final IllegalStateException e) {
+			assertTrue(e.getMessage()
+				.startsWith("Corrupt journal entry"));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testHistoryRejected() throws IOException {
+		final State<Long> active = State.of("Active");
+		final State<Long> first = State.of("First");
+
+		new TransitionJournal<>(Machine.builder(Long.class)
+			.withModelSupplier(() -> 0L)
+			.withStartState(first)
+			.withHistory(active)
+			.withState(active)
+			.withState(first)
+			.within(active)
+			.build(), folder.newFolder()
+			.toPath());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public final void testFingerprintMismatch() throws IOException {
+		final Path directory = folder.newFolder()
+			.toPath();
+
+		new TransitionJournal<>(machine, directory).close();
+		new TransitionJournal<>(Machine.builder(Long.class)
+			.withStartState(odd)
+			.withState(odd)
+			.build(), directory);
+	}
+
+	private static void corruptLength(final Path segment) throws IOException {
+		try (final RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(JournalSegment.HEADER_SIZE);
+			file.writeInt(Integer.MAX_VALUE - 16);
+		}
+	}
+
+	private static int count(final Path directory) throws IOException {
+		try (final Stream<Path> files = Files.list(directory)) {
+			return (int) files.count();
+		}
+	}
+}